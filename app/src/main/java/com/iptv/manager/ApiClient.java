@@ -10,16 +10,16 @@ import android.app.Activity;
 import android.content.Context;
 import android.content.Intent;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
 import java.lang.ref.WeakReference;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
 /**
  * Singleton HTTP client for all API calls. Handles JWT auth header,
  * background threads, and main-thread callbacks.
@@ -27,6 +27,7 @@ import java.util.concurrent.Executors;
 public class ApiClient {
 
     private static final String TAG = "ApiClient";
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
     private static ApiClient instance;
 
     private final TokenManager tokenManager;
@@ -211,84 +212,43 @@ public class ApiClient {
     }
 
     private JSONObject doGet(String urlStr) throws Exception {
-        HttpURLConnection conn = (HttpURLConnection) new URL(urlStr).openConnection();
-        conn.setRequestMethod("GET");
-        conn.setConnectTimeout(10000);
-        conn.setReadTimeout(15000);
-        String token = tokenManager.getToken();
-        if (token != null) {
-            conn.setRequestProperty("Authorization", "Bearer " + token);
-        }
-        conn.setRequestProperty("Accept", "application/json");
-        return readResponse(conn);
+        Request.Builder req = NetworkStack.request(urlStr).get();
+        return execute(withAuth(req, null));
     }
 
     private JSONObject doPost(String urlStr, JSONObject body, String token) throws Exception {
-        HttpURLConnection conn = (HttpURLConnection) new URL(urlStr).openConnection();
-        conn.setRequestMethod("POST");
-        conn.setConnectTimeout(10000);
-        conn.setReadTimeout(15000);
-        if (token == null) token = tokenManager.getToken();
-        if (token != null) {
-            conn.setRequestProperty("Authorization", "Bearer " + token);
-        }
-        conn.setRequestProperty("Content-Type", "application/json");
-        conn.setRequestProperty("Accept", "application/json");
-        conn.setDoOutput(true);
-
-        byte[] data = body.toString().getBytes(StandardCharsets.UTF_8);
-        try (OutputStream os = conn.getOutputStream()) {
-            os.write(data);
-        }
-        return readResponse(conn);
+        Request.Builder req = NetworkStack.request(urlStr).post(RequestBody.create(body.toString(), JSON));
+        return execute(withAuth(req, token));
     }
 
     private JSONObject doPut(String urlStr, JSONObject body) throws Exception {
-        HttpURLConnection conn = (HttpURLConnection) new URL(urlStr).openConnection();
-        conn.setRequestMethod("PUT");
-        conn.setConnectTimeout(10000);
-        conn.setReadTimeout(15000);
-        String token = tokenManager.getToken();
-        if (token != null) {
-            conn.setRequestProperty("Authorization", "Bearer " + token);
-        }
-        conn.setRequestProperty("Content-Type", "application/json");
-        conn.setRequestProperty("Accept", "application/json");
-        conn.setDoOutput(true);
-
-        byte[] data = body.toString().getBytes(StandardCharsets.UTF_8);
-        try (OutputStream os = conn.getOutputStream()) {
-            os.write(data);
-        }
-        return readResponse(conn);
+        Request.Builder req = NetworkStack.request(urlStr).put(RequestBody.create(body.toString(), JSON));
+        return execute(withAuth(req, null));
     }
 
-    private JSONObject readResponse(HttpURLConnection conn) throws Exception {
-        int code = conn.getResponseCode();
-        BufferedReader reader;
-        if (code >= 200 && code < 300) {
-            reader = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
-        } else {
-            reader = new BufferedReader(new InputStreamReader(conn.getErrorStream(), StandardCharsets.UTF_8));
+    private Request withAuth(Request.Builder req, String token) {
+        if (token == null) token = tokenManager.getToken();
+        if (token != null) {
+            req.header("Authorization", "Bearer " + token);
         }
+        return req.header("Accept", "application/json").build();
+    }
 
-        StringBuilder sb = new StringBuilder();
-        String line;
-        while ((line = reader.readLine()) != null) {
-            sb.append(line);
-        }
-        reader.close();
-        conn.disconnect();
-
-        if (code >= 200 && code < 300) {
-            String body = sb.toString().trim();
-            if (body.isEmpty()) return new JSONObject();
-            return new JSONObject(body);
-        } else {
-            String errorBody = sb.toString();
+    /** Run on the shared transport in the interactive class. */
+    private JSONObject execute(Request request) throws Exception {
+        OkHttpClient client = NetworkStack.getInstance().client(NetworkStack.PRIORITY_INTERACTIVE);
+        try (Response response = client.newCall(request).execute()) {
+            int code = response.code();
+            String body = response.body() != null ? response.body().string() : "";
+
+            if (code >= 200 && code < 300) {
+                body = body.trim();
+                if (body.isEmpty()) return new JSONObject();
+                return new JSONObject(body);
+            }
             String errorMsg;
             try {
-                JSONObject errObj = new JSONObject(errorBody);
+                JSONObject errObj = new JSONObject(body);
                 errorMsg = errObj.optString("error", "Server error " + code);
             } catch (org.json.JSONException je) {
                 errorMsg = "Server error " + code;
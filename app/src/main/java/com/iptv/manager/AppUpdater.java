@@ -1,31 +1,52 @@
 package com.iptv.manager;
 
 import android.app.Activity;
+import android.content.Context;
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.content.pm.PackageInfo;
 import android.net.Uri;
 import android.os.Build;
+import android.os.SystemClock;
 import android.util.Log;
 import android.widget.Toast;
 
 import androidx.core.content.FileProvider;
 
+import com.iptv.manager.update.DeltaPatch;
+
 import org.json.JSONObject;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
 
 /**
- * Checks for app updates on startup and installs new APK if available.
+ * Checks for app updates and installs new APK if available; run by
+ * {@link UpdateScheduler} when the UI is idle.
  * Fetches version info from /api/app-version, compares with current versionCode,
- * and downloads + installs the APK if a newer version exists.
+ * and downloads + installs the APK if a newer version exists. Downloads resume
+ * from a partial file after a dropped connection and are verified against the
+ * server's SHA-256 when it sends one.
  */
 public class AppUpdater {
 
     private static final String TAG = "AppUpdater";
+    private static final String PREFS_NAME = "app_updater";
+    private static final String KEY_BODY = "version_body";
+    private static final String KEY_ETAG = "version_etag";
+    private static final String KEY_LAST_MODIFIED = "version_last_modified";
+    // Download rate while a player is running (256 KB/s ≈ 2 Mbit/s)
+    private static final long THROTTLED_BYTES_PER_SEC = 256 * 1024;
     private final Activity activity;
     private final String baseUrl;
 
@@ -35,11 +56,22 @@ public class AppUpdater {
         this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
     }
 
+    /** Told on the checking thread once the check, and any download it started, is over. */
+    public interface CheckListener {
+        /** @param responded whether /api/app-version answered at all, whatever the status */
+        void onCheckDone(boolean responded);
+    }
+
     /**
      * Check for updates in background. Shows toast and triggers install if update found.
      */
     public void checkForUpdate() {
+        checkForUpdate(null);
+    }
+
+    public void checkForUpdate(CheckListener listener) {
         new Thread(() -> {
+            boolean responded = false;
             try {
                 int currentVersion = getCurrentVersionCode();
                 Log.d(TAG, "Current versionCode: " + currentVersion);
@@ -47,30 +79,40 @@ public class AppUpdater {
                 // Fetch latest version info from server
                 String versionUrl = baseUrl + "/api/app-version";
                 Log.d(TAG, "Checking: " + versionUrl);
-                HttpURLConnection conn = (HttpURLConnection) new URL(versionUrl).openConnection();
-                conn.setConnectTimeout(10000);
-                conn.setReadTimeout(10000);
-                conn.setRequestProperty("Accept", "application/json");
-
-                if (conn.getResponseCode() != 200) {
-                    Log.w(TAG, "Version check failed: HTTP " + conn.getResponseCode());
-                    conn.disconnect();
-                    return;
+                // Conditional request: an unchanged version file costs a 304 and no body
+                SharedPreferences prefs = activity.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+                String cachedBody = prefs.getString(KEY_BODY, null);
+                Request.Builder request = NetworkStack.request(versionUrl)
+                        .header("Accept", "application/json");
+                if (cachedBody != null) {
+                    String etag = prefs.getString(KEY_ETAG, null);
+                    String lastModified = prefs.getString(KEY_LAST_MODIFIED, null);
+                    if (etag != null) request.header("If-None-Match", etag);
+                    if (lastModified != null) request.header("If-Modified-Since", lastModified);
                 }
-
-                InputStream is = conn.getInputStream();
-                byte[] buf = new byte[1024];
-                StringBuilder sb = new StringBuilder();
-                int len;
-                while ((len = is.read(buf)) != -1) {
-                    sb.append(new String(buf, 0, len));
+                String body;
+                try (Response response = client(10_000).newCall(request.build()).execute()) {
+                    responded = true;
+                    if (response.code() == 304 && cachedBody != null) {
+                        Log.d(TAG, "Version info not modified");
+                        body = cachedBody;
+                    } else if (response.code() == 200) {
+                        body = response.body() != null ? response.body().string() : "";
+                        prefs.edit()
+                                .putString(KEY_BODY, body)
+                                .putString(KEY_ETAG, response.header("ETag"))
+                                .putString(KEY_LAST_MODIFIED, response.header("Last-Modified"))
+                                .apply();
+                    } else {
+                        Log.w(TAG, "Version check failed: HTTP " + response.code());
+                        return;
+                    }
                 }
-                is.close();
-                conn.disconnect();
 
-                JSONObject json = new JSONObject(sb.toString());
+                JSONObject json = new JSONObject(body);
                 int latestVersion = json.getInt("versionCode");
                 String latestName = json.optString("versionName", "");
+                String sha256 = json.optString("sha256", null);
                 Log.d(TAG, "Latest versionCode: " + latestVersion + " (" + latestName + ")");
 
                 if (latestVersion <= currentVersion) {
@@ -84,46 +126,41 @@ public class AppUpdater {
                                 "Updating app to v" + latestName + "...",
                                 Toast.LENGTH_LONG).show());
 
-                downloadAndInstall();
+                downloadAndInstall(latestVersion, sha256);
 
             } catch (Exception e) {
                 Log.e(TAG, "Update check failed", e);
+            } finally {
+                if (listener != null) listener.onCheckDone(responded);
             }
         }).start();
     }
 
-    private void downloadAndInstall() {
+    private void downloadAndInstall(int versionCode, String sha256) {
         try {
             String apkUrl = baseUrl + "/static/tv.apk";
             Log.d(TAG, "Downloading APK: " + apkUrl);
 
-            HttpURLConnection conn = (HttpURLConnection) new URL(apkUrl).openConnection();
-            conn.setConnectTimeout(30000);
-            conn.setReadTimeout(60000);
-
-            if (conn.getResponseCode() != 200) {
-                Log.e(TAG, "APK download failed: HTTP " + conn.getResponseCode());
-                conn.disconnect();
-                showError("Update download failed");
-                return;
-            }
-
             // Save to cache dir
             File updateDir = new File(activity.getCacheDir(), "updates");
             if (!updateDir.exists()) updateDir.mkdirs();
             File apkFile = new File(updateDir, "update.apk");
+            File partFile = new File(updateDir, "update.apk.part");
+            File metaFile = new File(updateDir, "update.apk.meta");
 
-            InputStream is = conn.getInputStream();
-            FileOutputStream fos = new FileOutputStream(apkFile);
-            byte[] buf = new byte[8192];
-            int len;
-            while ((len = is.read(buf)) != -1) {
-                fos.write(buf, 0, len);
+            // A patch from the installed version is much smaller; the full APK is the fallback
+            if (!downloadPatched(updateDir, partFile, versionCode, sha256)
+                    && !download(apkUrl, partFile, metaFile, versionCode, sha256)) {
+                showError("Update download failed");
+                return;
             }
-            fos.close();
-            is.close();
-            conn.disconnect();
-
+            apkFile.delete();
+            if (!partFile.renameTo(apkFile)) {
+                Log.e(TAG, "Could not move downloaded APK into place");
+                showError("Update download failed");
+                return;
+            }
+            metaFile.delete();
             Log.d(TAG, "APK downloaded: " + apkFile.length() + " bytes");
 
             // Trigger install
@@ -135,6 +172,198 @@ public class AppUpdater {
         }
     }
 
+    // ── Delta update ─────────────────────────────────────────
+
+    /**
+     * Try {@code /static/patches/<installed>-<target>.patch} and apply it to
+     * the installed APK into {@code outFile}. Needs the target checksum, since
+     * a patched APK is only installed once it matches. Returns false (leaving
+     * the full download to the caller) when there is no patch or it does not
+     * apply cleanly.
+     */
+    private boolean downloadPatched(File updateDir, File outFile, int versionCode, String sha256)
+            throws Exception {
+        int installed = getCurrentVersionCode();
+        if (sha256 == null || installed <= 0) return false;
+        String patchUrl = baseUrl + "/static/patches/" + installed + "-" + versionCode + ".patch";
+        File patchFile = new File(updateDir, "update.patch.part");
+        File patchMeta = new File(updateDir, "update.patch.meta");
+        File patched = new File(updateDir, "update.patched");
+        // The patch itself is not checksummed; the rebuilt APK is. A dropped
+        // connection throws, and the partial patch resumes on the next check.
+        if (!download(patchUrl, patchFile, patchMeta, versionCode, null)) {
+            Log.d(TAG, "No usable patch from " + installed + ", downloading full APK");
+            return false;
+        }
+
+        try {
+            File oldApk = new File(activity.getApplicationInfo().sourceDir);
+            long patchBytes = patchFile.length();
+            String actual = DeltaPatch.apply(oldApk, patchFile, patched);
+            if (!actual.equalsIgnoreCase(sha256)) {
+                Log.e(TAG, "Patched APK checksum mismatch: expected " + sha256 + ", got " + actual);
+                return false;
+            }
+            outFile.delete();
+            if (!patched.renameTo(outFile)) return false;
+            Log.d(TAG, "Applied " + patchBytes + "-byte patch " + installed + " -> " + versionCode
+                    + " (APK " + outFile.length() + " bytes)");
+            return true;
+        } catch (Exception e) {
+            Log.w(TAG, "Patch apply failed: " + e.getMessage());
+            return false;
+        } finally {
+            patched.delete();
+            patchFile.delete();
+            patchMeta.delete();
+        }
+    }
+
+    // ── Resumable download ───────────────────────────────────
+
+    /**
+     * Download {@code url} into {@code partFile}, continuing a previous partial
+     * download of the same version with a Range request. The SHA-256 is
+     * computed as bytes arrive (bytes already on disk are hashed once when
+     * resuming), so the finished file is never read back. The metadata file
+     * remembers which version and ETag the partial bytes belong to.
+     */
+    private boolean download(String url, File partFile, File metaFile, int versionCode, String sha256)
+            throws Exception {
+        JSONObject meta = readMeta(metaFile);
+        boolean sameTarget = meta != null
+                && meta.optInt("versionCode") == versionCode
+                && equalsNullable(meta.optString("sha256", null), sha256);
+        if (!sameTarget) {
+            partFile.delete();
+            meta = null;
+        }
+
+        long offset = partFile.length();
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        if (offset > 0) hashExisting(partFile, digest);
+
+        Request.Builder request = NetworkStack.request(url);
+        String validator = meta != null ? meta.optString("validator", null) : null;
+        if (offset > 0) {
+            request.header("Range", "bytes=" + offset + "-");
+            // If the file changed on the server we get a full 200 instead of a bad splice
+            if (validator != null) request.header("If-Range", validator);
+        }
+
+        try (Response response = client(60_000).newCall(request.build()).execute()) {
+            if (response.body() == null || (response.code() != 200 && response.code() != 206)) {
+                Log.e(TAG, "Download failed: HTTP " + response.code() + " for " + url);
+                if (response.code() == 416) partFile.delete();
+                return false;
+            }
+            boolean append = response.code() == 206 && offset > 0;
+            if (!append) {
+                offset = 0;
+                digest.reset();
+            }
+            Log.d(TAG, append ? "Resuming APK download at " + offset + " bytes" : "Starting APK download");
+
+            String etag = response.header("ETag");
+            writeMeta(metaFile, versionCode, sha256, etag != null ? etag : response.header("Last-Modified"));
+
+            try (InputStream is = response.body().byteStream();
+                 FileOutputStream fos = new FileOutputStream(partFile, append)) {
+                copyThrottled(is, fos, digest);
+            }
+        }
+
+        if (sha256 != null) {
+            String actual = toHex(digest.digest());
+            if (!actual.equalsIgnoreCase(sha256)) {
+                Log.e(TAG, "APK checksum mismatch: expected " + sha256 + ", got " + actual);
+                partFile.delete();
+                metaFile.delete();
+                return false;
+            }
+            Log.d(TAG, "APK checksum verified");
+        }
+        return true;
+    }
+
+    /** Copy while hashing; capped at {@link #THROTTLED_BYTES_PER_SEC} whenever a player is running. */
+    private void copyThrottled(InputStream is, FileOutputStream fos, MessageDigest digest) throws Exception {
+        Telemetry telemetry = Telemetry.get(activity);
+        byte[] buf = new byte[64 * 1024];
+        long windowStart = SystemClock.elapsedRealtime();
+        long windowBytes = 0;
+        int len;
+        while ((len = is.read(buf)) != -1) {
+            fos.write(buf, 0, len);
+            digest.update(buf, 0, len);
+            if (!telemetry.isPlaybackActive()) {
+                windowBytes = 0;
+                windowStart = SystemClock.elapsedRealtime();
+                continue;
+            }
+            windowBytes += len;
+            long expectedMs = windowBytes * 1000 / THROTTLED_BYTES_PER_SEC;
+            long elapsedMs = SystemClock.elapsedRealtime() - windowStart;
+            if (expectedMs > elapsedMs) Thread.sleep(expectedMs - elapsedMs);
+        }
+    }
+
+    private static void hashExisting(File file, MessageDigest digest) throws Exception {
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] buf = new byte[64 * 1024];
+            int len;
+            while ((len = in.read(buf)) != -1) {
+                digest.update(buf, 0, len);
+            }
+        }
+    }
+
+    private static JSONObject readMeta(File metaFile) {
+        if (!metaFile.exists()) return null;
+        try (InputStream in = new FileInputStream(metaFile)) {
+            byte[] data = new byte[(int) metaFile.length()];
+            int read = 0;
+            while (read < data.length) {
+                int n = in.read(data, read, data.length - read);
+                if (n < 0) break;
+                read += n;
+            }
+            return new JSONObject(new String(data, 0, read, StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static void writeMeta(File metaFile, int versionCode, String sha256, String validator) throws Exception {
+        JSONObject meta = new JSONObject();
+        meta.put("versionCode", versionCode);
+        if (sha256 != null) meta.put("sha256", sha256);
+        if (validator != null) meta.put("validator", validator);
+        try (FileOutputStream out = new FileOutputStream(metaFile)) {
+            out.write(meta.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static boolean equalsNullable(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(String.format(Locale.US, "%02x", b));
+        }
+        return sb.toString();
+    }
+
+    /** Background-class client on the shared transport, so updates never compete with playback. */
+    private static OkHttpClient client(long readTimeoutMs) {
+        return NetworkStack.getInstance().client(NetworkStack.PRIORITY_BACKGROUND)
+                .newBuilder()
+                .readTimeout(readTimeoutMs, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
     private void installApk(File apkFile) {
         try {
             Intent intent = new Intent(Intent.ACTION_VIEW);
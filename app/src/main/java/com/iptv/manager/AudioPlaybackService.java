@@ -0,0 +1,254 @@
+package com.iptv.manager;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.net.Uri;
+import android.net.wifi.WifiManager;
+import android.os.Build;
+import android.os.IBinder;
+import android.util.Log;
+
+import androidx.annotation.OptIn;
+import androidx.core.content.ContextCompat;
+import androidx.media3.common.AudioAttributes;
+import androidx.media3.common.C;
+import androidx.media3.common.MediaItem;
+import androidx.media3.common.MimeTypes;
+import androidx.media3.common.PlaybackException;
+import androidx.media3.common.Player;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.datasource.HttpDataSource;
+import androidx.media3.exoplayer.DefaultLoadControl;
+import androidx.media3.exoplayer.ExoPlayer;
+import androidx.media3.exoplayer.hls.HlsMediaSource;
+import androidx.media3.exoplayer.trackselection.DefaultTrackSelector;
+
+/**
+ * Foreground service that keeps a channel playing as audio only, for radio and
+ * commentary channels. The video renderer is disabled, so HLS streams with a
+ * separate audio rendition never load video segments; muxed streams are held
+ * on their lowest variant. While it is actually playing, the player's local
+ * wake mode holds a partial wake lock and the service holds a plain
+ * {@code WIFI_MODE_FULL} lock of its own — media3's network wake mode would take
+ * a high-performance one, which audio at this bitrate doesn't need. No screen.
+ */
+public class AudioPlaybackService extends Service {
+
+    private static final String TAG = "AudioPlaybackService";
+    private static final String CHANNEL_ID = "audio_playback";
+    private static final int NOTIFICATION_ID = 39;
+
+    public static final String ACTION_PLAY = "com.iptv.manager.audio.PLAY";
+    public static final String ACTION_STOP = "com.iptv.manager.audio.STOP";
+    public static final String EXTRA_URL = "stream_url";
+    public static final String EXTRA_FALLBACK_URL = "fallback_url";
+    public static final String EXTRA_NAME = "channel_name";
+
+    private static volatile String nowPlaying;
+
+    private ExoPlayer player;
+    private WifiManager.WifiLock wifiLock;
+    private HlsMediaSource.Factory hlsFactory;
+    private String streamUrl;
+    private String fallbackUrl;
+    private String streamName;
+
+    /** Start (or switch) audio-only playback of a channel. */
+    public static void play(Context context, String url, String fallbackUrl, String name) {
+        Intent intent = new Intent(context, AudioPlaybackService.class)
+                .setAction(ACTION_PLAY)
+                .putExtra(EXTRA_URL, url)
+                .putExtra(EXTRA_FALLBACK_URL, fallbackUrl)
+                .putExtra(EXTRA_NAME, name);
+        ContextCompat.startForegroundService(context, intent);
+    }
+
+    public static void stop(Context context) {
+        if (nowPlaying == null) return;
+        context.stopService(new Intent(context, AudioPlaybackService.class));
+    }
+
+    /** Name of the channel playing in the background, or null. */
+    public static String getNowPlaying() {
+        return nowPlaying;
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        if (intent != null && ACTION_STOP.equals(intent.getAction())) {
+            stopSelf();
+            return START_NOT_STICKY;
+        }
+        // startForegroundService() requires startForeground() even when the
+        // intent turns out to be unusable, or the app is killed on O+
+        String name = intent != null ? intent.getStringExtra(EXTRA_NAME) : null;
+        Notification notification = buildNotification(name);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            startForeground(NOTIFICATION_ID, notification, ServiceInfo.FOREGROUND_SERVICE_TYPE_MEDIA_PLAYBACK);
+        } else {
+            startForeground(NOTIFICATION_ID, notification);
+        }
+        if (intent == null || intent.getStringExtra(EXTRA_URL) == null) {
+            stopSelf();
+            return START_NOT_STICKY;
+        }
+        streamUrl = intent.getStringExtra(EXTRA_URL);
+        fallbackUrl = intent.getStringExtra(EXTRA_FALLBACK_URL);
+        streamName = name;
+        nowPlaying = streamName;
+        start(streamUrl);
+        return START_NOT_STICKY;
+    }
+
+    @OptIn(markerClass = UnstableApi.class)
+    private void start(String url) {
+        if (player == null) {
+            player = buildPlayer();
+        }
+        MediaItem item = new MediaItem.Builder()
+                .setUri(Uri.parse(url))
+                .setMimeType(MimeTypes.APPLICATION_M3U8)
+                .build();
+        player.stop();
+        player.setMediaSource(hlsFactory.createMediaSource(item));
+        player.setPlayWhenReady(true);
+        player.prepare();
+        Log.d(TAG, "Audio-only playback started: " + streamName);
+        Telemetry.get(this).report(Telemetry.PRIORITY_NORMAL, "audio", "Audio-only playback started",
+                "channel", streamName, "route", RouteHealthStore.routeOf(url));
+    }
+
+    /**
+     * Audio-only player: video and text renderers disabled, lowest variant, a
+     * modest buffer (audio needs far less memory than video), and
+     * WAKE_MODE_LOCAL so the wake lock follows the playing state; the Wi-Fi
+     * lock follows it through {@link #holdWifiLock}.
+     */
+    @OptIn(markerClass = UnstableApi.class)
+    private ExoPlayer buildPlayer() {
+        DefaultTrackSelector trackSelector = new DefaultTrackSelector(this);
+        trackSelector.setParameters(
+                trackSelector.buildUponParameters()
+                        .setTrackTypeDisabled(C.TRACK_TYPE_VIDEO, true)
+                        .setTrackTypeDisabled(C.TRACK_TYPE_TEXT, true)
+                        .setForceLowestBitrate(true)
+                        .setPreferredAudioMimeTypes(MimeTypes.AUDIO_AAC)
+                        .build()
+        );
+
+        DefaultLoadControl loadControl = new DefaultLoadControl.Builder()
+                .setBufferDurationsMs(
+                        15_000,  // minBufferMs
+                        30_000,  // maxBufferMs
+                        1_500,   // bufferForPlaybackMs
+                        3_000    // bufferForPlaybackAfterRebufferMs
+                )
+                .setTargetBufferBytes(8 * 1024 * 1024)
+                .build();
+
+        HttpDataSource.Factory httpFactory = NetworkStack.getInstance()
+                .mediaDataSourceFactory("IPTV-Manager/ExoPlayer", 10_000, 15_000);
+        hlsFactory = new HlsMediaSource.Factory(httpFactory).setAllowChunklessPreparation(true);
+
+        ExoPlayer exoPlayer = new ExoPlayer.Builder(this)
+                .setTrackSelector(trackSelector)
+                .setLoadControl(loadControl)
+                .setWakeMode(C.WAKE_MODE_LOCAL)
+                .setHandleAudioBecomingNoisy(true)
+                .setAudioAttributes(new AudioAttributes.Builder()
+                        .setUsage(C.USAGE_MEDIA)
+                        .setContentType(C.AUDIO_CONTENT_TYPE_MUSIC)
+                        .build(), true)
+                .build();
+
+        exoPlayer.addListener(new Player.Listener() {
+            @Override
+            public void onIsPlayingChanged(boolean isPlaying) {
+                holdWifiLock(isPlaying);
+            }
+
+            @Override
+            public void onPlayerError(PlaybackException error) {
+                Log.e(TAG, "Audio playback error: " + error.getErrorCodeName());
+                Telemetry.get(AudioPlaybackService.this).report(Telemetry.PRIORITY_HIGH, "audio",
+                        "ERROR: " + error.getErrorCodeName(), "channel", streamName);
+                if (fallbackUrl != null && !fallbackUrl.equals(streamUrl)) {
+                    streamUrl = fallbackUrl;
+                    start(streamUrl);
+                } else {
+                    stopSelf();
+                }
+            }
+        });
+        return exoPlayer;
+    }
+
+    /**
+     * Hold a plain Wi-Fi lock while playing. The platform ignores this mode from
+     * API 29; it matters on the older boxes that drop Wi-Fi when the screen is off.
+     */
+    @SuppressWarnings("deprecation")
+    private void holdWifiLock(boolean hold) {
+        if (wifiLock == null) {
+            if (!hold) return;
+            WifiManager wm = (WifiManager) getApplicationContext().getSystemService(Context.WIFI_SERVICE);
+            if (wm == null) return;
+            wifiLock = wm.createWifiLock(WifiManager.WIFI_MODE_FULL, TAG);
+            wifiLock.setReferenceCounted(false);
+        }
+        if (hold && !wifiLock.isHeld()) {
+            wifiLock.acquire();
+        } else if (!hold && wifiLock.isHeld()) {
+            wifiLock.release();
+        }
+    }
+
+    private Notification buildNotification(String name) {
+        NotificationManager nm = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && nm != null) {
+            nm.createNotificationChannel(new NotificationChannel(CHANNEL_ID,
+                    getString(R.string.audio_channel_name), NotificationManager.IMPORTANCE_LOW));
+        }
+
+        int piFlags = Build.VERSION.SDK_INT >= Build.VERSION_CODES.M ? PendingIntent.FLAG_IMMUTABLE : 0;
+        PendingIntent stopIntent = PendingIntent.getService(this, 0,
+                new Intent(this, AudioPlaybackService.class).setAction(ACTION_STOP), piFlags);
+        PendingIntent openIntent = PendingIntent.getActivity(this, 0,
+                new Intent(this, MainActivity.class), piFlags);
+
+        Notification.Builder builder = Build.VERSION.SDK_INT >= Build.VERSION_CODES.O
+                ? new Notification.Builder(this, CHANNEL_ID)
+                : new Notification.Builder(this);
+        return builder
+                .setSmallIcon(R.drawable.ic_launcher)
+                .setContentTitle(name != null ? name : getString(R.string.app_name))
+                .setContentText(getString(R.string.audio_only_playing))
+                .setContentIntent(openIntent)
+                .addAction(0, getString(R.string.audio_stop), stopIntent)
+                .setOngoing(true)
+                .build();
+    }
+
+    @Override
+    public void onDestroy() {
+        nowPlaying = null;
+        holdWifiLock(false);
+        if (player != null) {
+            player.release();
+            player = null;
+            Log.d(TAG, "Audio-only playback stopped");
+        }
+        super.onDestroy();
+    }
+}
@@ -0,0 +1,103 @@
+package com.iptv.manager;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.net.Uri;
+import android.net.wifi.WifiInfo;
+import android.net.wifi.WifiManager;
+import android.util.Log;
+
+/**
+ * Last measured playback throughput per network (type + SSID) and stream host.
+ * Saved when playback ends and used to seed the next player's bandwidth meter,
+ * so adaptive bitrate starts near the right variant instead of a generic guess.
+ * Estimates lose weight as they age and are ignored once stale.
+ */
+public class BandwidthStore {
+
+    private static final String TAG = "BandwidthStore";
+    private static final String PREFS_NAME = "bandwidth";
+
+    private static final long HALF_LIFE_MS = 6 * 60 * 60 * 1000L; // 6h
+    private static final double MIN_CONFIDENCE = 0.25;             // ~12h old
+    private static final long MIN_VALID_BPS = 100_000;
+
+    private final Context context;
+    private final SharedPreferences prefs;
+
+    public BandwidthStore(Context context) {
+        this.context = context.getApplicationContext();
+        prefs = this.context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /** Save the estimate at the end of playback. */
+    public void save(String streamUrl, long bitrateBps) {
+        if (bitrateBps < MIN_VALID_BPS) return;
+        String network = networkKey();
+        long now = System.currentTimeMillis();
+        prefs.edit()
+                .putLong(network + "|" + hostOf(streamUrl) + ".bps", bitrateBps)
+                .putLong(network + "|" + hostOf(streamUrl) + ".at", now)
+                .putLong(network + ".bps", bitrateBps)
+                .putLong(network + ".at", now)
+                .apply();
+        Log.d(TAG, "Saved " + (bitrateBps / 1000) + "kbps for " + network);
+    }
+
+    /**
+     * Seed estimate for a stream on the current network, or 0 if there is no fresh
+     * measurement. The host-specific value wins over the network-wide one. Older
+     * values are scaled down (up to 25%) so a stale estimate errs low.
+     */
+    public long getInitialEstimate(String streamUrl) {
+        String network = networkKey();
+        long estimate = decayed(network + "|" + hostOf(streamUrl));
+        if (estimate == 0) estimate = decayed(network);
+        return estimate;
+    }
+
+    private long decayed(String key) {
+        long bps = prefs.getLong(key + ".bps", 0);
+        long at = prefs.getLong(key + ".at", 0);
+        if (bps <= 0 || at <= 0) return 0;
+        long age = Math.max(0, System.currentTimeMillis() - at);
+        double confidence = Math.pow(0.5, (double) age / HALF_LIFE_MS);
+        if (confidence < MIN_CONFIDENCE) return 0;
+        return (long) (bps * (0.75 + 0.25 * confidence));
+    }
+
+    private static String hostOf(String url) {
+        String host = url != null ? Uri.parse(url).getHost() : null;
+        return host != null ? host : "unknown";
+    }
+
+    /**
+     * "WIFI:<ssid>", "ETHERNET", "MOBILE" etc. The SSID needs ACCESS_WIFI_STATE,
+     * and from API 29 the OS also hides it unless the app holds location
+     * permission, which this app doesn't ask for: there every Wi-Fi network
+     * keys as plain "WIFI", which still keeps it apart from wired and mobile.
+     */
+    @SuppressWarnings("deprecation")
+    private String networkKey() {
+        ConnectivityManager cm = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo info = cm != null ? cm.getActiveNetworkInfo() : null;
+        if (info == null) return "NONE";
+        String type = info.getTypeName();
+        if (info.getType() == ConnectivityManager.TYPE_WIFI) {
+            String ssid = null;
+            try {
+                WifiManager wm = (WifiManager) context.getSystemService(Context.WIFI_SERVICE);
+                WifiInfo wifi = wm != null ? wm.getConnectionInfo() : null;
+                ssid = wifi != null ? wifi.getSSID() : null;
+            } catch (SecurityException e) {
+                Log.w(TAG, "SSID not readable, keying by network type", e);
+            }
+            if (ssid != null && !ssid.isEmpty() && !ssid.contains("unknown ssid")) {
+                return type + ":" + ssid.replace("\"", "");
+            }
+        }
+        return type;
+    }
+}
@@ -0,0 +1,181 @@
+package com.iptv.manager;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.OptIn;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.DefaultLoadControl;
+
+import com.iptv.manager.playback.BufferSizes;
+
+import java.util.Locale;
+
+/**
+ * Buffer sizes and durations for the player's LoadControl, picked per device.
+ * The numbers are {@link BufferSizes} in :core, shared with the HLS fault harness.
+ * "auto" chooses from memory class, low-RAM status, the last measured start-up
+ * throughput and recent rebuffer history; a fixed profile can be forced from
+ * the sidebar. Start-up time and rebuffers are recorded per profile so they can
+ * be compared.
+ */
+public class BufferProfile {
+
+    private static final String TAG = "BufferProfile";
+    private static final String PREFS_NAME = "buffer_profile";
+    private static final String KEY_SELECTED = "selected";
+    private static final String KEY_THROUGHPUT = "last_throughput_bps";
+    /** Per played minute; the older per-session "rebuffer_ema" key is no longer read. */
+    private static final String KEY_REBUFFER_EMA = "rebuffer_per_min_ema";
+
+    public static final String AUTO = "auto";
+
+    public static final BufferProfile LOW = new BufferProfile(BufferSizes.LOW);
+    public static final BufferProfile STANDARD = new BufferProfile(BufferSizes.STANDARD);
+    public static final BufferProfile HIGH = new BufferProfile(BufferSizes.HIGH);
+    public static final BufferProfile RESILIENT = new BufferProfile(BufferSizes.RESILIENT);
+
+    public static final BufferProfile[] ALL = {LOW, STANDARD, HIGH, RESILIENT};
+
+    private static final long SLOW_THROUGHPUT_BPS = 4_000_000;
+    private static final float REBUFFER_EMA_ALPHA = 0.3f;
+    /** About one rebuffer every four minutes of playback. */
+    private static final float REBUFFER_EMA_THRESHOLD = 0.25f;
+    /** Sessions shorter than this count as a minute, so one early stall doesn't read as a huge rate. */
+    private static final long MIN_RATE_PLAYED_MS = 60_000;
+
+    public final String name;
+    public final int minBufferMs;
+    public final int maxBufferMs;
+    public final int bufferForPlaybackMs;
+    public final int bufferForPlaybackAfterRebufferMs;
+    public final int targetBufferBytes;
+
+    private BufferProfile(BufferSizes sizes) {
+        this.name = sizes.name;
+        this.minBufferMs = sizes.minBufferMs;
+        this.maxBufferMs = sizes.maxBufferMs;
+        this.bufferForPlaybackMs = sizes.bufferForPlaybackMs;
+        this.bufferForPlaybackAfterRebufferMs = sizes.bufferForPlaybackAfterRebufferMs;
+        this.targetBufferBytes = sizes.targetBufferBytes;
+    }
+
+    @OptIn(markerClass = UnstableApi.class)
+    public DefaultLoadControl buildLoadControl() {
+        return new DefaultLoadControl.Builder()
+                .setBufferDurationsMs(minBufferMs, maxBufferMs,
+                        bufferForPlaybackMs, bufferForPlaybackAfterRebufferMs)
+                .setTargetBufferBytes(targetBufferBytes)
+                .build();
+    }
+
+    public static BufferProfile byName(String name) {
+        for (BufferProfile p : ALL) {
+            if (p.name.equals(name)) return p;
+        }
+        return null;
+    }
+
+    // ── Selection ────────────────────────────────────────────
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /** "auto" or a profile name. */
+    public static String getSelected(Context context) {
+        return prefs(context).getString(KEY_SELECTED, AUTO);
+    }
+
+    public static void setSelected(Context context, String selected) {
+        prefs(context).edit().putString(KEY_SELECTED, selected).apply();
+    }
+
+    /** Resolve the profile to use for the next playback. */
+    public static BufferProfile select(Context context) {
+        BufferProfile forced = byName(getSelected(context));
+        if (forced != null) return forced;
+        return selectAuto(context);
+    }
+
+    private static BufferProfile selectAuto(Context context) {
+        ActivityManager am = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        int memoryClassMb = am != null ? am.getMemoryClass() : 0;
+        boolean lowRam = am != null && am.isLowRamDevice();
+        long totalMem = 0;
+        if (am != null) {
+            ActivityManager.MemoryInfo info = new ActivityManager.MemoryInfo();
+            am.getMemoryInfo(info);
+            totalMem = info.totalMem;
+        }
+
+        SharedPreferences prefs = prefs(context);
+        long throughput = prefs.getLong(KEY_THROUGHPUT, 0);
+        float rebufferEma = prefs.getFloat(KEY_REBUFFER_EMA, 0f);
+
+        BufferProfile profile;
+        if (lowRam || memoryClassMb <= 128 || totalMem < 1536L * 1024 * 1024) {
+            // Never grow the buffer on a low-RAM device, whatever the network does
+            profile = LOW;
+        } else if (rebufferEma >= REBUFFER_EMA_THRESHOLD
+                || (throughput > 0 && throughput < SLOW_THROUGHPUT_BPS)) {
+            profile = RESILIENT;
+        } else if (totalMem >= 3L * 1024 * 1024 * 1024 && memoryClassMb >= 256) {
+            profile = HIGH;
+        } else {
+            profile = STANDARD;
+        }
+        Log.d(TAG, "Auto profile " + profile.name + " (memClass=" + memoryClassMb + "MB lowRam=" + lowRam
+                + " totalMem=" + (totalMem >> 20) + "MB throughput=" + throughput
+                + "bps rebufferEma=" + rebufferEma + ")");
+        return profile;
+    }
+
+    // ── Metrics ──────────────────────────────────────────────
+
+    /**
+     * Record one playback session. Feeds the auto selector (throughput and
+     * rebuffers per played minute) and the per-profile comparison counters.
+     * {@code throughputBps} is the bandwidth meter's last measured estimate,
+     * or 0 if nothing was measured.
+     */
+    public static void recordSession(Context context, BufferProfile profile, long startupMs,
+                                     int rebuffers, long playedMs, long throughputBps) {
+        SharedPreferences prefs = prefs(context);
+        float ema = prefs.getFloat(KEY_REBUFFER_EMA, 0f);
+        if (playedMs > 0) {
+            float perMinute = rebuffers * 60_000f / Math.max(playedMs, MIN_RATE_PLAYED_MS);
+            ema = ema + REBUFFER_EMA_ALPHA * (perMinute - ema);
+        }
+
+        SharedPreferences.Editor editor = prefs.edit()
+                .putFloat(KEY_REBUFFER_EMA, ema)
+                .putInt(profile.name + ".sessions", prefs.getInt(profile.name + ".sessions", 0) + 1)
+                .putLong(profile.name + ".rebuffers", prefs.getLong(profile.name + ".rebuffers", 0) + rebuffers)
+                .putLong(profile.name + ".played_ms", prefs.getLong(profile.name + ".played_ms", 0) + playedMs);
+        if (startupMs > 0) {
+            editor.putInt(profile.name + ".started", prefs.getInt(profile.name + ".started", 0) + 1)
+                    .putLong(profile.name + ".startup_ms", prefs.getLong(profile.name + ".startup_ms", 0) + startupMs);
+        }
+        if (throughputBps > 0) {
+            editor.putLong(KEY_THROUGHPUT, throughputBps);
+        }
+        editor.apply();
+    }
+
+    /** Average start-up and rebuffers per hour for a profile, e.g. for debug reports. */
+    public static String describeStats(Context context, BufferProfile profile) {
+        SharedPreferences prefs = prefs(context);
+        int sessions = prefs.getInt(profile.name + ".sessions", 0);
+        int started = prefs.getInt(profile.name + ".started", 0);
+        long startupMs = prefs.getLong(profile.name + ".startup_ms", 0);
+        long rebuffers = prefs.getLong(profile.name + ".rebuffers", 0);
+        long playedMs = prefs.getLong(profile.name + ".played_ms", 0);
+        long avgStartup = started > 0 ? startupMs / started : 0;
+        float rebuffersPerHour = playedMs > 0 ? rebuffers * 3_600_000f / playedMs : 0f;
+        return profile.name + ": sessions=" + sessions + " avgStartupMs=" + avgStartup
+                + " rebuffersPerHour=" + String.format(Locale.US, "%.1f", rebuffersPerHour);
+    }
+}
@@ -11,25 +11,24 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.iptv.manager.model.Channel;
+import com.iptv.manager.model.ChannelCatalog;
 import com.iptv.manager.model.EpgEntry;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 public class ChannelAdapter extends RecyclerView.Adapter<ChannelAdapter.ChannelViewHolder> {
 
-    private final List<Channel> allChannels = new ArrayList<>();
-    private final List<Channel> filteredChannels = new ArrayList<>();
-    private String currentFilter = "favourites";
-    private String currentGroup = null;
-    private String searchQuery = "";
+    // Filtering and grouping live in the plain-Java catalog (:core)
+    private final ChannelCatalog catalog = new ChannelCatalog();
 
     private OnChannelActionListener listener;
 
     public interface OnChannelActionListener {
         void onChannelClick(Channel channel);
         void onChannelLongClick(Channel channel);
+        void onChannelFocusChanged(Channel channel, boolean hasFocus);
+        void onChannelMenu(Channel channel);
         void onFocusTransferToSidebar();
     }
 
@@ -40,159 +39,79 @@ public class ChannelAdapter extends RecyclerView.Adapter<ChannelAdapter.ChannelV
     // ── Data ─────────────────────────────────────────────────
 
     public void setChannels(List<Channel> channels) {
-        allChannels.clear();
-        allChannels.addAll(channels);
-        applyFilter();
+        catalog.setChannels(channels);
+        notifyDataSetChanged();
     }
 
     public List<Channel> getAllChannels() {
-        return allChannels;
+        return catalog.getAllChannels();
     }
 
     public List<Channel> getFilteredChannels() {
-        return filteredChannels;
+        return catalog.getFilteredChannels();
     }
 
     // ── Filtering ────────────────────────────────────────────
 
     public void setFilter(String filter, String group) {
-        currentFilter = filter;
-        currentGroup = group;
-        applyFilter();
+        catalog.setFilter(filter, group);
+        notifyDataSetChanged();
     }
 
     public void setSearch(String query) {
-        searchQuery = query != null ? query.toLowerCase().trim() : "";
-        applyFilter();
+        catalog.setSearch(query);
+        notifyDataSetChanged();
     }
 
     public String getCurrentFilter() {
-        return currentFilter;
+        return catalog.getCurrentFilter();
     }
 
     public String getCurrentGroup() {
-        return currentGroup;
-    }
-
-    private void applyFilter() {
-        filteredChannels.clear();
-
-        for (Channel ch : allChannels) {
-            // Search filter
-            if (!searchQuery.isEmpty() && !ch.name.toLowerCase().contains(searchQuery)) {
-                continue;
-            }
-
-            switch (currentFilter) {
-                case "favourites":
-                    if (ch.favourite) filteredChannels.add(ch);
-                    break;
-                case "all":
-                    filteredChannels.add(ch);
-                    break;
-                case "group":
-                    if (currentGroup != null && currentGroup.equals(ch.group)) {
-                        filteredChannels.add(ch);
-                    }
-                    break;
-                default:
-                    filteredChannels.add(ch);
-                    break;
-            }
-        }
-
-        notifyDataSetChanged();
+        return catalog.getCurrentGroup();
     }
 
     // ── EPG updates ──────────────────────────────────────────
 
     public void updateEpg(Map<String, EpgEntry> epgMap) {
-        for (Channel ch : allChannels) {
-            EpgEntry entry = epgMap.get(ch.channelId);
-            if (entry != null) {
-                ch.epgNowTitle = entry.nowTitle;
-                ch.epgNextTitle = entry.nextTitle;
-                ch.epgNowStart = entry.nowStart;
-                ch.epgNowEnd = entry.nowEnd;
-            }
-        }
+        catalog.updateEpg(epgMap);
         notifyDataSetChanged();
     }
 
     // ── Favourite toggle ─────────────────────────────────────
 
     public void updateFavourite(String channelId, boolean favourite) {
-        for (Channel ch : allChannels) {
-            if (ch.channelId.equals(channelId)) {
-                ch.favourite = favourite;
-                break;
-            }
-        }
-        applyFilter();
+        catalog.updateFavourite(channelId, favourite);
+        notifyDataSetChanged();
     }
 
     // ── Recent channels filter ───────────────────────────────
 
     public void setRecentFilter(List<String> recentIds) {
-        currentFilter = "recent";
-        currentGroup = null;
-        filteredChannels.clear();
-        for (String id : recentIds) {
-            for (Channel ch : allChannels) {
-                if (ch.channelId.equals(id)) {
-                    filteredChannels.add(ch);
-                    break;
-                }
-            }
-        }
+        catalog.setRecentFilter(recentIds);
         notifyDataSetChanged();
     }
 
     // ── Sidebar data helpers ─────────────────────────────────
 
     public int getAllCount() {
-        return allChannels.size();
+        return catalog.getAllCount();
     }
 
     public int getFavouriteCount() {
-        int count = 0;
-        for (Channel ch : allChannels) {
-            if (ch.favourite) count++;
-        }
-        return count;
+        return catalog.getFavouriteCount();
     }
 
     /** Get unique groups with counts */
-    public List<GroupInfo> getGroups() {
-        List<GroupInfo> groups = new ArrayList<>();
-        List<String> seen = new ArrayList<>();
-        for (Channel ch : allChannels) {
-            if (!seen.contains(ch.group)) {
-                seen.add(ch.group);
-                int count = 0;
-                for (Channel c : allChannels) {
-                    if (c.group.equals(ch.group)) count++;
-                }
-                groups.add(new GroupInfo(ch.group, count));
-            }
-        }
-        return groups;
-    }
-
-    public static class GroupInfo {
-        public final String name;
-        public final int count;
-        public GroupInfo(String name, int count) {
-            this.name = name;
-            this.count = count;
-        }
+    public List<ChannelCatalog.GroupInfo> getGroups() {
+        return catalog.getGroups();
     }
 
     // ── RecyclerView.Adapter ─────────────────────────────────
 
     @Override
     public int getItemCount() {
-        return filteredChannels.size();
+        return catalog.getFilteredChannels().size();
     }
 
     @NonNull
@@ -205,12 +124,12 @@ public class ChannelAdapter extends RecyclerView.Adapter<ChannelAdapter.ChannelV
 
     @Override
     public void onBindViewHolder(@NonNull ChannelViewHolder holder, int position) {
-        Channel ch = filteredChannels.get(position);
+        Channel ch = catalog.getFilteredChannels().get(position);
 
         holder.channelName.setText(ch.name);
 
         // Group badge — show in "all" or search mode
-        boolean showBadge = ("all".equals(currentFilter) || !searchQuery.isEmpty())
+        boolean showBadge = (ChannelCatalog.FILTER_ALL.equals(catalog.getCurrentFilter()) || catalog.isSearching())
                 && ch.group != null && !ch.group.isEmpty();
         if (showBadge) {
             holder.channelGroupBadge.setText(ch.group);
@@ -278,6 +197,7 @@ public class ChannelAdapter extends RecyclerView.Adapter<ChannelAdapter.ChannelV
                     holder.channelStar.setAlpha(0.5f);
                 }
             }
+            if (listener != null) listener.onChannelFocusChanged(ch, hasFocus);
         });
 
         // Click → play
@@ -291,13 +211,17 @@ public class ChannelAdapter extends RecyclerView.Adapter<ChannelAdapter.ChannelV
             return true;
         });
 
-        // D-pad left → sidebar
+        // D-pad left → sidebar, menu → channel options
         holder.itemView.setOnKeyListener((v, keyCode, event) -> {
             if (event.getAction() == KeyEvent.ACTION_DOWN) {
                 if (keyCode == KeyEvent.KEYCODE_DPAD_LEFT) {
                     if (listener != null) listener.onFocusTransferToSidebar();
                     return true;
                 }
+                if (keyCode == KeyEvent.KEYCODE_MENU) {
+                    if (listener != null) listener.onChannelMenu(ch);
+                    return true;
+                }
             }
             return false;
         });
@@ -0,0 +1,161 @@
+package com.iptv.manager;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.View;
+import android.widget.TextView;
+
+import androidx.annotation.OptIn;
+import androidx.media3.common.C;
+import androidx.media3.common.MediaItem;
+import androidx.media3.common.MimeTypes;
+import androidx.media3.common.PlaybackException;
+import androidx.media3.common.Player;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.datasource.HttpDataSource;
+import androidx.media3.exoplayer.DefaultLoadControl;
+import androidx.media3.exoplayer.ExoPlayer;
+import androidx.media3.exoplayer.hls.HlsMediaSource;
+import androidx.media3.exoplayer.trackselection.DefaultTrackSelector;
+import androidx.media3.ui.PlayerView;
+
+/**
+ * Muted, low-resolution live preview of the focused channel in MainActivity.
+ * One ExoPlayer is shared by every row and only started after focus has
+ * dwelled on a row; moving focus cancels it straight away.
+ */
+public class ChannelPreview {
+
+    private static final String TAG = "ChannelPreview";
+
+    // Focus must stay on a row this long before the preview starts
+    private static final long DWELL_MS = 1_200;
+
+    private final Context context;
+    private final PlayerView previewView;
+    private final TextView previewTitle;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private ExoPlayer player;
+    private HttpDataSource.Factory httpDataSourceFactory;
+    private Runnable pendingStart;
+    private String currentUrl;
+
+    public ChannelPreview(Context context, PlayerView previewView, TextView previewTitle) {
+        this.context = context.getApplicationContext();
+        this.previewView = previewView;
+        this.previewTitle = previewTitle;
+        previewView.setUseController(false);
+    }
+
+    /** Schedule a preview of {@code url} once focus has dwelled for {@link #DWELL_MS}. */
+    public void onFocus(String url, String name) {
+        cancel();
+        if (url == null) return;
+        previewTitle.setText(name);
+        pendingStart = () -> start(url);
+        handler.postDelayed(pendingStart, DWELL_MS);
+    }
+
+    /** Cancel a pending preview and stop the current one, freeing its decoder. */
+    public void cancel() {
+        if (pendingStart != null) {
+            handler.removeCallbacks(pendingStart);
+            pendingStart = null;
+        }
+        // Hide the surface so a stopped or failed preview doesn't leave its last frame up
+        previewView.setVisibility(View.INVISIBLE);
+        if (player != null && currentUrl != null) {
+            player.stop();
+            player.clearMediaItems();
+            currentUrl = null;
+        }
+    }
+
+    /** Release the shared player (e.g. before PlayerActivity needs the decoder). */
+    public void release() {
+        cancel();
+        if (player != null) {
+            previewView.setPlayer(null);
+            player.release();
+            player = null;
+            Log.d(TAG, "Preview player released");
+        }
+    }
+
+    @OptIn(markerClass = UnstableApi.class)
+    private void start(String url) {
+        pendingStart = null;
+        if (url.equals(currentUrl)) return;
+        if (player == null) {
+            player = buildPlayer();
+            previewView.setPlayer(player);
+        }
+        currentUrl = url;
+
+        // Fresh factory per preview: it reads the prefetched playlists once and
+        // leaves them for PlayerActivity
+        HlsMediaSource.Factory hlsFactory = new HlsMediaSource.Factory(
+                new PrefetchDataSource.Factory(httpDataSourceFactory, true))
+                .setAllowChunklessPreparation(true);
+        MediaItem item = new MediaItem.Builder()
+                .setUri(Uri.parse(url))
+                .setMimeType(MimeTypes.APPLICATION_M3U8)
+                .build();
+        player.setMediaSource(hlsFactory.createMediaSource(item));
+        player.setPlayWhenReady(true);
+        player.prepare();
+        previewView.setVisibility(View.VISIBLE);
+        Log.d(TAG, "Preview started");
+    }
+
+    /**
+     * Build the shared preview player under a strict budget: lowest HLS variant,
+     * SD cap, audio and text renderers disabled, and a few seconds / 2MB of buffer.
+     */
+    @OptIn(markerClass = UnstableApi.class)
+    private ExoPlayer buildPlayer() {
+        DefaultLoadControl loadControl = new DefaultLoadControl.Builder()
+                .setBufferDurationsMs(
+                        2_000,   // minBufferMs
+                        4_000,   // maxBufferMs
+                        500,     // bufferForPlaybackMs
+                        1_000    // bufferForPlaybackAfterRebufferMs
+                )
+                .setTargetBufferBytes(2 * 1024 * 1024)
+                .setPrioritizeTimeOverSizeThresholds(false)
+                .build();
+
+        DefaultTrackSelector trackSelector = new DefaultTrackSelector(context);
+        trackSelector.setParameters(
+                trackSelector.buildUponParameters()
+                        .setForceLowestBitrate(true)
+                        .setMaxVideoSizeSd()
+                        .setTrackTypeDisabled(C.TRACK_TYPE_AUDIO, true)
+                        .setTrackTypeDisabled(C.TRACK_TYPE_TEXT, true)
+                        .build()
+        );
+
+        ExoPlayer exoPlayer = new ExoPlayer.Builder(context)
+                .setLoadControl(loadControl)
+                .setTrackSelector(trackSelector)
+                .setVideoScalingMode(C.VIDEO_SCALING_MODE_SCALE_TO_FIT)
+                .build();
+        exoPlayer.setVolume(0f);
+        exoPlayer.addListener(new Player.Listener() {
+            @Override
+            public void onPlayerError(PlaybackException error) {
+                // Previews are best effort — never retry, just drop it
+                Log.w(TAG, "Preview error: " + error.getMessage());
+                cancel();
+            }
+        });
+
+        httpDataSourceFactory = NetworkStack.getInstance()
+                .mediaDataSourceFactory("IPTV-Manager/Preview", 5_000, 8_000);
+        return exoPlayer;
+    }
+}
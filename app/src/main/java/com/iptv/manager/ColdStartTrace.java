@@ -0,0 +1,236 @@
+package com.iptv.manager;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Named spans for the app's cold start, from process start through
+ * LoginActivity and MainActivity to the first focused channel row. Recording a
+ * span is an array write on the calling thread; nothing is formatted or
+ * written until the trace finishes — when every started span has ended after
+ * the first focused row, or when MainActivity forces it. The trace is then
+ * written on a background thread as Chrome trace-event JSON (open in
+ * chrome://tracing or Perfetto) to {@code files/coldstart/}. The last
+ * {@link #MAX_TRACES} traces are kept, and a one-line summary per start is
+ * appended to {@code history.jsonl} so regressions show up across versions.
+ *
+ * Only the first start of a process is traced.
+ */
+public final class ColdStartTrace {
+
+    private static final String TAG = "ColdStartTrace";
+    private static final String DIR_NAME = "coldstart";
+    private static final String HISTORY_FILE = "history.jsonl";
+    private static final int MAX_TRACES = 10;
+    private static final int MAX_HISTORY = 100;
+    private static final int MAX_SPANS = 16;
+
+    public static final String PROCESS = "process";
+    public static final String LOGIN_CREATE = "login_create";
+    public static final String MAIN_CREATE = "main_create";
+    public static final String FIRST_LAYOUT = "first_layout";
+    public static final String CONFIG = "config";
+    public static final String CHANNELS = "channels";
+    public static final String EPG = "epg";
+    public static final String FIRST_FOCUSED_ROW = "first_focused_row";
+
+    private static final String[] names = new String[MAX_SPANS];
+    private static final long[] startUs = new long[MAX_SPANS];
+    private static final long[] endUs = new long[MAX_SPANS];
+    private static final long[] threadIds = new long[MAX_SPANS];
+    private static int count;
+    private static volatile boolean finished;
+    private static Context appContext;
+
+    static {
+        // The process span starts at fork where the platform tells us, else at class load
+        long originUs = Build.VERSION.SDK_INT >= Build.VERSION_CODES.N
+                ? Process.getStartElapsedRealtime() * 1000
+                : nowUs();
+        names[0] = PROCESS;
+        startUs[0] = originUs;
+        threadIds[0] = Thread.currentThread().getId();
+        count = 1;
+    }
+
+    private ColdStartTrace() {
+    }
+
+    private static long nowUs() {
+        return SystemClock.elapsedRealtimeNanos() / 1000;
+    }
+
+    /** First activity created: closes the process span. Later calls do nothing. */
+    public static synchronized void attach(Context context) {
+        if (appContext != null || finished) return;
+        appContext = context.getApplicationContext();
+        endUs[0] = nowUs();
+    }
+
+    public static synchronized void begin(String name) {
+        if (finished || count == MAX_SPANS || indexOf(name) >= 0) return;
+        names[count] = name;
+        startUs[count] = nowUs();
+        threadIds[count] = Thread.currentThread().getId();
+        count++;
+    }
+
+    public static void end(String name) {
+        if (finished) return;
+        boolean complete;
+        synchronized (ColdStartTrace.class) {
+            int i = indexOf(name);
+            if (i < 0 || endUs[i] != 0) return;
+            endUs[i] = nowUs();
+            complete = isComplete();
+        }
+        if (complete) finish();
+    }
+
+    private static int indexOf(String name) {
+        for (int i = 0; i < count; i++) {
+            if (names[i].equals(name)) return i;
+        }
+        return -1;
+    }
+
+    private static boolean isComplete() {
+        int focus = indexOf(FIRST_FOCUSED_ROW);
+        if (focus < 0 || endUs[focus] == 0) return false;
+        for (int i = 0; i < count; i++) {
+            if (endUs[i] == 0) return false;
+        }
+        return true;
+    }
+
+    /** Stop recording and write what was captured; spans still open are cut here. */
+    public static void finish() {
+        final String[] n;
+        final long[] s;
+        final long[] e;
+        final long[] t;
+        final Context context;
+        synchronized (ColdStartTrace.class) {
+            if (finished || appContext == null) return;
+            finished = true;
+            long now = nowUs();
+            n = Arrays.copyOf(names, count);
+            s = Arrays.copyOf(startUs, count);
+            e = Arrays.copyOf(endUs, count);
+            t = Arrays.copyOf(threadIds, count);
+            for (int i = 0; i < count; i++) {
+                if (e[i] == 0) e[i] = -now;   // negative = cut off at finish
+            }
+            context = appContext;
+        }
+        new Thread(() -> write(context, n, s, e, t), "ColdStartTrace").start();
+    }
+
+    // ── Output ───────────────────────────────────────────────
+
+    private static void write(Context context, String[] n, long[] s, long[] e, long[] t) {
+        try {
+            File dir = new File(context.getFilesDir(), DIR_NAME);
+            if (!dir.exists()) dir.mkdirs();
+            int version = versionCode(context);
+            long origin = s[0];
+            int pid = Process.myPid();
+
+            JSONArray events = new JSONArray();
+            JSONObject durations = new JSONObject();
+            for (int i = 0; i < n.length; i++) {
+                boolean cut = e[i] < 0;
+                long end = Math.abs(e[i]);
+                JSONObject event = new JSONObject()
+                        .put("name", n[i])
+                        .put("cat", "startup")
+                        .put("ph", "X")
+                        .put("ts", s[i] - origin)
+                        .put("dur", end - s[i])
+                        .put("pid", pid)
+                        .put("tid", t[i]);
+                if (cut) event.put("args", new JSONObject().put("incomplete", true));
+                events.put(event);
+                durations.put(n[i], (end - s[i]) / 1000);
+            }
+            JSONObject trace = new JSONObject()
+                    .put("traceEvents", events)
+                    .put("displayTimeUnit", "ms")
+                    .put("metadata", new JSONObject()
+                            .put("versionCode", version)
+                            .put("device", Build.MODEL)
+                            .put("sdk", Build.VERSION.SDK_INT));
+
+            String stamp = System.currentTimeMillis() + "-v" + version;
+            try (FileWriter w = new FileWriter(new File(dir, "trace-" + stamp + ".json"))) {
+                w.write(trace.toString());
+            }
+            pruneTraces(dir);
+
+            JSONObject summary = new JSONObject()
+                    .put("time", System.currentTimeMillis())
+                    .put("versionCode", version)
+                    .put("device", Build.MODEL)
+                    .put("spansMs", durations);
+            appendHistory(new File(dir, HISTORY_FILE), summary.toString());
+            Log.d(TAG, "Cold start v" + version + ": " + durations);
+        } catch (Exception ex) {
+            Log.w(TAG, "Trace write failed: " + ex.getMessage());
+        }
+    }
+
+    private static void pruneTraces(File dir) {
+        File[] traces = dir.listFiles((d, name) -> name.startsWith("trace-") && name.endsWith(".json"));
+        if (traces == null || traces.length <= MAX_TRACES) return;
+        Arrays.sort(traces, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (int i = 0; i < traces.length - MAX_TRACES; i++) {
+            traces[i].delete();
+        }
+    }
+
+    private static void appendHistory(File file, String line) throws Exception {
+        List<String> lines = new ArrayList<>();
+        if (file.exists()) {
+            try (BufferedReader r = new BufferedReader(new FileReader(file))) {
+                String l;
+                while ((l = r.readLine()) != null) {
+                    if (!l.isEmpty()) lines.add(l);
+                }
+            }
+        }
+        lines.add(line);
+        int from = Math.max(0, lines.size() - MAX_HISTORY);
+        try (FileWriter w = new FileWriter(file, false)) {
+            for (int i = from; i < lines.size(); i++) {
+                w.write(lines.get(i));
+                w.write('\n');
+            }
+        }
+    }
+
+    private static int versionCode(Context context) {
+        try {
+            PackageInfo info = context.getPackageManager().getPackageInfo(context.getPackageName(), 0);
+            return Build.VERSION.SDK_INT >= Build.VERSION_CODES.P
+                    ? (int) info.getLongVersionCode()
+                    : info.versionCode;
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+}
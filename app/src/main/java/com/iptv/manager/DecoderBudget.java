@@ -0,0 +1,83 @@
+package com.iptv.manager;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.media.MediaCodecInfo;
+import android.media.MediaCodecList;
+import android.os.Build;
+import android.util.Log;
+
+/**
+ * How many simultaneous video players this device can afford for multiview.
+ * The decoder side comes from the AVC decoders' advertised max instances
+ * (probed once, API 23+); the memory side from the app's heap class, since
+ * every tile keeps its own buffers. The smaller of the two wins, capped at
+ * {@link #MAX_TILES}.
+ */
+public class DecoderBudget {
+
+    private static final String TAG = "DecoderBudget";
+
+    public static final int MAX_TILES = 4;
+    // Rough per-tile share of the Java heap: player, buffers, surface bookkeeping
+    private static final int HEAP_MB_PER_TILE = 48;
+
+    private static int cachedDecoders = -1;
+
+    public final int decoderInstances;
+    public final int memoryTiles;
+    public final int tiles;
+
+    private DecoderBudget(int decoderInstances, int memoryTiles) {
+        this.decoderInstances = decoderInstances;
+        this.memoryTiles = memoryTiles;
+        this.tiles = Math.max(0, Math.min(MAX_TILES, Math.min(decoderInstances, memoryTiles)));
+    }
+
+    public static DecoderBudget probe(Context context) {
+        return new DecoderBudget(probeDecoderInstances(), probeMemoryTiles(context));
+    }
+
+    /** Multiview only makes sense with at least two tiles. */
+    public boolean allowsMultiview() {
+        return tiles >= 2;
+    }
+
+    public String describe() {
+        return "tiles=" + tiles + " decoders=" + decoderInstances + " memory=" + memoryTiles;
+    }
+
+    private static synchronized int probeDecoderInstances() {
+        if (cachedDecoders >= 0) return cachedDecoders;
+        int best = 0;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            try {
+                MediaCodecList list = new MediaCodecList(MediaCodecList.REGULAR_CODECS);
+                for (MediaCodecInfo info : list.getCodecInfos()) {
+                    if (info.isEncoder()) continue;
+                    for (String type : info.getSupportedTypes()) {
+                        if (!"video/avc".equalsIgnoreCase(type)) continue;
+                        int instances = info.getCapabilitiesForType(type).getMaxSupportedInstances();
+                        best = Math.max(best, instances);
+                    }
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "Codec probe failed: " + e.getMessage());
+            }
+        } else {
+            // No instance count before API 23 — assume a conservative pair
+            best = 2;
+        }
+        cachedDecoders = best;
+        Log.d(TAG, "AVC decoder instances: " + best);
+        return best;
+    }
+
+    private static int probeMemoryTiles(Context context) {
+        ActivityManager am = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        if (am == null) return 2;
+        if (am.isLowRamDevice()) return 1;
+        // One tile's worth is already taken by the rest of the app
+        return Math.max(1, am.getMemoryClass() / HEAP_MB_PER_TILE - 1);
+    }
+}
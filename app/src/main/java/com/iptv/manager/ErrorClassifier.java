@@ -0,0 +1,135 @@
+package com.iptv.manager;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.OptIn;
+import androidx.media3.common.PlaybackException;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.datasource.HttpDataSource;
+
+import com.iptv.manager.playback.RecoveryPolicy;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decides how PlayerActivity recovers from a playback error. Errors are
+ * classified from the media3 error code and, for HTTP failures, the response
+ * status — never from message text. Budgets, backoff and the recovery clock
+ * live in {@link RecoveryPolicy} in :core so the HLS fault harness runs the
+ * same policy off-device; this class adds the media3 mapping and records the
+ * time from the first error to playing again per class, so recovery can be
+ * compared across classes.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class ErrorClassifier extends RecoveryPolicy {
+
+    private static final String TAG = "ErrorClassifier";
+    private static final String PREFS_NAME = "error_recovery";
+
+    /** {@code maxRetries} caps every class's budget (e.g. the caller's own retry limit). */
+    public ErrorClassifier(int maxRetries) {
+        super(maxRetries);
+    }
+
+    // ── Classification ───────────────────────────────────────
+
+    public static String classify(PlaybackException error) {
+        HttpDataSource.InvalidResponseCodeException http = findHttpError(error);
+        if (http != null) return classifyStatus(http.responseCode);
+
+        switch (error.errorCode) {
+            case PlaybackException.ERROR_CODE_IO_NETWORK_CONNECTION_FAILED:
+            case PlaybackException.ERROR_CODE_IO_NETWORK_CONNECTION_TIMEOUT:
+            case PlaybackException.ERROR_CODE_IO_UNSPECIFIED:
+            case PlaybackException.ERROR_CODE_TIMEOUT:
+                return CLASS_NETWORK;
+            case PlaybackException.ERROR_CODE_IO_BAD_HTTP_STATUS:
+                return CLASS_SERVER;
+            case PlaybackException.ERROR_CODE_IO_FILE_NOT_FOUND:
+                return CLASS_NOT_FOUND;
+            case PlaybackException.ERROR_CODE_IO_NO_PERMISSION:
+                return CLASS_AUTH;
+            case PlaybackException.ERROR_CODE_IO_INVALID_HTTP_CONTENT_TYPE:
+            case PlaybackException.ERROR_CODE_PARSING_CONTAINER_MALFORMED:
+            case PlaybackException.ERROR_CODE_PARSING_MANIFEST_MALFORMED:
+            case PlaybackException.ERROR_CODE_PARSING_CONTAINER_UNSUPPORTED:
+            case PlaybackException.ERROR_CODE_PARSING_MANIFEST_UNSUPPORTED:
+                return CLASS_CONTENT;
+            case PlaybackException.ERROR_CODE_DECODER_INIT_FAILED:
+            case PlaybackException.ERROR_CODE_DECODER_QUERY_FAILED:
+            case PlaybackException.ERROR_CODE_DECODING_FAILED:
+            case PlaybackException.ERROR_CODE_DECODING_FORMAT_EXCEEDS_CAPABILITIES:
+            case PlaybackException.ERROR_CODE_DECODING_FORMAT_UNSUPPORTED:
+                return CLASS_DECODER;
+            default:
+                return CLASS_UNKNOWN;
+        }
+    }
+
+    private static HttpDataSource.InvalidResponseCodeException findHttpError(Throwable e) {
+        while (e != null) {
+            if (e instanceof HttpDataSource.InvalidResponseCodeException) {
+                return (HttpDataSource.InvalidResponseCodeException) e;
+            }
+            e = e.getCause();
+        }
+        return null;
+    }
+
+    // ── Decisions ────────────────────────────────────────────
+
+    /**
+     * Decide what to do about {@code error}. {@code canFallBack} says whether
+     * another route is still untried.
+     */
+    public Decision decide(PlaybackException error, boolean canFallBack) {
+        Decision decision = decide(classify(error), retryAfterMs(error), canFallBack,
+                SystemClock.elapsedRealtime());
+        Log.d(TAG, "Decision: " + decision);
+        return decision;
+    }
+
+    /** Retry-After in seconds from a 429/503 response, or 0. */
+    private static long retryAfterMs(PlaybackException error) {
+        HttpDataSource.InvalidResponseCodeException http = findHttpError(error);
+        if (http == null) return 0;
+        for (Map.Entry<String, List<String>> header : http.headerFields.entrySet()) {
+            if (!"Retry-After".equalsIgnoreCase(header.getKey()) || header.getValue().isEmpty()) continue;
+            try {
+                return Long.parseLong(header.getValue().get(0).trim()) * 1000;
+            } catch (NumberFormatException e) {
+                return 0;   // HTTP-date form is not worth parsing here
+            }
+        }
+        return 0;
+    }
+
+    // ── Recovery metrics ─────────────────────────────────────
+
+    /**
+     * Playback is ready again. If it was recovering, records the recovery time
+     * under the class of the first error and returns a description for the
+     * debug report; otherwise returns null.
+     */
+    public String onRecovered(Context context, String server) {
+        Recovery recovery = recovered(SystemClock.elapsedRealtime());
+        if (recovery == null) return null;
+        long recoveryMs = recovery.recoveryMs;
+        String errorClass = recovery.errorClass;
+        int steps = recovery.decisions;
+
+        SharedPreferences prefs = context.getApplicationContext()
+                .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        String key = (server != null ? server : "unknown") + "|" + Build.MODEL + "|" + errorClass;
+        Histogram h = Histogram.parse(Histogram.LATENCY_MS_BOUNDS, prefs.getString(key, null));
+        h.add(recoveryMs);
+        prefs.edit().putString(key, h.serialize()).apply();
+        return "class=" + errorClass + " recoveryMs=" + recoveryMs + " decisions=" + steps
+                + " p50=" + h.percentile(50) + " p90=" + h.percentile(90);
+    }
+}
@@ -0,0 +1,94 @@
+package com.iptv.manager;
+
+/**
+ * Fixed-size histogram over caller-supplied bucket upper bounds. Memory use is
+ * constant regardless of sample count; percentiles are approximated by the
+ * upper bound of the bucket they fall in. Serialises to a compact CSV string
+ * for SharedPreferences.
+ */
+public class Histogram {
+
+    /** Millisecond buckets from 25ms to 60s, roughly ×1.5 apart. */
+    public static final long[] LATENCY_MS_BOUNDS = {
+            25, 50, 75, 100, 150, 200, 300, 450, 700, 1_000, 1_500, 2_000,
+            3_000, 4_500, 7_000, 10_000, 15_000, 20_000, 30_000, 60_000
+    };
+
+    private final long[] bounds;
+    private final long[] counts;
+    private long total;
+    private long sum;
+
+    public Histogram(long[] bounds) {
+        this.bounds = bounds;
+        this.counts = new long[bounds.length + 1]; // last bucket = overflow
+    }
+
+    public void add(long value) {
+        int i = 0;
+        while (i < bounds.length && value > bounds[i]) i++;
+        counts[i]++;
+        total++;
+        sum += value;
+    }
+
+    /** Add every sample of {@code other}, which must use the same bounds. */
+    public void merge(Histogram other) {
+        if (other.counts.length != counts.length) return;
+        for (int i = 0; i < counts.length; i++) counts[i] += other.counts[i];
+        total += other.total;
+        sum += other.sum;
+    }
+
+    public long count() {
+        return total;
+    }
+
+    public long mean() {
+        return total > 0 ? sum / total : 0;
+    }
+
+    /** Approximate percentile (0–100), or 0 with no samples. */
+    public long percentile(double p) {
+        if (total == 0) return 0;
+        long rank = (long) Math.ceil(total * p / 100.0);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return i < bounds.length ? bounds[i] : bounds[bounds.length - 1];
+            }
+        }
+        return bounds[bounds.length - 1];
+    }
+
+    /** "sum;c0,c1,..." — paired with {@link #parse}. */
+    public String serialize() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(sum).append(';');
+        for (int i = 0; i < counts.length; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(counts[i]);
+        }
+        return sb.toString();
+    }
+
+    /** Restore from {@link #serialize}; a missing or mismatched string gives an empty histogram. */
+    public static Histogram parse(long[] bounds, String raw) {
+        Histogram h = new Histogram(bounds);
+        if (raw == null) return h;
+        try {
+            int semi = raw.indexOf(';');
+            String[] parts = raw.substring(semi + 1).split(",");
+            if (parts.length != h.counts.length) return h;
+            for (int i = 0; i < parts.length; i++) {
+                h.counts[i] = Long.parseLong(parts[i]);
+                h.total += h.counts[i];
+            }
+            h.sum = Long.parseLong(raw.substring(0, semi));
+        } catch (Exception e) {
+            return new Histogram(bounds);
+        }
+        return h;
+    }
+}
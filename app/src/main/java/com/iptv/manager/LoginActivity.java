@@ -29,6 +29,8 @@ public class LoginActivity extends Activity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        ColdStartTrace.attach(this);
+        ColdStartTrace.begin(ColdStartTrace.LOGIN_CREATE);
 
         requestWindowFeature(Window.FEATURE_NO_TITLE);
         getWindow().setFlags(
@@ -81,6 +83,7 @@ public class LoginActivity extends Activity {
 
         // Focus the server URL field initially
         inputServerUrl.requestFocus();
+        ColdStartTrace.end(ColdStartTrace.LOGIN_CREATE);
     }
 
     private void doLogin() {
@@ -139,6 +142,7 @@ public class LoginActivity extends Activity {
     }
 
     private void launchMain() {
+        ColdStartTrace.end(ColdStartTrace.LOGIN_CREATE);
         Intent intent = new Intent(this, MainActivity.class);
         intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
         startActivity(intent);
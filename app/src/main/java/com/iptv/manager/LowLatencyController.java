@@ -0,0 +1,142 @@
+package com.iptv.manager;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.annotation.OptIn;
+import androidx.media3.common.C;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.DefaultLivePlaybackSpeedControl;
+import androidx.media3.exoplayer.ExoPlayer;
+import androidx.media3.exoplayer.hls.HlsManifest;
+import androidx.media3.exoplayer.hls.playlist.HlsMediaPlaylist;
+
+import com.iptv.manager.playback.PlaybackTuning;
+
+/**
+ * Low-latency HLS mode for PlayerActivity. Media3 already loads partial
+ * segments, follows preload hints and uses blocking playlist reloads when a
+ * media playlist advertises them; what it does not do is move our fixed 5s
+ * live target. This watches each loaded playlist and, once it sees
+ * EXT-X-PART-INF with CAN-BLOCK-RELOAD, overrides the live target to the
+ * playlist's part hold-back (2–3s). Rebuffers widen the target step by step,
+ * and too many of them drop back to the standard target. Standard playlists
+ * never switch mode.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class LowLatencyController {
+
+    private static final String TAG = "LowLatency";
+    private static final String PREFS_NAME = "live_offset_stats";
+
+    public static final String MODE_STANDARD = "standard";
+    public static final String MODE_LOW_LATENCY = "ll";
+
+    private static final long MIN_TARGET_MS = 2_000;
+    private static final long STANDARD_TARGET_MS = PlaybackTuning.LIVE_TARGET_OFFSET_MS;
+    private static final long WIDEN_STEP_MS = 500;
+    private static final int MAX_REBUFFERS = 3;
+    // Jump to live when this far past the target (standard mode uses a flat JUMP_TO_LIVE_MS)
+    private static final long JUMP_MARGIN_MS = 4_000;
+
+    private final DefaultLivePlaybackSpeedControl speedControl;
+    private boolean checked;        // playlist inspected
+    private boolean active;
+    private boolean fellBack;
+    private long targetMs = C.TIME_UNSET;
+    private int rebuffers;
+
+    public LowLatencyController(DefaultLivePlaybackSpeedControl speedControl) {
+        this.speedControl = speedControl;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public String mode() {
+        return active ? MODE_LOW_LATENCY : MODE_STANDARD;
+    }
+
+    /** Overridden live target, or C.TIME_UNSET when the media item's own target applies. */
+    public long targetMs() {
+        return active ? targetMs : C.TIME_UNSET;
+    }
+
+    /** How far behind live a rebuffer may leave us before jumping back to the edge. */
+    public long jumpToLiveThresholdMs() {
+        return active ? targetMs + JUMP_MARGIN_MS : PlaybackTuning.JUMP_TO_LIVE_MS;
+    }
+
+    /**
+     * Call on every timeline change. The first loaded media playlist decides the
+     * mode; returns true only when this call switched to LL mode.
+     */
+    public boolean onTimelineChanged(ExoPlayer player) {
+        if (checked || fellBack) return false;
+        Object manifest = player.getCurrentManifest();
+        if (!(manifest instanceof HlsManifest)) return false;
+        checked = true;
+        HlsMediaPlaylist playlist = ((HlsManifest) manifest).mediaPlaylist;
+        if (playlist.partTargetDurationUs == C.TIME_UNSET || !playlist.serverControl.canBlockReload) {
+            Log.d(TAG, "Standard HLS playlist");
+            return false;
+        }
+
+        long holdBackMs = playlist.serverControl.partHoldBackUs != C.TIME_UNSET
+                ? playlist.serverControl.partHoldBackUs / 1000
+                : 3 * playlist.partTargetDurationUs / 1000;   // spec minimum
+        targetMs = Math.max(MIN_TARGET_MS, Math.min(holdBackMs, STANDARD_TARGET_MS));
+        active = true;
+        speedControl.setTargetLiveOffsetOverrideUs(targetMs * 1000);
+        Log.d(TAG, "LL-HLS detected, part target " + (playlist.partTargetDurationUs / 1000)
+                + "ms, live target " + targetMs + "ms");
+
+        // Start from the new target instead of catching up slowly from 5s
+        long offset = player.getCurrentLiveOffset();
+        if (offset != C.TIME_UNSET && offset > targetMs + 1_000 && player.getDuration() != C.TIME_UNSET) {
+            player.seekTo(Math.max(0, player.getDuration() - targetMs));
+        }
+        return true;
+    }
+
+    /** A rebuffer in LL mode: widen the target, or fall back after too many. */
+    public void onRebuffer() {
+        if (!active) return;
+        rebuffers++;
+        if (rebuffers >= MAX_REBUFFERS) {
+            active = false;
+            fellBack = true;
+            speedControl.setTargetLiveOffsetOverrideUs(C.TIME_UNSET);
+            Log.w(TAG, "Too many rebuffers, back to standard live target");
+            return;
+        }
+        targetMs = Math.min(STANDARD_TARGET_MS, targetMs + WIDEN_STEP_MS);
+        speedControl.setTargetLiveOffsetOverrideUs(targetMs * 1000);
+        Log.d(TAG, "Rebuffer in LL mode, live target now " + targetMs + "ms");
+    }
+
+    public String describe() {
+        return "mode=" + mode() + (fellBack ? " (fell back)" : "")
+                + (targetMs != C.TIME_UNSET ? " targetMs=" + targetMs : "")
+                + " rebuffers=" + rebuffers;
+    }
+
+    /**
+     * Merge this session's live-offset samples into the per-server, per-device
+     * history for the mode that was in effect, and return its percentiles.
+     */
+    public String recordStats(Context context, String server, Histogram liveOffsets) {
+        if (liveOffsets.count() == 0) return "";
+        SharedPreferences prefs = context.getApplicationContext()
+                .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        String key = (server != null ? server : "unknown") + "|" + Build.MODEL + "|"
+                + (fellBack ? "ll_fallback" : mode());
+        Histogram h = Histogram.parse(Histogram.LATENCY_MS_BOUNDS, prefs.getString(key, null));
+        h.merge(liveOffsets);
+        prefs.edit().putString(key, h.serialize()).apply();
+        return "n=" + h.count() + " p50=" + h.percentile(50) + " p90=" + h.percentile(90);
+    }
+}
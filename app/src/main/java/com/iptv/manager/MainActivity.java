@@ -1,25 +1,32 @@
 package com.iptv.manager;
 
+import android.Manifest;
 import android.app.Activity;
 import android.app.AlertDialog;
 import android.content.Intent;
+import android.content.pm.PackageManager;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.KeyEvent;
 import android.view.View;
+import android.view.ViewTreeObserver;
 import android.view.Window;
 import android.view.WindowManager;
 import android.widget.LinearLayout;
 import android.widget.ProgressBar;
 import android.widget.TextView;
+import android.widget.Toast;
 
+import androidx.media3.ui.PlayerView;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.iptv.manager.model.Channel;
+import com.iptv.manager.model.ChannelCatalog;
 import com.iptv.manager.model.EpgEntry;
 import com.iptv.manager.model.ServerConfig;
 
@@ -40,6 +47,8 @@ public class MainActivity extends Activity {
 
     private static final String TAG = "MainActivity";
     private static final long EPG_REFRESH_INTERVAL = 60_000; // 60s
+    private static final int MULTIVIEW_WINDOW = 100; // channels passed to multiview for channel up/down
+    private static final int REQUEST_NOTIFICATIONS = 39;
 
     // UI
     private RecyclerView sidebarRecycler;
@@ -52,13 +61,18 @@ public class MainActivity extends Activity {
     private TextView emptyTitle;
     private TextView emptySubtitle;
     private ProgressBar loadingSpinner;
+    private ChannelPreview channelPreview;
 
     // Data
     private TokenManager tokenManager;
+    private UpdateScheduler updateScheduler;
     private ApiClient apiClient;
     private ServerConfig serverConfig;
+    private RouteHealthStore routeHealth;
+    private BandwidthStore bandwidthStore;
     private boolean isAdmin = false;
     private int lastFocusedChannelPosition = 0;
+    private Channel pendingListen; // waiting on the notification permission prompt
 
     // EPG refresh
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
@@ -67,6 +81,8 @@ public class MainActivity extends Activity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        ColdStartTrace.attach(this);
+        ColdStartTrace.begin(ColdStartTrace.MAIN_CREATE);
 
         requestWindowFeature(Window.FEATURE_NO_TITLE);
         getWindow().setFlags(
@@ -76,10 +92,25 @@ public class MainActivity extends Activity {
         getWindow().addFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
 
         setContentView(R.layout.activity_main);
+        ColdStartTrace.begin(ColdStartTrace.FIRST_LAYOUT);
+        View decor = getWindow().getDecorView();
+        decor.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                decor.getViewTreeObserver().removeOnPreDrawListener(this);
+                ColdStartTrace.end(ColdStartTrace.FIRST_LAYOUT);
+                return true;
+            }
+        });
 
         tokenManager = new TokenManager(this);
         apiClient = ApiClient.getInstance(tokenManager);
         apiClient.setActivity(this);
+        routeHealth = new RouteHealthStore(this);
+        bandwidthStore = new BandwidthStore(this);
+        NetworkStack.getInstance().watchNetworkChanges(this);
+        // Update checks wait for the first list render and an idle UI
+        updateScheduler = new UpdateScheduler(this);
 
         // Sidebar
         sidebarRecycler = findViewById(R.id.sidebar_recycler);
@@ -101,6 +132,11 @@ public class MainActivity extends Activity {
         emptySubtitle = findViewById(R.id.empty_subtitle);
         loadingSpinner = findViewById(R.id.loading_spinner);
 
+        // Focused-channel preview
+        PlayerView previewView = findViewById(R.id.preview_view);
+        TextView previewTitle = findViewById(R.id.preview_title);
+        channelPreview = new ChannelPreview(this, previewView, previewTitle);
+
         // Sidebar actions
         sidebarAdapter.setActionListener(new SidebarAdapter.OnSidebarActionListener() {
             @Override
@@ -137,6 +173,24 @@ public class MainActivity extends Activity {
                 toggleFavourite(channel);
             }
 
+            @Override
+            public void onChannelFocusChanged(Channel channel, boolean hasFocus) {
+                if (hasFocus) {
+                    ColdStartTrace.end(ColdStartTrace.FIRST_FOCUSED_ROW);
+                    String url = buildStartUrl(channel);
+                    channelPreview.onFocus(url, channel.name);
+                    ManifestPrefetcher.getInstance().onFocus(url, bandwidthStore);
+                } else {
+                    channelPreview.cancel();
+                    ManifestPrefetcher.getInstance().cancel();
+                }
+            }
+
+            @Override
+            public void onChannelMenu(Channel channel) {
+                showChannelOptions(channel);
+            }
+
             @Override
             public void onFocusTransferToSidebar() {
                 int pos = sidebarAdapter.findSelectedOrFirstPosition();
@@ -158,19 +212,19 @@ public class MainActivity extends Activity {
         showLoading(true);
         loadData();
 
-        // Check for app updates
-        String url = tokenManager.getBaseUrl();
-        if (url != null) {
-            new AppUpdater(this, url).checkForUpdate();
-        }
+        ColdStartTrace.end(ColdStartTrace.MAIN_CREATE);
+        // Write the cold-start trace even if the list never gets focus (load errors)
+        mainHandler.postDelayed(ColdStartTrace::finish, 20_000);
     }
 
     // ── Data Loading ─────────────────────────────────────────
 
     private void loadData() {
+        ColdStartTrace.begin(ColdStartTrace.CONFIG);
         apiClient.getConfig(new ApiClient.Callback() {
             @Override
             public void onSuccess(JSONObject response) {
+                ColdStartTrace.end(ColdStartTrace.CONFIG);
                 serverConfig = ServerConfig.fromJson(response);
 
                 // Check admin status
@@ -194,6 +248,7 @@ public class MainActivity extends Activity {
 
             @Override
             public void onError(String error) {
+                ColdStartTrace.end(ColdStartTrace.CONFIG);
                 showLoading(false);
                 Log.e(TAG, "Config load failed: " + error);
                 showEmptyState(getString(R.string.error_load_failed), error);
@@ -202,9 +257,11 @@ public class MainActivity extends Activity {
     }
 
     private void loadChannels() {
+        ColdStartTrace.begin(ColdStartTrace.CHANNELS);
         apiClient.getChannels(new ApiClient.Callback() {
             @Override
             public void onSuccess(JSONObject response) {
+                ColdStartTrace.end(ColdStartTrace.CHANNELS);
                 showLoading(false);
                 JSONArray channelsArr = response.optJSONArray("channels");
                 if (channelsArr == null) {
@@ -222,6 +279,7 @@ public class MainActivity extends Activity {
                 }
 
                 channelAdapter.setChannels(channels);
+                ColdStartTrace.begin(ColdStartTrace.FIRST_FOCUSED_ROW);
                 updateSidebar();
                 updateEmptyState();
                 loadEpgForVisibleChannels();
@@ -229,6 +287,7 @@ public class MainActivity extends Activity {
 
             @Override
             public void onError(String error) {
+                ColdStartTrace.end(ColdStartTrace.CHANNELS);
                 showLoading(false);
                 Log.e(TAG, "Channels load failed: " + error);
                 showEmptyState(getString(R.string.error_load_failed), error);
@@ -245,6 +304,7 @@ public class MainActivity extends Activity {
         List<Channel> visible = channelAdapter.getFilteredChannels();
         if (visible.isEmpty()) {
             mainHandler.postDelayed(epgRefreshRunnable, EPG_REFRESH_INTERVAL);
+            updateScheduler.onStartupLoaded();
             return;
         }
 
@@ -256,9 +316,11 @@ public class MainActivity extends Activity {
             sb.append(visible.get(i).channelId);
         }
 
+        ColdStartTrace.begin(ColdStartTrace.EPG);
         apiClient.getEpg(sb.toString(), new ApiClient.Callback() {
             @Override
             public void onSuccess(JSONObject response) {
+                ColdStartTrace.end(ColdStartTrace.EPG);
                 JSONObject epgObj = response.optJSONObject("epg");
                 if (epgObj != null) {
                     Map<String, EpgEntry> epgMap = new HashMap<>();
@@ -274,12 +336,15 @@ public class MainActivity extends Activity {
                 }
                 // Schedule next refresh
                 mainHandler.postDelayed(epgRefreshRunnable, EPG_REFRESH_INTERVAL);
+                updateScheduler.onStartupLoaded();
             }
 
             @Override
             public void onError(String error) {
+                ColdStartTrace.end(ColdStartTrace.EPG);
                 Log.w(TAG, "EPG load failed: " + error);
                 mainHandler.postDelayed(epgRefreshRunnable, EPG_REFRESH_INTERVAL);
+                updateScheduler.onStartupLoaded();
             }
         });
     }
@@ -323,15 +388,15 @@ public class MainActivity extends Activity {
         items.add(SidebarAdapter.SidebarItem.divider());
 
         // Groups — apply saved group order if available
-        List<ChannelAdapter.GroupInfo> groups = channelAdapter.getGroups();
-        Map<String, ChannelAdapter.GroupInfo> groupMap = new HashMap<>();
-        for (ChannelAdapter.GroupInfo g : groups) groupMap.put(g.name, g);
+        List<ChannelCatalog.GroupInfo> groups = channelAdapter.getGroups();
+        Map<String, ChannelCatalog.GroupInfo> groupMap = new HashMap<>();
+        for (ChannelCatalog.GroupInfo g : groups) groupMap.put(g.name, g);
 
-        List<ChannelAdapter.GroupInfo> orderedGroups = new ArrayList<>();
+        List<ChannelCatalog.GroupInfo> orderedGroups = new ArrayList<>();
         if (serverConfig != null && !serverConfig.groupOrder.isEmpty()) {
             // Add groups in saved order first
             for (String name : serverConfig.groupOrder) {
-                ChannelAdapter.GroupInfo g = groupMap.remove(name);
+                ChannelCatalog.GroupInfo g = groupMap.remove(name);
                 if (g != null) orderedGroups.add(g);
             }
             // Append any new groups not in saved order (alphabetical)
@@ -345,7 +410,7 @@ public class MainActivity extends Activity {
             for (String name : names) orderedGroups.add(groupMap.get(name));
         }
 
-        for (ChannelAdapter.GroupInfo g : orderedGroups) {
+        for (ChannelCatalog.GroupInfo g : orderedGroups) {
             items.add(SidebarAdapter.SidebarItem.item(
                     R.drawable.ic_collection, g.name,
                     String.valueOf(g.count),
@@ -377,6 +442,41 @@ public class MainActivity extends Activity {
                 null, "credential", null, false
         ));
 
+        // Buffer profile
+        String bufferSelected = BufferProfile.getSelected(this);
+        String bufferLabel = BufferProfile.AUTO.equals(bufferSelected)
+                ? "Auto (" + BufferProfile.select(this).name + ")"
+                : bufferSelected;
+        items.add(SidebarAdapter.SidebarItem.item(
+                R.drawable.ic_settings, "Buffer: " + bufferLabel,
+                null, "buffer", null, false
+        ));
+
+        // Tunneled playback (hardware A/V sync)
+        // The decoder probe runs in the background and refreshes the sidebar when done
+        String tunnelingLabel = TunnelingMode.OFF.equals(TunnelingMode.getSelected(this))
+                ? "Off"
+                : TunnelingMode.getSupported(this, this::updateSidebar) == null
+                ? "Auto (checking)"
+                : "Auto (" + (TunnelingMode.shouldEnable(this) ? "on" : "off") + ")";
+        items.add(SidebarAdapter.SidebarItem.item(
+                R.drawable.ic_settings, "Tunneling: " + tunnelingLabel,
+                null, "tunneling", null, false
+        ));
+
+        // Timeshift (live pause / rewind cache)
+        int timeshiftMb = TimeshiftCache.getMaxMb(this);
+        items.add(SidebarAdapter.SidebarItem.item(
+                R.drawable.ic_history, "Timeshift: " + (timeshiftMb > 0 ? timeshiftMb + " MB" : "Off"),
+                null, "timeshift", null, false
+        ));
+
+        // App update check interval
+        items.add(SidebarAdapter.SidebarItem.item(
+                R.drawable.ic_settings, "Updates: every " + UpdateScheduler.getIntervalHours(this) + "h",
+                null, "updates", null, false
+        ));
+
         // Divider
         items.add(SidebarAdapter.SidebarItem.divider());
 
@@ -457,6 +557,22 @@ public class MainActivity extends Activity {
                 showCredentialSelector();
                 break;
 
+            case "updates":
+                showUpdateIntervalSelector();
+                break;
+
+            case "timeshift":
+                showTimeshiftSelector();
+                break;
+
+            case "buffer":
+                showBufferProfileSelector();
+                break;
+
+            case "tunneling":
+                showTunnelingSelector();
+                break;
+
             case "manage":
             case "password":
             case "admin":
@@ -471,48 +587,200 @@ public class MainActivity extends Activity {
 
     // ── Playback ─────────────────────────────────────────────
 
-    private void playChannel(Channel channel) {
-        if (serverConfig == null) return;
+    /** Build the direct stream URL for a channel, or null if no server/credential is active. */
+    private String buildDirectUrl(Channel channel) {
+        if (serverConfig == null) return null;
 
         String server = serverConfig.getActiveServer();
         ServerConfig.CredentialInfo cred = serverConfig.getActiveCredential();
-        if (server == null || cred == null) return;
-
-        // Remember position for focus restore
-        View focused = channelRecycler.getFocusedChild();
-        if (focused != null) {
-            lastFocusedChannelPosition = channelRecycler.getChildAdapterPosition(focused);
-        }
+        if (server == null || cred == null) return null;
 
-        // Build direct stream URL
         String proto = server.startsWith("cf.") ? "https" : "http";
-        String directUrl = proto + "://" + server + "/live/" + cred.username + "/" + cred.password + "/" + channel.channelId + ".m3u8";
+        return proto + "://" + server + "/live/" + cred.username + "/" + cred.password + "/" + channel.channelId + ".m3u8";
+    }
 
-        // Build proxy fallback URL: /api/proxy/hls?url=...&token=...&channel_name=...
+    /** Proxy fallback URL: /api/proxy/hls?url=...&token=...&channel_name=... */
+    private String buildProxyUrl(String directUrl, Channel channel) {
         String baseUrl = tokenManager.getBaseUrl();
         String token = tokenManager.getToken();
-        String fallbackUrl;
         try {
-            fallbackUrl = baseUrl + "/api/proxy/hls?url="
+            return baseUrl + "/api/proxy/hls?url="
                     + java.net.URLEncoder.encode(directUrl, "UTF-8")
                     + "&token=" + java.net.URLEncoder.encode(token, "UTF-8")
                     + "&channel_name=" + java.net.URLEncoder.encode(channel.name, "UTF-8");
         } catch (Exception e) {
-            fallbackUrl = baseUrl + "/api/proxy/hls?url=" + directUrl + "&token=" + token;
+            return baseUrl + "/api/proxy/hls?url=" + directUrl + "&token=" + token;
+        }
+    }
+
+    /**
+     * URL playChannel starts on for this channel: the proxy URL when route
+     * history says to start on the proxy, otherwise the direct one. Focus
+     * prefetches and previews this URL so the player finds it cached.
+     */
+    private String buildStartUrl(Channel channel) {
+        String directUrl = buildDirectUrl(channel);
+        if (directUrl == null) return null;
+        RouteHealthStore.Decision route = routeHealth.decide(serverConfig.getActiveServer(), channel.channelId);
+        return RouteHealthStore.ROUTE_PROXY.equals(route.startRoute)
+                ? buildProxyUrl(directUrl, channel)
+                : directUrl;
+    }
+
+    private void playChannel(Channel channel) {
+        long clickTime = SystemClock.elapsedRealtime();
+        String directUrl = buildDirectUrl(channel);
+        if (directUrl == null) return;
+
+        // Remember position for focus restore
+        View focused = channelRecycler.getFocusedChild();
+        if (focused != null) {
+            lastFocusedChannelPosition = channelRecycler.getChildAdapterPosition(focused);
         }
 
+        // Free the preview decoder before the full player starts
+        channelPreview.release();
+
+        // Background audio would fight the full player for audio focus
+        AudioPlaybackService.stop(this);
+
+        String baseUrl = tokenManager.getBaseUrl();
+        String fallbackUrl = buildProxyUrl(directUrl, channel);
+
+        // Route history decides which URL goes first and how hard to retry it
+        String server = serverConfig.getActiveServer();
+        RouteHealthStore.Decision route = routeHealth.decide(server, channel.channelId);
+        boolean proxyFirst = RouteHealthStore.ROUTE_PROXY.equals(route.startRoute);
+
         Intent intent = new Intent(this, PlayerActivity.class);
-        intent.putExtra(PlayerActivity.EXTRA_URL, directUrl);
+        intent.putExtra(PlayerActivity.EXTRA_URL, proxyFirst ? fallbackUrl : directUrl);
         intent.putExtra(PlayerActivity.EXTRA_NAME, channel.name);
         intent.putExtra(PlayerActivity.EXTRA_TOKEN, tokenManager.getToken());
         intent.putExtra(PlayerActivity.EXTRA_BASE_URL, baseUrl);
-        intent.putExtra(PlayerActivity.EXTRA_FALLBACK_URL, fallbackUrl);
+        intent.putExtra(PlayerActivity.EXTRA_FALLBACK_URL, proxyFirst ? directUrl : fallbackUrl);
+        intent.putExtra(PlayerActivity.EXTRA_ROUTE_RACE, route.race);
+        intent.putExtra(PlayerActivity.EXTRA_SERVER, server);
+        intent.putExtra(PlayerActivity.EXTRA_CHANNEL_ID, channel.channelId);
+        intent.putExtra(PlayerActivity.EXTRA_MAX_RETRIES, route.maxRetries);
+        intent.putExtra(PlayerActivity.EXTRA_CLICK_TIME, clickTime);
         startActivity(intent);
 
         // Track as recent
         apiClient.addRecent(channel.channelId, channel.name, channel.group, null);
     }
 
+    // ── Channel options / Multiview ──────────────────────────
+
+    private void showChannelOptions(Channel channel) {
+        String playingAudio = AudioPlaybackService.getNowPlaying();
+        List<String> items = new ArrayList<>();
+        items.add(getString(R.string.option_play));
+        items.add(getString(R.string.option_listen));
+        items.add(getString(R.string.option_multiview));
+        items.add(getString(channel.favourite ? R.string.option_unfavourite : R.string.option_favourite));
+        if (playingAudio != null) {
+            items.add(getString(R.string.option_stop_audio, playingAudio));
+        }
+        new AlertDialog.Builder(this, android.R.style.Theme_DeviceDefault_Dialog_Alert)
+                .setTitle(channel.name)
+                .setItems(items.toArray(new String[0]), (dialog, which) -> {
+                    switch (which) {
+                        case 0:
+                            playChannel(channel);
+                            break;
+                        case 1:
+                            listenToChannel(channel);
+                            break;
+                        case 2:
+                            startMultiview(channel);
+                            break;
+                        case 3:
+                            toggleFavourite(channel);
+                            break;
+                        case 4:
+                            AudioPlaybackService.stop(this);
+                            break;
+                    }
+                })
+                .show();
+    }
+
+    /**
+     * Audio-only playback in the background service; the channel list stays usable.
+     * On API 33+ the service's notification (and its Stop action) only shows with
+     * POST_NOTIFICATIONS, so ask for it first. Playback starts either way.
+     */
+    private void listenToChannel(Channel channel) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                && checkSelfPermission(Manifest.permission.POST_NOTIFICATIONS) != PackageManager.PERMISSION_GRANTED) {
+            pendingListen = channel;
+            requestPermissions(new String[]{Manifest.permission.POST_NOTIFICATIONS}, REQUEST_NOTIFICATIONS);
+            return;
+        }
+        startListening(channel);
+    }
+
+    @Override
+    public void onRequestPermissionsResult(int requestCode, String[] permissions, int[] grantResults) {
+        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+        if (requestCode != REQUEST_NOTIFICATIONS || pendingListen == null) return;
+        Channel channel = pendingListen;
+        pendingListen = null;
+        startListening(channel);
+    }
+
+    private void startListening(Channel channel) {
+        String directUrl = buildDirectUrl(channel);
+        if (directUrl == null) return;
+        channelPreview.release();
+        String server = serverConfig.getActiveServer();
+        RouteHealthStore.Decision route = routeHealth.decide(server, channel.channelId);
+        String proxyUrl = buildProxyUrl(directUrl, channel);
+        boolean proxyFirst = RouteHealthStore.ROUTE_PROXY.equals(route.startRoute);
+        Telemetry.get(this).configure(tokenManager.getBaseUrl(), tokenManager.getToken());
+        AudioPlaybackService.play(this,
+                proxyFirst ? proxyUrl : directUrl,
+                proxyFirst ? directUrl : proxyUrl,
+                channel.name);
+        apiClient.addRecent(channel.channelId, channel.name, channel.group, null);
+    }
+
+    /**
+     * Open multiview on {@code channel} and the channels after it in the current
+     * list. Only a window of the list is passed so the intent stays small.
+     */
+    private void startMultiview(Channel channel) {
+        DecoderBudget budget = DecoderBudget.probe(this);
+        if (!budget.allowsMultiview()) {
+            Log.d(TAG, "Multiview not available: " + budget.describe());
+            Toast.makeText(this, getString(R.string.multiview_unavailable), Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        List<Channel> list = channelAdapter.getFilteredChannels();
+        int start = Math.max(0, list.indexOf(channel));
+        ArrayList<String> urls = new ArrayList<>();
+        ArrayList<String> names = new ArrayList<>();
+        for (int i = 0; i < list.size() && urls.size() < MULTIVIEW_WINDOW; i++) {
+            Channel ch = list.get((start + i) % list.size());
+            String url = buildDirectUrl(ch);
+            if (url == null) continue;
+            urls.add(url);
+            names.add(ch.name);
+        }
+        if (urls.isEmpty()) return;
+
+        channelPreview.release();
+        AudioPlaybackService.stop(this);
+        Intent intent = new Intent(this, MultiviewActivity.class);
+        intent.putStringArrayListExtra(MultiviewActivity.EXTRA_URLS, urls);
+        intent.putStringArrayListExtra(MultiviewActivity.EXTRA_NAMES, names);
+        intent.putExtra(MultiviewActivity.EXTRA_START_INDEX, 0);
+        intent.putExtra(MultiviewActivity.EXTRA_TOKEN, tokenManager.getToken());
+        intent.putExtra(MultiviewActivity.EXTRA_BASE_URL, tokenManager.getBaseUrl());
+        startActivity(intent);
+    }
+
     // ── Favourite Toggle ─────────────────────────────────────
 
     private void toggleFavourite(Channel channel) {
@@ -602,6 +870,98 @@ public class MainActivity extends Activity {
                 .show();
     }
 
+    private void showBufferProfileSelector() {
+        String current = BufferProfile.getSelected(this);
+        String[] names = new String[BufferProfile.ALL.length + 1];
+        String[] items = new String[names.length];
+        names[0] = BufferProfile.AUTO;
+        items[0] = "Auto";
+        for (int i = 0; i < BufferProfile.ALL.length; i++) {
+            names[i + 1] = BufferProfile.ALL[i].name;
+            items[i + 1] = BufferProfile.describeStats(this, BufferProfile.ALL[i]);
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(current)) {
+                items[i] += " ✓";
+            }
+        }
+
+        new AlertDialog.Builder(this, android.R.style.Theme_DeviceDefault_Dialog_Alert)
+                .setTitle(getString(R.string.select_buffer_profile))
+                .setItems(items, (dialog, which) -> {
+                    BufferProfile.setSelected(this, names[which]);
+                    updateSidebar();
+                })
+                .show();
+    }
+
+    private void showTunnelingSelector() {
+        String current = TunnelingMode.getSelected(this);
+        String[] names = {TunnelingMode.AUTO, TunnelingMode.OFF};
+        Boolean supported = TunnelingMode.getSupported(this, null);
+        String[] items = {
+                supported == null ? "Auto (checking this device)"
+                        : supported ? "Auto — " + TunnelingMode.describeMode(this, TunnelingMode.MODE_TUNNELED)
+                        : "Auto (not supported by this device)",
+                "Off — " + TunnelingMode.describeMode(this, TunnelingMode.MODE_NORMAL)
+        };
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(current)) {
+                items[i] += " ✓";
+            }
+        }
+
+        new AlertDialog.Builder(this, android.R.style.Theme_DeviceDefault_Dialog_Alert)
+                .setTitle(getString(R.string.select_tunneling))
+                .setItems(items, (dialog, which) -> {
+                    TunnelingMode.setSelected(this, names[which]);
+                    updateSidebar();
+                })
+                .show();
+    }
+
+    private void showUpdateIntervalSelector() {
+        int current = UpdateScheduler.getIntervalHours(this);
+        int[] choices = UpdateScheduler.INTERVAL_CHOICES_HOURS;
+        String[] items = new String[choices.length];
+        for (int i = 0; i < choices.length; i++) {
+            items[i] = "Every " + choices[i] + "h";
+            if (choices[i] == current) {
+                items[i] += " ✓";
+            }
+        }
+
+        new AlertDialog.Builder(this, android.R.style.Theme_DeviceDefault_Dialog_Alert)
+                .setTitle(getString(R.string.select_update_interval))
+                .setItems(items, (dialog, which) -> {
+                    UpdateScheduler.setIntervalHours(this, choices[which]);
+                    updateSidebar();
+                })
+                .show();
+    }
+
+    private void showTimeshiftSelector() {
+        int current = TimeshiftCache.getMaxMb(this);
+        int[] choices = TimeshiftCache.SIZE_CHOICES_MB;
+        String[] items = new String[choices.length];
+        for (int i = 0; i < choices.length; i++) {
+            items[i] = choices[i] > 0
+                    ? choices[i] + " MB (about " + TimeshiftCache.getEstimatedMinutes(this, choices[i]) + " min of HD)"
+                    : "Off";
+            if (choices[i] == current) {
+                items[i] += " ✓";
+            }
+        }
+
+        new AlertDialog.Builder(this, android.R.style.Theme_DeviceDefault_Dialog_Alert)
+                .setTitle(getString(R.string.select_timeshift))
+                .setItems(items, (dialog, which) -> {
+                    TimeshiftCache.setMaxMb(this, choices[which]);
+                    updateSidebar();
+                })
+                .show();
+    }
+
     // ── Logout ───────────────────────────────────────────────
 
     private void showLogoutConfirm() {
@@ -792,17 +1152,21 @@ public class MainActivity extends Activity {
 
         // Restart EPG refresh
         mainHandler.postDelayed(epgRefreshRunnable, EPG_REFRESH_INTERVAL);
+        updateScheduler.arm();
     }
 
     @Override
     protected void onPause() {
         mainHandler.removeCallbacks(epgRefreshRunnable);
+        updateScheduler.cancel();
+        channelPreview.release();
         super.onPause();
     }
 
     @Override
     protected void onDestroy() {
         mainHandler.removeCallbacks(epgRefreshRunnable);
+        channelPreview.release();
         super.onDestroy();
     }
 }
@@ -0,0 +1,316 @@
+package com.iptv.manager;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+
+/**
+ * Prefetches the HLS master and media playlists for the focused channel row
+ * once D-pad focus has dwelled on it, and keeps them in a small in-memory cache
+ * that PlayerActivity reads through {@link PrefetchDataSource}. Only one
+ * prefetch runs at a time, moving focus cancels it, and a per-minute cap keeps
+ * fast scrolling from flooding the network.
+ */
+public class ManifestPrefetcher {
+
+    private static final String TAG = "ManifestPrefetcher";
+    private static ManifestPrefetcher instance;
+
+    private static final long DWELL_MS = 600;
+    private static final long MASTER_MAX_AGE_MS = 30_000;
+    private static final long MEDIA_MAX_AGE_CAP_MS = 6_000;
+    private static final int MAX_ENTRIES = 8;
+    private static final int MAX_PREFETCHES_PER_MINUTE = 12;
+    private static final int MAX_PLAYLIST_BYTES = 512 * 1024;
+    // ABR keeps this fraction of the estimate for video, mirror it when guessing the variant
+    private static final float BANDWIDTH_FRACTION = 0.7f;
+
+    /**
+     * Playlist bytes and the URL they were finally served from. Panels usually
+     * redirect to an edge host, and relative URIs inside the playlist resolve
+     * against that final URL, not the one that was requested.
+     */
+    static class Playlist {
+        final byte[] data;
+        final String url;
+
+        Playlist(byte[] data, String url) {
+            this.data = data;
+            this.url = url;
+        }
+    }
+
+    private static class Entry {
+        final Playlist playlist;
+        final long expiresAt;
+
+        Entry(Playlist playlist, long expiresAt) {
+            this.playlist = playlist;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final Map<String, Entry> cache = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private Runnable pendingPrefetch;
+    private Future<?> inFlight;
+    private volatile Call activeCall;
+    private long windowStart = 0;
+    private int windowCount = 0;
+
+    private ManifestPrefetcher() {
+    }
+
+    public static synchronized ManifestPrefetcher getInstance() {
+        if (instance == null) {
+            instance = new ManifestPrefetcher();
+        }
+        return instance;
+    }
+
+    // ── Focus tracking (main thread) ─────────────────────────
+
+    /**
+     * Schedule a prefetch of {@code masterUrl} after the focus dwell. The saved
+     * bandwidth estimate is used to guess which variant playback will start on.
+     */
+    public void onFocus(String masterUrl, BandwidthStore bandwidthStore) {
+        cancel();
+        if (masterUrl == null || getFresh(masterUrl) != null) return;
+        pendingPrefetch = () -> start(masterUrl, bandwidthStore);
+        mainHandler.postDelayed(pendingPrefetch, DWELL_MS);
+    }
+
+    /** Cancel the pending or in-flight prefetch. */
+    public void cancel() {
+        if (pendingPrefetch != null) {
+            mainHandler.removeCallbacks(pendingPrefetch);
+            pendingPrefetch = null;
+        }
+        if (inFlight != null) {
+            inFlight.cancel(true);
+            inFlight = null;
+        }
+        Call call = activeCall;
+        if (call != null) call.cancel();
+    }
+
+    private void start(String masterUrl, BandwidthStore bandwidthStore) {
+        pendingPrefetch = null;
+        long now = SystemClock.elapsedRealtime();
+        if (now - windowStart > 60_000) {
+            windowStart = now;
+            windowCount = 0;
+        }
+        if (windowCount >= MAX_PREFETCHES_PER_MINUTE) {
+            Log.d(TAG, "Prefetch cap reached, skipping");
+            return;
+        }
+        windowCount++;
+        inFlight = executor.submit(() -> prefetch(masterUrl, bandwidthStore));
+    }
+
+    // ── Cache ────────────────────────────────────────────────
+
+    /**
+     * Store a playlist fetched elsewhere (e.g. by the start-up route race) under
+     * the URL that was requested; {@code finalUrl} is where it came from after
+     * redirects.
+     */
+    public void put(String url, String finalUrl, byte[] data, long maxAgeMs) {
+        synchronized (cache) {
+            cache.put(url, new Entry(new Playlist(data, finalUrl), SystemClock.elapsedRealtime() + maxAgeMs));
+        }
+    }
+
+    /** Store a master playlist with the default freshness. */
+    public void putMaster(String url, String finalUrl, byte[] data) {
+        put(url, finalUrl, data, MASTER_MAX_AGE_MS);
+    }
+
+    /** Fresh cached playlist for {@code url}, or null. */
+    Playlist getFresh(String url) {
+        synchronized (cache) {
+            Entry e = cache.get(url);
+            if (e == null) return null;
+            if (SystemClock.elapsedRealtime() > e.expiresAt) {
+                cache.remove(url);
+                return null;
+            }
+            return e.playlist;
+        }
+    }
+
+    /**
+     * Remove and return the fresh playlist for {@code url}. One-shot, so a live
+     * playlist reload after the first load always goes to the network.
+     */
+    Playlist take(String url) {
+        synchronized (cache) {
+            Playlist playlist = getFresh(url);
+            if (playlist != null) cache.remove(url);
+            return playlist;
+        }
+    }
+
+    private void pruneExpired() {
+        long now = SystemClock.elapsedRealtime();
+        synchronized (cache) {
+            Iterator<Entry> it = cache.values().iterator();
+            while (it.hasNext()) {
+                if (now > it.next().expiresAt) it.remove();
+            }
+        }
+    }
+
+    // ── Fetching (executor thread) ───────────────────────────
+
+    private void prefetch(String masterUrl, BandwidthStore bandwidthStore) {
+        try {
+            pruneExpired();
+            long startedAt = SystemClock.elapsedRealtime();
+            Playlist master = fetch(masterUrl);
+            String masterText = new String(master.data, StandardCharsets.UTF_8);
+            if (!masterText.trim().startsWith("#EXTM3U")) return;
+
+            if (masterText.contains("#EXTINF")) {
+                // Already a media playlist — nothing further to fetch
+                put(masterUrl, master.url, master.data, mediaMaxAge(masterText));
+                return;
+            }
+            putMaster(masterUrl, master.url, master.data);
+
+            String variant = pickVariant(masterText, bandwidthStore.getInitialEstimate(masterUrl));
+            if (variant == null || Thread.currentThread().isInterrupted()) return;
+            // Resolve against where the master came from, as the player will
+            String mediaUrl = URI.create(master.url).resolve(variant).toString();
+            Playlist media = fetch(mediaUrl);
+            String mediaText = new String(media.data, StandardCharsets.UTF_8);
+            put(mediaUrl, media.url, media.data, mediaMaxAge(mediaText));
+            Log.d(TAG, "Prefetched master + media in " + (SystemClock.elapsedRealtime() - startedAt) + "ms");
+        } catch (Exception e) {
+            if (!Thread.currentThread().isInterrupted()) {
+                Log.d(TAG, "Prefetch failed: " + e.getMessage());
+            }
+        } finally {
+            activeCall = null;
+        }
+    }
+
+    private Playlist fetch(String url) throws Exception {
+        OkHttpClient client = NetworkStack.getInstance().client(NetworkStack.PRIORITY_INTERACTIVE)
+                .newBuilder()
+                .connectTimeout(5, TimeUnit.SECONDS)
+                .readTimeout(5, TimeUnit.SECONDS)
+                .build();
+        Call call = client.newCall(NetworkStack.request(url).build());
+        activeCall = call;
+        try (Response response = call.execute()) {
+            if (response.code() != 200 || response.body() == null) {
+                throw new Exception("Response code: " + response.code());
+            }
+            InputStream is = response.body().byteStream();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int len;
+            while ((len = is.read(buf)) != -1) {
+                out.write(buf, 0, len);
+                if (out.size() > MAX_PLAYLIST_BYTES) throw new Exception("Playlist too large");
+            }
+            return new Playlist(out.toByteArray(), response.request().url().toString());
+        }
+    }
+
+    /**
+     * Pick the variant adaptive bitrate is most likely to start on: the highest
+     * BANDWIDTH that fits the estimate, or the lowest one if there is no estimate.
+     */
+    static String pickVariant(String master, long bandwidthEstimate) {
+        String best = null;
+        long bestBandwidth = -1;
+        String lowest = null;
+        long lowestBandwidth = Long.MAX_VALUE;
+        long budget = (long) (bandwidthEstimate * BANDWIDTH_FRACTION);
+
+        String[] lines = master.split("\n");
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i].trim();
+            if (!line.startsWith("#EXT-X-STREAM-INF")) continue;
+            long bandwidth = parseAttribute(line, "BANDWIDTH");
+            String uri = null;
+            for (int j = i + 1; j < lines.length; j++) {
+                String next = lines[j].trim();
+                if (!next.isEmpty() && !next.startsWith("#")) {
+                    uri = next;
+                    break;
+                }
+            }
+            if (uri == null) continue;
+            if (bandwidth < lowestBandwidth) {
+                lowestBandwidth = bandwidth;
+                lowest = uri;
+            }
+            if (budget > 0 && bandwidth <= budget && bandwidth > bestBandwidth) {
+                bestBandwidth = bandwidth;
+                best = uri;
+            }
+        }
+        return best != null ? best : lowest;
+    }
+
+    private static long parseAttribute(String line, String name) {
+        int idx = line.indexOf(name + "=");
+        if (idx < 0) return 0;
+        int start = idx + name.length() + 1;
+        int end = start;
+        while (end < line.length() && Character.isDigit(line.charAt(end))) end++;
+        try {
+            return Long.parseLong(line.substring(start, end));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /** A live media playlist is only good for about one target duration. */
+    private static long mediaMaxAge(String playlist) {
+        long target = parseTargetDuration(playlist);
+        return target > 0 ? Math.min(target * 1000, MEDIA_MAX_AGE_CAP_MS) : MEDIA_MAX_AGE_CAP_MS;
+    }
+
+    private static long parseTargetDuration(String playlist) {
+        for (String line : playlist.split("\n")) {
+            line = line.trim();
+            if (line.startsWith("#EXT-X-TARGETDURATION:")) {
+                try {
+                    return Long.parseLong(line.substring("#EXT-X-TARGETDURATION:".length()).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+}
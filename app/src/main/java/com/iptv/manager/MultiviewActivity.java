@@ -0,0 +1,268 @@
+package com.iptv.manager;
+
+import android.app.Activity;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.KeyEvent;
+import android.view.View;
+import android.view.Window;
+import android.view.WindowManager;
+import android.widget.TextView;
+
+import androidx.annotation.OptIn;
+import androidx.media3.common.C;
+import androidx.media3.common.MediaItem;
+import androidx.media3.common.MimeTypes;
+import androidx.media3.common.PlaybackException;
+import androidx.media3.common.Player;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.datasource.HttpDataSource;
+import androidx.media3.exoplayer.DefaultLoadControl;
+import androidx.media3.exoplayer.ExoPlayer;
+import androidx.media3.exoplayer.hls.HlsMediaSource;
+import androidx.media3.exoplayer.trackselection.DefaultTrackSelector;
+import androidx.media3.ui.PlayerView;
+
+import java.util.ArrayList;
+
+/**
+ * Plays two to four channels from the current list at once in a 2x2 grid.
+ * The tile count comes from {@link DecoderBudget}. Only the focused tile has
+ * audio and may pick a higher variant; the others are muted, have the audio
+ * renderer disabled and are forced onto the lowest variant. Each tile owns
+ * one player for the life of the activity — changing a tile's channel
+ * (channel up/down) reuses that player rather than building a new one.
+ */
+public class MultiviewActivity extends Activity {
+
+    private static final String TAG = "MultiviewActivity";
+
+    public static final String EXTRA_URLS = "urls";
+    public static final String EXTRA_NAMES = "names";
+    public static final String EXTRA_START_INDEX = "start_index";
+    public static final String EXTRA_TOKEN = "auth_token";
+    public static final String EXTRA_BASE_URL = "base_url";
+
+    private static final int[] TILE_IDS = {R.id.tile_0, R.id.tile_1, R.id.tile_2, R.id.tile_3};
+    private static final int[] VIDEO_IDS = {R.id.tile_0_video, R.id.tile_1_video, R.id.tile_2_video, R.id.tile_3_video};
+    private static final int[] NAME_IDS = {R.id.tile_0_name, R.id.tile_1_name, R.id.tile_2_name, R.id.tile_3_name};
+
+    private static final long RETRY_DELAY_MS = 5_000;
+    private static final int MAX_RETRIES = 3;
+
+    /** One grid cell: its views, its player and which list entry it shows. */
+    private static class Tile {
+        View root;
+        PlayerView video;
+        TextView name;
+        ExoPlayer player;
+        DefaultTrackSelector trackSelector;
+        Player.Listener listener;
+        int channelIndex;
+        int retries;
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Tile[] tiles = new Tile[DecoderBudget.MAX_TILES];
+    private int tileCount;
+    private int audioTile = -1;
+
+    private ArrayList<String> urls;
+    private ArrayList<String> names;
+    private HlsMediaSource.Factory hlsFactory;
+
+    @Override
+    @OptIn(markerClass = UnstableApi.class)
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        requestWindowFeature(Window.FEATURE_NO_TITLE);
+        getWindow().setFlags(
+                WindowManager.LayoutParams.FLAG_FULLSCREEN,
+                WindowManager.LayoutParams.FLAG_FULLSCREEN
+        );
+        getWindow().addFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
+        setContentView(R.layout.activity_multiview);
+
+        urls = getIntent().getStringArrayListExtra(EXTRA_URLS);
+        names = getIntent().getStringArrayListExtra(EXTRA_NAMES);
+        if (urls == null || names == null || urls.isEmpty()) {
+            finish();
+            return;
+        }
+        Telemetry.get(this).configure(
+                getIntent().getStringExtra(EXTRA_BASE_URL), getIntent().getStringExtra(EXTRA_TOKEN));
+
+        DecoderBudget budget = DecoderBudget.probe(this);
+        tileCount = Math.min(budget.tiles, urls.size());
+        Log.d(TAG, "Multiview budget: " + budget.describe() + ", showing " + tileCount);
+        Telemetry.get(this).report(Telemetry.PRIORITY_NORMAL, "multiview", "Multiview started",
+                "budget", budget.describe(), "tiles", String.valueOf(tileCount));
+
+        HttpDataSource.Factory httpFactory = NetworkStack.getInstance()
+                .mediaDataSourceFactory("IPTV-Manager/ExoPlayer", 10_000, 10_000);
+        hlsFactory = new HlsMediaSource.Factory(httpFactory).setAllowChunklessPreparation(true);
+
+        int start = getIntent().getIntExtra(EXTRA_START_INDEX, 0);
+        for (int i = 0; i < DecoderBudget.MAX_TILES; i++) {
+            Tile tile = new Tile();
+            tile.root = findViewById(TILE_IDS[i]);
+            tile.video = findViewById(VIDEO_IDS[i]);
+            tile.name = findViewById(NAME_IDS[i]);
+            tiles[i] = tile;
+            if (i >= tileCount) {
+                tile.root.setVisibility(View.GONE);
+                continue;
+            }
+            final int index = i;
+            tile.root.setOnFocusChangeListener((v, hasFocus) -> {
+                if (hasFocus) setAudioTile(index);
+            });
+            tile.player = buildPlayer(tile);
+            tile.video.setPlayer(tile.player);
+            play(tile, (start + i) % urls.size());
+        }
+        if (tileCount <= 2) {
+            findViewById(R.id.row_bottom).setVisibility(View.GONE);
+        }
+        tiles[0].root.requestFocus();
+        setAudioTile(0);
+    }
+
+    /**
+     * A tile player with a small, fixed memory footprint. Track parameters are
+     * switched later by {@link #setAudioTile}.
+     */
+    @OptIn(markerClass = UnstableApi.class)
+    private ExoPlayer buildPlayer(Tile tile) {
+        DefaultLoadControl loadControl = new DefaultLoadControl.Builder()
+                .setBufferDurationsMs(
+                        4_000,   // minBufferMs
+                        10_000,  // maxBufferMs
+                        1_000,   // bufferForPlaybackMs
+                        2_000    // bufferForPlaybackAfterRebufferMs
+                )
+                .setTargetBufferBytes(6 * 1024 * 1024)
+                .setPrioritizeTimeOverSizeThresholds(false)
+                .build();
+
+        tile.trackSelector = new DefaultTrackSelector(this);
+        ExoPlayer exoPlayer = new ExoPlayer.Builder(this)
+                .setLoadControl(loadControl)
+                .setTrackSelector(tile.trackSelector)
+                .setVideoScalingMode(C.VIDEO_SCALING_MODE_SCALE_TO_FIT)
+                .build();
+        tile.listener = new Player.Listener() {
+            @Override
+            public void onPlaybackStateChanged(int state) {
+                if (state == Player.STATE_READY) tile.retries = 0;
+            }
+
+            @Override
+            public void onPlayerError(PlaybackException error) {
+                Log.w(TAG, "Tile error: " + error.getErrorCodeName());
+                tile.name.setText(names.get(tile.channelIndex) + " — " + error.getErrorCodeName());
+                if (tile.retries < MAX_RETRIES) {
+                    tile.retries++;
+                    int channel = tile.channelIndex;
+                    handler.postDelayed(() -> {
+                        if (tile.player != null && tile.channelIndex == channel) play(tile, channel);
+                    }, RETRY_DELAY_MS);
+                }
+            }
+        };
+        exoPlayer.addListener(tile.listener);
+        return exoPlayer;
+    }
+
+    /** Point a tile at a list entry, reusing its existing player. */
+    @OptIn(markerClass = UnstableApi.class)
+    private void play(Tile tile, int channelIndex) {
+        if (tile.channelIndex != channelIndex) tile.retries = 0;
+        tile.channelIndex = channelIndex;
+        tile.name.setText(names.get(channelIndex));
+        MediaItem item = new MediaItem.Builder()
+                .setUri(Uri.parse(urls.get(channelIndex)))
+                .setMimeType(MimeTypes.APPLICATION_M3U8)
+                .build();
+        tile.player.stop();
+        tile.player.setMediaSource(hlsFactory.createMediaSource(item));
+        tile.player.setPlayWhenReady(true);
+        tile.player.prepare();
+    }
+
+    /** Move audio (and the higher variant cap) to {@code index}; every other tile is muted and lowest-variant. */
+    private void setAudioTile(int index) {
+        if (index == audioTile) return;
+        audioTile = index;
+        for (int i = 0; i < tileCount; i++) {
+            Tile tile = tiles[i];
+            boolean focused = i == index;
+            tile.trackSelector.setParameters(
+                    tile.trackSelector.buildUponParameters()
+                            .setForceLowestBitrate(!focused)
+                            .setMaxVideoSize(focused ? 1280 : 854, focused ? 720 : 480)
+                            .setTrackTypeDisabled(C.TRACK_TYPE_AUDIO, !focused)
+                            .setTrackTypeDisabled(C.TRACK_TYPE_TEXT, true)
+                            .build()
+            );
+            tile.player.setVolume(focused ? 1f : 0f);
+        }
+    }
+
+    @Override
+    public boolean onKeyDown(int keyCode, KeyEvent event) {
+        int step = 0;
+        switch (keyCode) {
+            case KeyEvent.KEYCODE_CHANNEL_UP:
+            case KeyEvent.KEYCODE_PAGE_UP:
+            case KeyEvent.KEYCODE_MEDIA_NEXT:
+                step = 1;
+                break;
+            case KeyEvent.KEYCODE_CHANNEL_DOWN:
+            case KeyEvent.KEYCODE_PAGE_DOWN:
+            case KeyEvent.KEYCODE_MEDIA_PREVIOUS:
+                step = -1;
+                break;
+        }
+        if (step != 0 && audioTile >= 0) {
+            Tile tile = tiles[audioTile];
+            int next = (tile.channelIndex + step + urls.size()) % urls.size();
+            play(tile, next);
+            return true;
+        }
+        return super.onKeyDown(keyCode, event);
+    }
+
+    @Override
+    protected void onPause() {
+        for (int i = 0; i < tileCount; i++) {
+            if (tiles[i].player != null) tiles[i].player.setPlayWhenReady(false);
+        }
+        super.onPause();
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        for (int i = 0; i < tileCount; i++) {
+            if (tiles[i].player != null) tiles[i].player.setPlayWhenReady(true);
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        handler.removeCallbacksAndMessages(null);
+        for (int i = 0; i < tileCount; i++) {
+            Tile tile = tiles[i];
+            if (tile.player == null) continue;
+            tile.video.setPlayer(null);
+            tile.player.removeListener(tile.listener);
+            tile.player.release();
+            tile.player = null;
+        }
+        super.onDestroy();
+    }
+}
@@ -0,0 +1,373 @@
+package com.iptv.manager;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkRequest;
+import android.os.Build;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.OptIn;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.datasource.okhttp.OkHttpDataSource;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Dns;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+/**
+ * The app's single HTTP transport. Every caller — API calls, the updater,
+ * telemetry, playlist prefetch and the route race, and ExoPlayer through an
+ * OkHttp media DataSource — gets a client derived from one OkHttpClient, so
+ * they all share one connection pool (and with it TLS sessions), one DNS cache
+ * and one dispatcher.
+ *
+ * Requests belong to a priority class. Playback requests are never held back.
+ * Interactive requests are limited per host. Background requests have their
+ * own limit ({@link #MAX_BACKGROUND} in total, so also per host) and never
+ * take an interactive slot; they additionally wait (up to
+ * {@link #BACKGROUND_MAX_WAIT_MS}) while any playback transfer is in flight,
+ * so segments always go first. A request counts as in flight until its
+ * response body is closed. Cached DNS answers are dropped whenever the
+ * network changes.
+ */
+public class NetworkStack {
+
+    private static final String TAG = "NetworkStack";
+    private static NetworkStack instance;
+
+    /** Media playlists and segments. */
+    public static final int PRIORITY_PLAYBACK = 0;
+    /** Requests the user is waiting on: API calls, prefetch. */
+    public static final int PRIORITY_INTERACTIVE = 1;
+    /** Telemetry, update checks and downloads. */
+    public static final int PRIORITY_BACKGROUND = 2;
+
+    private static final int MAX_IDLE_CONNECTIONS = 8;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+    /** Interactive requests per host. */
+    private static final int MAX_PER_HOST = 4;
+    /** Background requests in total, hence also per host; separate from the interactive slots. */
+    private static final int MAX_BACKGROUND = 2;
+    private static final long BACKGROUND_MAX_WAIT_MS = 10_000;
+    private static final long DNS_TTL_MS = 5 * 60_000;
+    private static final String USER_AGENT = "IPTV-Manager/ExoPlayer";
+
+    /** Connection timings of the most recent call to a host. -1 = not measured (reused / cached). */
+    public static class HostTiming {
+        public volatile long dnsMs = -1;
+        public volatile long connectMs = -1;
+        public volatile long tlsMs = -1;
+        public volatile boolean reused;
+
+        @Override
+        public String toString() {
+            if (reused) return "conn=reused";
+            return "dns=" + dnsMs + " connect=" + connectMs + (tlsMs >= 0 ? " tls=" + tlsMs : "");
+        }
+    }
+
+    private static class DnsEntry {
+        final List<InetAddress> addresses;
+        final long expiresAt;
+
+        DnsEntry(List<InetAddress> addresses, long expiresAt) {
+            this.addresses = addresses;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final OkHttpClient baseClient;
+    private final OkHttpClient[] clients = new OkHttpClient[3];
+    private final Map<String, DnsEntry> dnsCache = new ConcurrentHashMap<>();
+    private final Map<String, HostTiming> timings = new ConcurrentHashMap<>();
+    private final Map<String, Semaphore> hostPermits = new HashMap<>();
+    private final Semaphore backgroundPermits = new Semaphore(MAX_BACKGROUND);
+    private final AtomicInteger playbackInFlight = new AtomicInteger();
+    private final Object playbackIdle = new Object();
+    private boolean watchingNetwork;
+
+    private NetworkStack() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequestsPerHost(MAX_PER_HOST * 2);
+        baseClient = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .dispatcher(dispatcher)
+                .dns(this::lookup)
+                .eventListenerFactory(call -> new TimingListener())
+                .connectTimeout(10, TimeUnit.SECONDS)
+                .readTimeout(15, TimeUnit.SECONDS)
+                .followRedirects(true)
+                .followSslRedirects(true)
+                .build();
+        for (int p = PRIORITY_PLAYBACK; p <= PRIORITY_BACKGROUND; p++) {
+            clients[p] = baseClient.newBuilder().addInterceptor(new PriorityInterceptor(p)).build();
+        }
+        // Playlist loads (prefetch included) skip the redirect chain to the stream edge
+        for (int p = PRIORITY_PLAYBACK; p <= PRIORITY_INTERACTIVE; p++) {
+            clients[p] = clients[p].newBuilder().addInterceptor(RedirectCache.getInstance()).build();
+        }
+    }
+
+    public static synchronized NetworkStack getInstance() {
+        if (instance == null) {
+            instance = new NetworkStack();
+        }
+        return instance;
+    }
+
+    /**
+     * Client for a priority class. Derive per-call timeouts with
+     * {@code client(p).newBuilder()...build()} — derived clients keep sharing
+     * the pool, DNS cache and dispatcher.
+     */
+    public OkHttpClient client(int priority) {
+        return clients[priority];
+    }
+
+    /** ExoPlayer DataSource over the shared transport, in the playback class. */
+    @OptIn(markerClass = UnstableApi.class)
+    public OkHttpDataSource.Factory mediaDataSourceFactory(String userAgent, long connectTimeoutMs, long readTimeoutMs) {
+        OkHttpClient media = clients[PRIORITY_PLAYBACK].newBuilder()
+                .connectTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS)
+                .readTimeout(readTimeoutMs, TimeUnit.MILLISECONDS)
+                .build();
+        return new OkHttpDataSource.Factory(media)
+                .setUserAgent(userAgent != null ? userAgent : USER_AGENT);
+    }
+
+    /** A request builder with the app's user agent. */
+    public static Request.Builder request(String url) {
+        return new Request.Builder().url(url).header("User-Agent", USER_AGENT);
+    }
+
+    /** Timings of the latest call to {@code host}, or null. */
+    public HostTiming timingFor(String host) {
+        return host != null ? timings.get(host) : null;
+    }
+
+    // ── DNS cache ────────────────────────────────────────────
+
+    private List<InetAddress> lookup(String host) throws UnknownHostException {
+        long now = SystemClock.elapsedRealtime();
+        DnsEntry cached = dnsCache.get(host);
+        if (cached != null && now < cached.expiresAt) {
+            return cached.addresses;
+        }
+        List<InetAddress> addresses = Dns.SYSTEM.lookup(host);
+        dnsCache.put(host, new DnsEntry(addresses, now + DNS_TTL_MS));
+        Log.d(TAG, "DNS " + host + " resolved in " + (SystemClock.elapsedRealtime() - now) + "ms");
+        return addresses;
+    }
+
+    /** Drop cached DNS answers, e.g. after a network change. */
+    public void clearDnsCache() {
+        dnsCache.clear();
+    }
+
+    /**
+     * Clear the DNS cache whenever a network comes or goes, so answers from
+     * the old network (e.g. a LAN resolver's) are not reused. Safe to call
+     * more than once; only the first call registers.
+     */
+    public synchronized void watchNetworkChanges(Context context) {
+        if (watchingNetwork) return;
+        ConnectivityManager cm = (ConnectivityManager) context.getApplicationContext()
+                .getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (cm == null) return;
+        ConnectivityManager.NetworkCallback callback = new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onAvailable(Network network) {
+                clearDnsCache();
+            }
+
+            @Override
+            public void onLost(Network network) {
+                clearDnsCache();
+            }
+        };
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+                cm.registerDefaultNetworkCallback(callback);
+            } else {
+                cm.registerNetworkCallback(new NetworkRequest.Builder()
+                        .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                        .build(), callback);
+            }
+            watchingNetwork = true;
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Network callback not registered: " + e.getMessage());
+        }
+    }
+
+    // ── Priority gate ────────────────────────────────────────
+
+    private Semaphore permitsFor(String host) {
+        synchronized (hostPermits) {
+            Semaphore s = hostPermits.get(host);
+            if (s == null) {
+                s = new Semaphore(MAX_PER_HOST);
+                hostPermits.put(host, s);
+            }
+            return s;
+        }
+    }
+
+    private void awaitPlaybackIdle() throws InterruptedException {
+        long deadline = SystemClock.elapsedRealtime() + BACKGROUND_MAX_WAIT_MS;
+        synchronized (playbackIdle) {
+            while (playbackInFlight.get() > 0) {
+                long left = deadline - SystemClock.elapsedRealtime();
+                if (left <= 0) break;   // never starve background work completely
+                playbackIdle.wait(left);
+            }
+        }
+    }
+
+    private void playbackDone() {
+        if (playbackInFlight.decrementAndGet() == 0) {
+            synchronized (playbackIdle) {
+                playbackIdle.notifyAll();
+            }
+        }
+    }
+
+    /** Applies the priority rules and holds its permits until the response body is closed. */
+    private class PriorityInterceptor implements Interceptor {
+        private final int priority;
+
+        PriorityInterceptor(int priority) {
+            this.priority = priority;
+        }
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            String host = chain.request().url().host();
+            Runnable release;
+            try {
+                if (priority == PRIORITY_PLAYBACK) {
+                    playbackInFlight.incrementAndGet();
+                    release = NetworkStack.this::playbackDone;
+                } else {
+                    if (priority == PRIORITY_BACKGROUND) {
+                        // Its own permits only, so it never holds an interactive slot
+                        awaitPlaybackIdle();
+                        backgroundPermits.acquire();
+                        release = backgroundPermits::release;
+                    } else {
+                        Semaphore hostSem = permitsFor(host);
+                        hostSem.acquire();
+                        release = hostSem::release;
+                    }
+                }
+            } catch (InterruptedException e) {
+                throw new IOException("Interrupted waiting for network slot", e);
+            }
+
+            Runnable once = releaseOnce(release);
+            try {
+                Response response = chain.proceed(chain.request());
+                ResponseBody body = response.body();
+                if (body == null) {
+                    once.run();
+                    return response;
+                }
+                BufferedSource source = Okio.buffer(new ForwardingSource(body.source()) {
+                    @Override
+                    public void close() throws IOException {
+                        once.run();
+                        super.close();
+                    }
+                });
+                return response.newBuilder()
+                        .body(ResponseBody.create(source, body.contentType(), body.contentLength()))
+                        .build();
+            } catch (IOException | RuntimeException e) {
+                once.run();
+                throw e;
+            }
+        }
+    }
+
+    private static Runnable releaseOnce(Runnable release) {
+        AtomicBoolean done = new AtomicBoolean();
+        return () -> {
+            if (done.compareAndSet(false, true)) release.run();
+        };
+    }
+
+    // ── Connection timings ───────────────────────────────────
+
+    /** Per-call listener recording DNS, TCP and TLS times into {@link #timings}. */
+    private class TimingListener extends EventListener {
+        private long dnsStart;
+        private long connectStart;
+        private long tlsStart;
+        private final HostTiming timing = new HostTiming();
+
+        @Override
+        public void dnsStart(Call call, String domainName) {
+            dnsStart = SystemClock.elapsedRealtime();
+        }
+
+        @Override
+        public void dnsEnd(Call call, String domainName, List<InetAddress> addresses) {
+            timing.dnsMs = SystemClock.elapsedRealtime() - dnsStart;
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress address, Proxy proxy) {
+            connectStart = SystemClock.elapsedRealtime();
+        }
+
+        @Override
+        public void secureConnectStart(Call call) {
+            tlsStart = SystemClock.elapsedRealtime();
+        }
+
+        @Override
+        public void secureConnectEnd(Call call, Handshake handshake) {
+            timing.tlsMs = SystemClock.elapsedRealtime() - tlsStart;
+        }
+
+        @Override
+        public void connectEnd(Call call, InetSocketAddress address, Proxy proxy, Protocol protocol) {
+            timing.connectMs = SystemClock.elapsedRealtime() - connectStart;
+        }
+
+        @Override
+        public void connectionAcquired(Call call, Connection connection) {
+            timing.reused = connectStart == 0;
+            timings.put(call.request().url().host(), timing);
+        }
+    }
+}
@@ -9,6 +9,7 @@ import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.KeyEvent;
 import android.view.View;
@@ -23,22 +24,22 @@ import androidx.media3.common.MediaItem;
 import androidx.media3.common.MimeTypes;
 import androidx.media3.common.PlaybackException;
 import androidx.media3.common.Player;
+import androidx.media3.common.Timeline;
 import androidx.media3.common.util.UnstableApi;
-import androidx.media3.datasource.DefaultHttpDataSource;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.HttpDataSource;
+import androidx.media3.exoplayer.DefaultLivePlaybackSpeedControl;
 import androidx.media3.exoplayer.DefaultLoadControl;
 import androidx.media3.exoplayer.ExoPlayer;
+import androidx.media3.exoplayer.analytics.AnalyticsListener;
+import androidx.media3.exoplayer.audio.AudioSink;
 import androidx.media3.exoplayer.hls.HlsMediaSource;
 import androidx.media3.exoplayer.source.BehindLiveWindowException;
 import androidx.media3.exoplayer.trackselection.DefaultTrackSelector;
 import androidx.media3.exoplayer.upstream.DefaultBandwidthMeter;
 import androidx.media3.ui.PlayerView;
 
-import org.json.JSONObject;
-
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
+import com.iptv.manager.playback.PlaybackTuning;
 
 /**
  * Native video player using ExoPlayer for HLS streams.
@@ -55,6 +56,11 @@ public class PlayerActivity extends Activity {
     public static final String EXTRA_TOKEN = "auth_token";
     public static final String EXTRA_BASE_URL = "base_url";
     public static final String EXTRA_FALLBACK_URL = "fallback_url";
+    public static final String EXTRA_ROUTE_RACE = "route_race";
+    public static final String EXTRA_SERVER = "server";
+    public static final String EXTRA_CHANNEL_ID = "channel_id";
+    public static final String EXTRA_MAX_RETRIES = "max_retries";
+    public static final String EXTRA_CLICK_TIME = "click_time";
 
     private ExoPlayer player;
     private PlayerView playerView;
@@ -68,12 +74,9 @@ public class PlayerActivity extends Activity {
     private String baseUrl;
     private String fallbackUrl;
     private int behindLiveRetries = 0;
-    private static final int MAX_BEHIND_LIVE_RETRIES = 3;
 
-    // General error retry with exponential backoff
-    private int errorRetryCount = 0;
-    private static final int MAX_ERROR_RETRIES = 5;
-    private static final long[] RETRY_DELAYS_MS = {1000, 2000, 4000, 8000, 8000};
+    // General error retry — per-class budgets with jittered backoff
+    private ErrorClassifier errorClassifier;
     private final Handler retryHandler = new Handler(Looper.getMainLooper());
 
     // Custom HLS source factory (stored for reuse during retries)
@@ -90,6 +93,49 @@ public class PlayerActivity extends Activity {
     // Player event listener (stored for cleanup)
     private Player.Listener playerListener;
 
+    // Parallel direct-vs-proxy probe at start (null when not racing)
+    private StreamRouteRace routeRace;
+
+    // Timeshift — on-disk segment cache for pause / rewind (null when disabled)
+    private TimeshiftCache timeshiftCache;
+    private static final long TIMESHIFT_SEEK_MS = 10_000;
+
+    // Buffer profile + per-session metrics for comparing profiles
+    private BufferProfile bufferProfile;
+    private DefaultBandwidthMeter bandwidthMeter;
+    private BandwidthStore bandwidthStore;
+    private long sessionStartMs;
+    private long redirectHopsAtStart;
+    private long startupMs;
+    private long firstReadyAtMs;
+    // Last estimate after a measured transfer (0 until one completes), not the store's seed
+    private long measuredBitrateEstimate;
+    private boolean sessionRecorded;
+
+    // Time-to-first-frame phase breakdown
+    private StartupTracer startupTracer;
+
+    // Session QoE: rebuffer ratio, dropped frames, bitrate switches, live offset
+    private final QoeCollector qoe = new QoeCollector();
+    // Requests served per route when single requests fall back to the proxy
+    private final RouteFallbackDataSource.RouteStats routeStats = new RouteFallbackDataSource.RouteStats();
+
+    // Tunneled playback — hardware A/V sync, falls back to the normal path on decoder errors
+    private DefaultTrackSelector trackSelector;
+    private String tunnelingMode = TunnelingMode.MODE_NORMAL;
+    private long tunnelingDroppedBase;
+    private long tunnelingPlayedBase;
+
+    // LL-HLS: tighter live target when the playlist supports it
+    private LowLatencyController lowLatency;
+
+    // Route health memory — which route works for this server/channel
+    private RouteHealthStore routeHealth;
+    private String server;
+    private String channelId;
+    private long routeStartMs;
+    private boolean firstFrameRecorded;
+
     @Override
     @OptIn(markerClass = UnstableApi.class)
     protected void onCreate(Bundle savedInstanceState) {
@@ -115,6 +161,17 @@ public class PlayerActivity extends Activity {
         authToken = getIntent().getStringExtra(EXTRA_TOKEN);
         baseUrl = getIntent().getStringExtra(EXTRA_BASE_URL);
         fallbackUrl = getIntent().getStringExtra(EXTRA_FALLBACK_URL);
+        Telemetry.get(this).configure(baseUrl, authToken);
+        server = getIntent().getStringExtra(EXTRA_SERVER);
+        channelId = getIntent().getStringExtra(EXTRA_CHANNEL_ID);
+        errorClassifier = new ErrorClassifier(Math.min(PlaybackTuning.MAX_ERROR_RETRIES,
+                getIntent().getIntExtra(EXTRA_MAX_RETRIES, PlaybackTuning.MAX_ERROR_RETRIES)));
+        routeHealth = new RouteHealthStore(this);
+        bandwidthStore = new BandwidthStore(this);
+        sessionStartMs = SystemClock.elapsedRealtime();
+        redirectHopsAtStart = RedirectCache.getInstance().getHopsSaved();
+        startupTracer = new StartupTracer(getIntent().getLongExtra(EXTRA_CLICK_TIME, 0));
+        startupTracer.mark(StartupTracer.CREATE);
 
         if (streamName != null && !streamName.isEmpty()) {
             channelName.setText(streamName);
@@ -130,12 +187,53 @@ public class PlayerActivity extends Activity {
 
         reportDebug("player", "ExoPlayer starting",
                 "channel", streamName, "url", streamUrl.length() > 120 ? streamUrl.substring(0, 120) : streamUrl);
-        initPlayer(streamUrl);
+        if (getIntent().getBooleanExtra(EXTRA_ROUTE_RACE, false) && fallbackUrl != null) {
+            raceRoutes();
+        } else {
+            initPlayer(streamUrl);
+        }
         hideSystemUI();
     }
 
+    /**
+     * Probe direct and proxy manifests at the same time and start on whichever
+     * answers first. Falls back to the normal direct-then-proxy path if neither does.
+     */
+    private void raceRoutes() {
+        routeRace = new StreamRouteRace();
+        String preferred = server != null ? routeHealth.getPreferredRoute(server) : null;
+        routeRace.start(streamUrl, fallbackUrl, preferred, new StreamRouteRace.Callback() {
+            @Override
+            public void onWinner(String url, String route, long elapsedMs) {
+                routeRace = null;
+                if (isFinishing()) return;
+                reportDebug("player", "Route race won",
+                        "channel", streamName, "route", route, "elapsedMs", String.valueOf(elapsedMs));
+                if (server != null) routeHealth.recordRaceWinner(server, route);
+                if (RouteHealthStore.ROUTE_PROXY.equals(route)) {
+                    streamUrl = url;
+                    fallbackUrl = null; // already on the proxy — nothing left to fall back to
+                }
+                initPlayer(streamUrl);
+            }
+
+            @Override
+            public void onNoWinner() {
+                routeRace = null;
+                if (isFinishing()) return;
+                reportDebug("player", "Route race had no winner", "channel", streamName);
+                initPlayer(streamUrl);
+            }
+        });
+    }
+
     @OptIn(markerClass = UnstableApi.class)
     private void initPlayer(String url) {
+        routeStartMs = SystemClock.elapsedRealtime();
+        firstFrameRecorded = false;
+        startupTracer.mark(StartupTracer.ROUTE);
+        Telemetry.get(this).setPlaybackActive(true);
+
         // WiFi lock — prevent WiFi power-save during playback
         try {
             WifiManager wifiManager = (WifiManager) getApplicationContext().getSystemService(Context.WIFI_SERVICE);
@@ -182,37 +280,62 @@ public class PlayerActivity extends Activity {
             Log.d(TAG, "Audio focus request result: " + result);
         }
 
-        // 2B. Custom LoadControl — tuned for Fire TV Stick (limited RAM)
-        DefaultLoadControl loadControl = new DefaultLoadControl.Builder()
-                .setBufferDurationsMs(
-                        15_000,  // minBufferMs — faster to start (was 25s)
-                        35_000,  // maxBufferMs — reduce memory pressure (was 50s)
-                        1_200,   // bufferForPlaybackMs — aggressive start
-                        2_500    // bufferForPlaybackAfterRebufferMs — fast recovery
-                )
-                .setTargetBufferBytes(30 * 1024 * 1024) // 30MB cap (was ~60MB default)
-                .build();
+        // 2B. LoadControl — buffer profile picked per device (memory, network, rebuffer history)
+        bufferProfile = BufferProfile.select(this);
+        DefaultLoadControl loadControl = bufferProfile.buildLoadControl();
+        Log.d(TAG, "Buffer profile: " + bufferProfile.name);
 
         // 2C. DefaultTrackSelector — prefer HEVC (50% more efficient than H.264)
-        DefaultTrackSelector trackSelector = new DefaultTrackSelector(this);
+        // Tunneling is only requested when the user opted in and a decoder supports
+        // it; the selector still turns it off for any track combination that cannot
+        // tunnel, so the mode is recorded once the audio track reports what it got.
+        boolean tunneling = TunnelingMode.shouldEnable(this);
+        trackSelector = new DefaultTrackSelector(this);
         trackSelector.setParameters(
                 trackSelector.buildUponParameters()
                         .setPreferredVideoMimeTypes(MimeTypes.VIDEO_H265, MimeTypes.VIDEO_H264)
                         .setPreferredAudioMimeTypes(MimeTypes.AUDIO_AAC)
+                        .setTunnelingEnabled(tunneling)
                         .build()
         );
+        switchTunnelingMode(TunnelingMode.MODE_NORMAL);
+
+        // 2D. DefaultBandwidthMeter — enable adaptive bitrate, seeded with the last
+        // throughput measured on this network/host so the first variant fits
+        DefaultBandwidthMeter.Builder meterBuilder = new DefaultBandwidthMeter.Builder(this);
+        long seedBps = bandwidthStore.getInitialEstimate(url);
+        if (seedBps > 0) {
+            meterBuilder.setInitialBitrateEstimate(seedBps);
+            Log.d(TAG, "Bandwidth meter seeded with " + (seedBps / 1000) + "kbps");
+        }
+        bandwidthMeter = meterBuilder.build();
+        bandwidthMeter.addEventListener(new Handler(Looper.getMainLooper()),
+                (elapsedMs, bytesTransferred, bitrateEstimate) -> measuredBitrateEstimate = bitrateEstimate);
 
-        // 2D. DefaultBandwidthMeter — enable adaptive bitrate
-        DefaultBandwidthMeter bandwidthMeter = new DefaultBandwidthMeter.Builder(this).build();
+        // Live speed control — its target is overridden in LL-HLS mode
+        DefaultLivePlaybackSpeedControl liveSpeedControl = new DefaultLivePlaybackSpeedControl.Builder().build();
+        lowLatency = new LowLatencyController(liveSpeedControl);
+        qoe.setLiveTargetOverrideMs(C.TIME_UNSET);
 
         // Build ExoPlayer with custom components
         player = new ExoPlayer.Builder(this)
+                .setLivePlaybackSpeedControl(liveSpeedControl)
                 .setLoadControl(loadControl)
                 .setTrackSelector(trackSelector)
                 .setBandwidthMeter(bandwidthMeter)
                 .setVideoScalingMode(C.VIDEO_SCALING_MODE_SCALE_TO_FIT)
                 .build();
 
+        player.addAnalyticsListener(startupTracer);
+        player.addAnalyticsListener(new AnalyticsListener() {
+            @Override
+            public void onAudioTrackInitialized(EventTime eventTime, AudioSink.AudioTrackConfig config) {
+                String applied = config.tunneling ? TunnelingMode.MODE_TUNNELED : TunnelingMode.MODE_NORMAL;
+                if (!applied.equals(tunnelingMode)) switchTunnelingMode(applied);
+            }
+        });
+        qoe.attach(player);
+
         playerView.setPlayer(player);
         playerView.setControllerShowTimeoutMs(3000);
         playerView.setControllerAutoShow(false);
@@ -222,26 +345,39 @@ public class PlayerActivity extends Activity {
             public void onPlaybackStateChanged(int playbackState) {
                 switch (playbackState) {
                     case Player.STATE_BUFFERING:
+                        if (firstReadyAtMs > 0) {
+                            lowLatency.onRebuffer();
+                            qoe.setLiveTargetOverrideMs(lowLatency.targetMs());
+                        }
                         loadingSpinner.setVisibility(View.VISIBLE);
                         errorText.setVisibility(View.GONE);
                         // Live edge optimization: if too far behind live, skip to live edge
-                        if (player.isCurrentMediaItemLive()) {
+                        // (not in timeshift mode — being behind live is the point there)
+                        if (player.isCurrentMediaItemLive() && timeshiftCache == null) {
                             long liveOffset = player.getCurrentLiveOffset();
-                            if (liveOffset > 10_000) { // more than 10s behind
+                            if (liveOffset > lowLatency.jumpToLiveThresholdMs()) { // 10s, or target + 4s in LL mode
                                 Log.w(TAG, "Live offset " + liveOffset + "ms — seeking to live edge");
-                                reportDebug("player", "Seeking to live edge",
+                                reportDebugLow("player", "Seeking to live edge",
                                         "channel", streamName,
                                         "liveOffsetMs", String.valueOf(liveOffset));
                                 player.seekToDefaultPosition();
                             }
                         }
-                        reportDebug("player", "Buffering", "channel", streamName);
+                        reportDebugLow("player", "Buffering", "channel", streamName);
                         break;
                     case Player.STATE_READY:
+                        if (firstReadyAtMs == 0) {
+                            firstReadyAtMs = SystemClock.elapsedRealtime();
+                            startupMs = firstReadyAtMs - sessionStartMs;
+                        }
                         loadingSpinner.setVisibility(View.GONE);
                         errorText.setVisibility(View.GONE);
                         behindLiveRetries = 0;
-                        errorRetryCount = 0; // Reset general retry counter on successful playback
+                        String recovery = errorClassifier.onRecovered(PlayerActivity.this, server);
+                        if (recovery != null) {
+                            reportDebug("player", "Recovered after error",
+                                    "channel", streamName, "recovery", recovery);
+                        }
                         reportDebug("player", "Playback started", "channel", streamName);
                         // Auto-hide channel name after 3 seconds
                         channelName.postDelayed(() ->
@@ -256,6 +392,26 @@ public class PlayerActivity extends Activity {
                 }
             }
 
+            @Override
+            public void onTimelineChanged(Timeline timeline, int reason) {
+                // Timeshift wants to sit behind live, so it never enters LL mode
+                if (timeshiftCache == null && lowLatency.onTimelineChanged(player)) {
+                    qoe.setLiveTargetOverrideMs(lowLatency.targetMs());
+                    reportDebug("player", "Low-latency HLS enabled",
+                            "channel", streamName, "lowLatency", lowLatency.describe());
+                }
+            }
+
+            @Override
+            public void onRenderedFirstFrame() {
+                if (firstFrameRecorded) return;
+                firstFrameRecorded = true;
+                long ttffMs = SystemClock.elapsedRealtime() - routeStartMs;
+                if (server != null && channelId != null) {
+                    routeHealth.recordSuccess(server, channelId, RouteHealthStore.routeOf(streamUrl), ttffMs);
+                }
+            }
+
             @Override
             public void onPlayerError(PlaybackException error) {
                 Throwable cause = error.getCause();
@@ -271,8 +427,21 @@ public class PlayerActivity extends Activity {
                         "cause", causeMsg,
                         "url", streamUrl != null && streamUrl.length() > 120 ? streamUrl.substring(0, 120) : streamUrl);
 
+                // Decoder / audio sink failure while tunneled: drop back to the normal path
+                if (TunnelingMode.MODE_TUNNELED.equals(tunnelingMode) && TunnelingMode.isTunnelingError(error)) {
+                    Log.w(TAG, "Tunneled playback failed — retrying without tunneling");
+                    reportDebug("player", "Tunneling failed, falling back",
+                            "channel", streamName, "errorCode", errorCode);
+                    TunnelingMode.recordFailure(PlayerActivity.this, error);
+                    trackSelector.setParameters(
+                            trackSelector.buildUponParameters().setTunnelingEnabled(false).build());
+                    switchTunnelingMode(TunnelingMode.MODE_NORMAL);
+                    player.prepare();
+                    return;
+                }
+
                 // 2G. BehindLiveWindowException: seek to live edge and retry
-                if (isBehindLiveWindow(cause) && behindLiveRetries < MAX_BEHIND_LIVE_RETRIES) {
+                if (isBehindLiveWindow(cause) && behindLiveRetries < ErrorClassifier.MAX_BEHIND_LIVE_RETRIES) {
                     behindLiveRetries++;
                     Log.w(TAG, "Behind live window — re-preparing (attempt " + behindLiveRetries + ")");
                     reportDebug("player", "Behind live window — recovering",
@@ -284,30 +453,16 @@ public class PlayerActivity extends Activity {
                     return;
                 }
 
-                // Non-transient errors (HTTP 4xx, invalid content) — skip retries, go to fallback
-                if (!isTransientError(cause) && fallbackUrl != null && !streamUrl.equals(fallbackUrl)) {
-                    Log.w(TAG, "Non-transient error, skipping retries — trying fallback");
-                    reportDebug("player", "Non-transient error, fallback immediately",
-                            "channel", streamName, "cause", causeMsg);
-                    streamUrl = fallbackUrl;
-                    fallbackUrl = null;
-                    errorRetryCount = 0;
-                    behindLiveRetries = 0;
-                    releasePlayer();
-                    initPlayer(streamUrl);
-                    return;
-                }
-
-                // 2G. General error retry with exponential backoff
-                if (errorRetryCount < MAX_ERROR_RETRIES) {
-                    long delay = RETRY_DELAYS_MS[errorRetryCount];
-                    errorRetryCount++;
-                    Log.w(TAG, "Retrying playback in " + delay + "ms (attempt " + errorRetryCount + "/" + MAX_ERROR_RETRIES + ")");
-                    reportDebug("player", "Retrying after error",
-                            "channel", streamName,
-                            "attempt", String.valueOf(errorRetryCount),
-                            "delayMs", String.valueOf(delay));
+                // 2G. Classified retry: per-class budget and jittered delay, then fallback
+                boolean canFallBack = fallbackUrl != null && !streamUrl.equals(fallbackUrl);
+                ErrorClassifier.Decision decision = errorClassifier.decide(error, canFallBack);
+                reportDebug("player", "Error decision",
+                        "channel", streamName,
+                        "class", decision.errorClass,
+                        "decision", decision.toString());
 
+                if (decision.action == ErrorClassifier.ACTION_RETRY) {
+                    Log.w(TAG, "Retrying playback: " + decision);
                     // Show loading spinner during retry (not error text)
                     loadingSpinner.setVisibility(View.VISIBLE);
                     errorText.setVisibility(View.GONE);
@@ -316,17 +471,18 @@ public class PlayerActivity extends Activity {
                         if (player != null && !isFinishing()) {
                             player.prepare();
                         }
-                    }, delay);
+                    }, decision.delayMs);
                     return;
                 }
 
-                // All retries exhausted — try fallback URL if available
-                if (fallbackUrl != null && !streamUrl.equals(fallbackUrl)) {
-                    Log.w(TAG, "Primary URL failed, switching to proxy fallback");
-                    reportDebug("player", "Switching to proxy fallback", "channel", streamName);
+                if (decision.action == ErrorClassifier.ACTION_FALLBACK) {
+                    Log.w(TAG, "Switching to fallback route after " + decision.errorClass + " error");
+                    reportDebug("player", "Switching to fallback route",
+                            "channel", streamName, "class", decision.errorClass);
+                    recordRouteFailure();
                     streamUrl = fallbackUrl;
                     fallbackUrl = null; // don't loop
-                    errorRetryCount = 0;
+                    errorClassifier.onRouteChanged();
                     behindLiveRetries = 0;
                     releasePlayer();
                     initPlayer(streamUrl);
@@ -334,33 +490,53 @@ public class PlayerActivity extends Activity {
                 }
 
                 // All retries exhausted — show error
+                recordRouteFailure();
                 showError("Playback error: " + errorMsg);
             }
         };
         player.addListener(playerListener);
 
-        // 2E. Custom HttpDataSource.Factory — optimized for live HLS
-        DefaultHttpDataSource.Factory httpDataSourceFactory = new DefaultHttpDataSource.Factory()
-                .setConnectTimeoutMs(5_000)        // Faster connect-or-fail
-                .setReadTimeoutMs(12_000)           // Tighter for segments
-                .setAllowCrossProtocolRedirects(true)
-                .setKeepPostFor302Redirects(true)
-                .setUserAgent("IPTV-Manager/ExoPlayer");
+        // 2E. HttpDataSource.Factory on the shared transport (playback class) —
+        // fast connect-or-fail, tighter read timeout for segments
+        HttpDataSource.Factory httpDataSourceFactory = NetworkStack.getInstance()
+                .mediaDataSourceFactory("IPTV-Manager/ExoPlayer",
+                        PlaybackTuning.MEDIA_CONNECT_TIMEOUT_MS, PlaybackTuning.MEDIA_READ_TIMEOUT_MS);
+
+        // On the direct route, a failed playlist or segment request is retried
+        // through the proxy on its own instead of restarting the session
+        DataSource.Factory routedFactory = httpDataSourceFactory;
+        if (RouteHealthStore.ROUTE_DIRECT.equals(RouteHealthStore.routeOf(url))
+                && RouteHealthStore.ROUTE_PROXY.equals(RouteHealthStore.routeOf(fallbackUrl))) {
+            routedFactory = new RouteFallbackDataSource.Factory(httpDataSourceFactory, fallbackUrl, routeStats);
+        }
+
+        // Playlists prefetched from the channel list are served from memory
+        DataSource.Factory upstreamFactory = new PrefetchDataSource.Factory(routedFactory);
 
-        // 2F. HlsMediaSource with LiveConfiguration
-        hlsFactory = new HlsMediaSource.Factory(httpDataSourceFactory)
+        // 2F. HlsMediaSource with LiveConfiguration — segments go through the
+        // timeshift cache when it is enabled
+        timeshiftCache = TimeshiftCache.get(this);
+        hlsFactory = (timeshiftCache != null
+                ? new HlsMediaSource.Factory(timeshiftCache.wrap(upstreamFactory))
+                : new HlsMediaSource.Factory(upstreamFactory))
                 .setAllowChunklessPreparation(true);
+        if (startupTracer != null) {
+            // Stamps the manifest and media playlist phases by playlist type
+            hlsFactory.setPlaylistParserFactory(startupTracer.playlistParserFactory());
+        }
 
         hlsMediaItem = new MediaItem.Builder()
                 .setUri(Uri.parse(url))
                 .setMimeType(MimeTypes.APPLICATION_M3U8)
                 .setLiveConfiguration(
                         new MediaItem.LiveConfiguration.Builder()
-                                .setTargetOffsetMs(5_000)    // stay 5s behind live edge
-                                .setMinOffsetMs(2_000)       // never closer than 2s
-                                .setMaxOffsetMs(12_000)      // if >12s behind, seek to live
+                                .setTargetOffsetMs(PlaybackTuning.LIVE_TARGET_OFFSET_MS)
+                                .setMinOffsetMs(PlaybackTuning.LIVE_MIN_OFFSET_MS)
+                                .setMaxOffsetMs(PlaybackTuning.LIVE_MAX_OFFSET_MS)
                                 .setMinPlaybackSpeed(1.0f)   // never slow down
-                                .setMaxPlaybackSpeed(1.04f)  // gentle catch-up only
+                                // no catch-up in timeshift, so a pause holds its place
+                                .setMaxPlaybackSpeed(timeshiftCache != null
+                                        ? 1.0f : PlaybackTuning.LIVE_MAX_PLAYBACK_SPEED)
                                 .build()
                 )
                 .build();
@@ -373,71 +549,26 @@ public class PlayerActivity extends Activity {
 
     /**
      * Report a debug event back to the server for remote diagnostics.
-     * Runs on a background thread. Args are key-value pairs.
+     * Queued on the shared {@link Telemetry} pipeline. Args are key-value pairs.
      */
     private void reportDebug(String category, String message, String... kvPairs) {
         if (authToken == null || baseUrl == null) return;
-        new Thread(() -> {
-            try {
-                JSONObject json = new JSONObject();
-                json.put("token", authToken);
-                json.put("category", category);
-                json.put("message", message);
-                if (kvPairs.length > 0) {
-                    JSONObject data = new JSONObject();
-                    for (int i = 0; i + 1 < kvPairs.length; i += 2) {
-                        data.put(kvPairs[i], kvPairs[i + 1]);
-                    }
-                    json.put("data", data);
-                }
-                byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
-
-                HttpURLConnection conn = (HttpURLConnection) new URL(baseUrl + "/api/debug/report").openConnection();
-                conn.setRequestMethod("POST");
-                conn.setRequestProperty("Content-Type", "application/json");
-                conn.setDoOutput(true);
-                conn.setConnectTimeout(5000);
-                conn.setReadTimeout(5000);
-                OutputStream os = conn.getOutputStream();
-                os.write(body);
-                os.close();
-                int code = conn.getResponseCode();
-                Log.d(TAG, "Debug report sent: " + code);
-                conn.disconnect();
-            } catch (Exception e) {
-                Log.w(TAG, "Debug report failed: " + e.getMessage());
-            }
-        }).start();
+        int priority = "player".equals(category) && !message.startsWith("ERROR")
+                ? Telemetry.PRIORITY_NORMAL
+                : Telemetry.PRIORITY_HIGH;
+        Telemetry.get(this).report(priority, category, message, kvPairs);
     }
 
-    /**
-     * Check if an error is transient (network timeout, server error) vs permanent
-     * (HTTP 4xx, invalid content). Non-transient errors skip retries and go straight to fallback.
-     */
-    private static boolean isTransientError(Throwable e) {
-        if (e == null) return true; // assume transient if unknown
-        String msg = e.getMessage();
-        if (msg == null) msg = "";
-        String className = e.getClass().getSimpleName();
-        // Network timeouts and connection failures are transient
-        if (className.contains("Timeout") || className.contains("ConnectException")
-                || className.contains("UnknownHostException") || className.contains("SocketException")) {
-            return true;
-        }
-        // HTTP 4xx errors are non-transient (client error, auth failure, not found)
-        if (msg.contains("Response code: 4") || msg.contains("403") || msg.contains("404")
-                || msg.contains("401") || msg.contains("451")) {
-            return false;
-        }
-        // HTTP 5xx are transient (server error, might recover)
-        if (msg.contains("Response code: 5") || msg.contains("502") || msg.contains("503")) {
-            return true;
-        }
-        // Invalid content type or parsing errors are non-transient
-        if (className.contains("ParserException") || className.contains("UnrecognizedInputFormatException")) {
-            return false;
+    /** Like {@link #reportDebug} for high-frequency events that may be sampled. */
+    private void reportDebugLow(String category, String message, String... kvPairs) {
+        if (authToken == null || baseUrl == null) return;
+        Telemetry.get(this).report(Telemetry.PRIORITY_LOW, category, message, kvPairs);
+    }
+
+    private void recordRouteFailure() {
+        if (server != null && channelId != null) {
+            routeHealth.recordFailure(server, channelId, RouteHealthStore.routeOf(streamUrl));
         }
-        return true; // default to transient
     }
 
     private static boolean isBehindLiveWindow(Throwable e) {
@@ -489,6 +620,44 @@ public class PlayerActivity extends Activity {
         return super.onKeyDown(keyCode, event);
     }
 
+    /**
+     * Timeshift controls: left/rewind steps back, right/fast-forward steps
+     * forward, up jumps back to live, play/pause toggles. Only taken while the
+     * controller is hidden; once it is showing, keys navigate it as usual.
+     */
+    @OptIn(markerClass = UnstableApi.class)
+    @Override
+    public boolean dispatchKeyEvent(KeyEvent event) {
+        if (timeshiftCache == null || player == null || event.getAction() != KeyEvent.ACTION_DOWN
+                || playerView.isControllerFullyVisible()) {
+            return super.dispatchKeyEvent(event);
+        }
+        switch (event.getKeyCode()) {
+            case KeyEvent.KEYCODE_DPAD_LEFT:
+            case KeyEvent.KEYCODE_MEDIA_REWIND:
+                player.seekTo(Math.max(0, player.getCurrentPosition() - TIMESHIFT_SEEK_MS));
+                return true;
+            case KeyEvent.KEYCODE_DPAD_RIGHT:
+            case KeyEvent.KEYCODE_MEDIA_FAST_FORWARD:
+                long duration = player.getDuration();
+                long target = player.getCurrentPosition() + TIMESHIFT_SEEK_MS;
+                if (duration == C.TIME_UNSET || target >= duration) {
+                    player.seekToDefaultPosition();
+                } else {
+                    player.seekTo(target);
+                }
+                return true;
+            case KeyEvent.KEYCODE_DPAD_UP:
+                player.seekToDefaultPosition();
+                return true;
+            case KeyEvent.KEYCODE_MEDIA_PLAY_PAUSE:
+            case KeyEvent.KEYCODE_DPAD_CENTER:
+                player.setPlayWhenReady(!player.getPlayWhenReady());
+                return true;
+        }
+        return super.dispatchKeyEvent(event);
+    }
+
     @Override
     protected void onResume() {
         super.onResume();
@@ -509,12 +678,90 @@ public class PlayerActivity extends Activity {
     @Override
     protected void onDestroy() {
         releasePlayer();
+        recordSession();
+        reportStartupTrace();
+        reportQoe();
+        Telemetry.get(this).flushSoon();
         super.onDestroy();
     }
 
+    /** Close the dropped-frame count for the current tunneling mode and start counting the next. */
+    private void switchTunnelingMode(String mode) {
+        long dropped = qoe.getDroppedFrames();
+        long played = qoe.getPlayingMs();
+        TunnelingMode.recordSession(this, tunnelingMode,
+                dropped - tunnelingDroppedBase, played - tunnelingPlayedBase);
+        tunnelingMode = mode;
+        tunnelingDroppedBase = dropped;
+        tunnelingPlayedBase = played;
+        Log.d(TAG, "Video path: " + mode);
+    }
+
+    /** One QoE summary per session, covering every player built for it. */
+    private void reportQoe() {
+        String summary = qoe.summary();
+        String liveMode = lowLatency != null ? lowLatency.describe() : "";
+        String liveOffsets = lowLatency != null
+                ? lowLatency.recordStats(this, server, qoe.getLiveOffsetHistogram())
+                : "";
+        switchTunnelingMode(tunnelingMode);
+        Log.d(TAG, "QoE: " + summary + " [" + liveMode + "] tunneling: " + TunnelingMode.describeStats(this)
+                + " routes: " + routeStats.describe());
+        reportDebug("qoe", "Session QoE",
+                "channel", streamName,
+                "route", RouteHealthStore.routeOf(streamUrl),
+                "device", Build.MODEL,
+                "summary", summary,
+                "liveMode", liveMode,
+                "videoPath", tunnelingMode,
+                "tunnelingStats", TunnelingMode.describeStats(this),
+                "routeRequests", routeStats.describe(),
+                "redirectHopsSaved", String.valueOf(RedirectCache.getInstance().getHopsSaved() - redirectHopsAtStart),
+                "liveOffsetHistory", liveOffsets);
+    }
+
+    /** Export this session's start-up phases as one record, with first-frame percentiles. */
+    private void reportStartupTrace() {
+        if (startupTracer == null) return;
+        String record = startupTracer.toRecord();
+        String percentiles = startupTracer.aggregate(this, server);
+        Log.d(TAG, "Startup: " + record + " (" + percentiles + ")");
+        reportDebug("startup", "Startup trace",
+                "channel", streamName,
+                "route", RouteHealthStore.routeOf(streamUrl),
+                "device", Build.MODEL,
+                "record", record,
+                "firstFrame", percentiles);
+        startupTracer = null;
+    }
+
+    /** Record start-up time and rebuffers for the buffer profile used by this session. */
+    private void recordSession() {
+        if (sessionRecorded || bufferProfile == null) return;
+        sessionRecorded = true;
+        long playedMs = firstReadyAtMs > 0 ? SystemClock.elapsedRealtime() - firstReadyAtMs : 0;
+        BufferProfile.recordSession(this, bufferProfile, startupMs, qoe.getRebufferCount(), playedMs,
+                measuredBitrateEstimate);
+        reportDebug("player", "Buffer profile session",
+                "channel", streamName,
+                "profile", bufferProfile.name,
+                "startupMs", String.valueOf(startupMs),
+                "rebuffers", String.valueOf(qoe.getRebufferCount()),
+                "playedMs", String.valueOf(playedMs),
+                "stats", BufferProfile.describeStats(this, bufferProfile));
+    }
+
     private void releasePlayer() {
         retryHandler.removeCallbacksAndMessages(null);
+        if (routeRace != null) {
+            routeRace.cancel();
+            routeRace = null;
+        }
+        if (player != null && bandwidthMeter != null && firstReadyAtMs > 0) {
+            bandwidthStore.save(streamUrl, bandwidthMeter.getBitrateEstimate());
+        }
         if (player != null) {
+            qoe.detach();
             if (playerListener != null) {
                 player.removeListener(playerListener);
             }
@@ -522,6 +769,13 @@ public class PlayerActivity extends Activity {
             player.release();
             player = null;
         }
+        Telemetry.get(this).setPlaybackActive(false);
+        if (timeshiftCache != null) {
+            timeshiftCache.stopRecording();
+            Log.d(TAG, "Timeshift cache: " + timeshiftCache.describe());
+            reportDebug("player", "Timeshift cache stats",
+                    "channel", streamName, "stats", timeshiftCache.describe());
+        }
         // Release WiFi lock
         if (wifiLock != null && wifiLock.isHeld()) {
             wifiLock.release();
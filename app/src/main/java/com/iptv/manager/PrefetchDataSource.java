@@ -0,0 +1,135 @@
+package com.iptv.manager;
+
+import android.net.Uri;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.OptIn;
+import androidx.media3.common.C;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.datasource.TransferListener;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Serves playlists prefetched by {@link ManifestPrefetcher} from memory and
+ * passes every other request to the upstream source. Transfer listeners are
+ * only registered upstream, so in-memory hits do not skew the bandwidth meter.
+ * A keeping factory (the focus preview) reads prefetched playlists without
+ * removing them, so the full player still finds them on click.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class PrefetchDataSource implements DataSource {
+
+    public static class Factory implements DataSource.Factory {
+        private final DataSource.Factory upstreamFactory;
+        // URLs this factory has served; only set when keeping entries
+        private final Set<String> served;
+
+        public Factory(DataSource.Factory upstreamFactory) {
+            this(upstreamFactory, false);
+        }
+
+        /**
+         * @param keep leave prefetched playlists for the next reader. Each URL is
+         *             then served once per factory, so live reloads still go to
+         *             the network.
+         */
+        public Factory(DataSource.Factory upstreamFactory, boolean keep) {
+            this.upstreamFactory = upstreamFactory;
+            this.served = keep ? Collections.synchronizedSet(new HashSet<>()) : null;
+        }
+
+        @Override
+        public DataSource createDataSource() {
+            return new PrefetchDataSource(upstreamFactory.createDataSource(), served);
+        }
+    }
+
+    private final DataSource upstream;
+    private final Set<String> served;
+    private byte[] data;
+    private int readPosition;
+    private int bytesRemaining;
+    private Uri uri;
+    private boolean upstreamOpen;
+
+    public PrefetchDataSource(DataSource upstream) {
+        this(upstream, null);
+    }
+
+    private PrefetchDataSource(DataSource upstream, Set<String> served) {
+        this.upstream = upstream;
+        this.served = served;
+    }
+
+    @Override
+    public void addTransferListener(TransferListener transferListener) {
+        upstream.addTransferListener(transferListener);
+    }
+
+    @Override
+    public long open(DataSpec dataSpec) throws IOException {
+        String key = dataSpec.uri.toString();
+        ManifestPrefetcher.Playlist cached = null;
+        if (dataSpec.position == 0) {
+            if (served == null) {
+                cached = ManifestPrefetcher.getInstance().take(key);
+            } else if (served.add(key)) {
+                cached = ManifestPrefetcher.getInstance().getFresh(key);
+            }
+        }
+        if (cached == null) {
+            upstreamOpen = true;
+            return upstream.open(dataSpec);
+        }
+        data = cached.data;
+        // Report the post-redirect URL, as the HTTP source would, so relative
+        // variant and segment URIs resolve against the edge host
+        uri = Uri.parse(cached.url);
+        readPosition = 0;
+        bytesRemaining = dataSpec.length != C.LENGTH_UNSET
+                ? (int) Math.min(dataSpec.length, data.length)
+                : data.length;
+        return bytesRemaining;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (upstreamOpen) return upstream.read(buffer, offset, length);
+        if (length == 0) return 0;
+        if (bytesRemaining == 0) return C.RESULT_END_OF_INPUT;
+        int n = Math.min(length, bytesRemaining);
+        System.arraycopy(data, readPosition, buffer, offset, n);
+        readPosition += n;
+        bytesRemaining -= n;
+        return n;
+    }
+
+    @Nullable
+    @Override
+    public Uri getUri() {
+        return upstreamOpen ? upstream.getUri() : uri;
+    }
+
+    @Override
+    public Map<String, List<String>> getResponseHeaders() {
+        return upstreamOpen ? upstream.getResponseHeaders() : Collections.emptyMap();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (upstreamOpen) {
+            upstreamOpen = false;
+            upstream.close();
+        }
+        data = null;
+        uri = null;
+    }
+}
@@ -0,0 +1,230 @@
+package com.iptv.manager;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.annotation.OptIn;
+import androidx.media3.common.C;
+import androidx.media3.common.Format;
+import androidx.media3.common.Player;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.ExoPlayer;
+import androidx.media3.exoplayer.analytics.AnalyticsListener;
+import androidx.media3.exoplayer.source.MediaLoadData;
+
+import java.util.Locale;
+
+/**
+ * Playback quality-of-experience metrics for one PlayerActivity session:
+ * rebuffer count and ratio, dropped frames per minute, bitrate switches,
+ * time-weighted average bitrate and live-offset drift. Everything is held in
+ * counters and fixed-size histograms, and survives a player rebuild (route
+ * fallback) by re-attaching. Only stalls count as rebuffers: buffering after a
+ * seek, or after a (re-)prepare following an error or rebuild, is left out.
+ * {@link #summary()} gives one line per session.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class QoeCollector implements AnalyticsListener {
+
+    private static final long SAMPLE_INTERVAL_MS = 1_000;
+    private static final long[] BITRATE_KBPS_BOUNDS = {
+            300, 600, 1_000, 1_500, 2_500, 4_000, 6_000, 8_000, 12_000, 20_000
+    };
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Histogram liveOffsetMs = new Histogram(Histogram.LATENCY_MS_BOUNDS);
+    private final Histogram liveDriftMs = new Histogram(Histogram.LATENCY_MS_BOUNDS);
+    private final Histogram rebufferMs = new Histogram(Histogram.LATENCY_MS_BOUNDS);
+    private final Histogram bitrateKbps = new Histogram(BITRATE_KBPS_BOUNDS);
+
+    private ExoPlayer player;
+    private boolean started;        // first READY seen
+    private long rebufferStartMs = -1;
+    private int lastState = Player.STATE_IDLE;
+    private boolean seekPending;     // a seek was issued; its buffering is not a stall
+    private int rebufferCount;
+    private long rebufferTotalMs;
+    private long playingSinceMs = -1;
+    private long playingTotalMs;
+    private long droppedFrames;
+    private int bitrateSwitches;
+    private int currentBitrate = Format.NO_VALUE;
+    private long bitrateSinceMs = -1;
+    private double bitrateTimeSum;   // bps × ms
+    private long bitrateTimeMs;
+    private long liveTargetOverrideMs = C.TIME_UNSET;
+
+    private final Runnable sampler = new Runnable() {
+        @Override
+        public void run() {
+            sampleLiveOffset();
+            handler.postDelayed(this, SAMPLE_INTERVAL_MS);
+        }
+    };
+
+    /** Attach to a (new) player. Counters carry over from earlier players. */
+    public void attach(ExoPlayer player) {
+        detach();
+        this.player = player;
+        lastState = Player.STATE_IDLE;
+        seekPending = false;
+        player.addAnalyticsListener(this);
+        handler.postDelayed(sampler, SAMPLE_INTERVAL_MS);
+    }
+
+    /** Measure drift against this target instead of the media item's (LL-HLS mode). */
+    public void setLiveTargetOverrideMs(long targetMs) {
+        liveTargetOverrideMs = targetMs;
+    }
+
+    /** Detach from the current player, closing any open intervals. */
+    public void detach() {
+        handler.removeCallbacks(sampler);
+        long now = SystemClock.elapsedRealtime();
+        closePlaying(now);
+        closeBitrate(now);
+        if (rebufferStartMs >= 0) {
+            endRebuffer(now);
+        }
+        if (player != null) {
+            player.removeAnalyticsListener(this);
+            player = null;
+        }
+    }
+
+    // ── AnalyticsListener ────────────────────────────────────
+
+    @Override
+    public void onPlaybackStateChanged(EventTime eventTime, int state) {
+        long now = SystemClock.elapsedRealtime();
+        int previous = lastState;
+        lastState = state;
+        if (state == Player.STATE_READY) {
+            started = true;
+            seekPending = false;
+            if (rebufferStartMs >= 0) endRebuffer(now);
+        } else if (state == Player.STATE_BUFFERING) {
+            // Coming from IDLE means a retry re-prepared the player
+            boolean expected = seekPending || previous == Player.STATE_IDLE;
+            seekPending = false;
+            if (started && !expected && rebufferStartMs < 0) {
+                rebufferStartMs = now;
+                rebufferCount++;
+            }
+        }
+    }
+
+    @Override
+    public void onPositionDiscontinuity(EventTime eventTime, Player.PositionInfo oldPosition,
+                                        Player.PositionInfo newPosition, int reason) {
+        // Reported before the BUFFERING state the seek masks the player into
+        if (reason == Player.DISCONTINUITY_REASON_SEEK) seekPending = true;
+    }
+
+    @Override
+    public void onIsPlayingChanged(EventTime eventTime, boolean isPlaying) {
+        long now = SystemClock.elapsedRealtime();
+        if (isPlaying) {
+            playingSinceMs = now;
+            if (currentBitrate != Format.NO_VALUE) bitrateSinceMs = now;
+        } else {
+            closePlaying(now);
+            closeBitrate(now);
+        }
+    }
+
+    @Override
+    public void onDroppedVideoFrames(EventTime eventTime, int count, long elapsedMs) {
+        droppedFrames += count;
+    }
+
+    @Override
+    public void onDownstreamFormatChanged(EventTime eventTime, MediaLoadData mediaLoadData) {
+        // HLS muxed variants report TRACK_TYPE_DEFAULT; both carry the variant bitrate
+        if (mediaLoadData.trackType != C.TRACK_TYPE_VIDEO && mediaLoadData.trackType != C.TRACK_TYPE_DEFAULT) {
+            return;
+        }
+        Format format = mediaLoadData.trackFormat;
+        if (format == null || format.bitrate == Format.NO_VALUE || format.bitrate == currentBitrate) return;
+        long now = SystemClock.elapsedRealtime();
+        if (currentBitrate != Format.NO_VALUE) bitrateSwitches++;
+        closeBitrate(now);
+        currentBitrate = format.bitrate;
+        bitrateKbps.add(format.bitrate / 1000);
+        if (playingSinceMs >= 0) bitrateSinceMs = now;
+    }
+
+    // ── Internals ────────────────────────────────────────────
+
+    private void endRebuffer(long now) {
+        long duration = now - rebufferStartMs;
+        rebufferTotalMs += duration;
+        rebufferMs.add(duration);
+        rebufferStartMs = -1;
+    }
+
+    private void closePlaying(long now) {
+        if (playingSinceMs >= 0) {
+            playingTotalMs += now - playingSinceMs;
+            playingSinceMs = -1;
+        }
+    }
+
+    private void closeBitrate(long now) {
+        if (bitrateSinceMs >= 0 && currentBitrate != Format.NO_VALUE) {
+            long span = now - bitrateSinceMs;
+            bitrateTimeSum += (double) currentBitrate * span;
+            bitrateTimeMs += span;
+        }
+        bitrateSinceMs = -1;
+    }
+
+    private void sampleLiveOffset() {
+        if (player == null || !player.isPlaying() || !player.isCurrentMediaItemLive()) return;
+        long offset = player.getCurrentLiveOffset();
+        if (offset == C.TIME_UNSET) return;
+        liveOffsetMs.add(offset);
+        long target = liveTargetOverrideMs;
+        if (target == C.TIME_UNSET && player.getCurrentMediaItem() != null) {
+            target = player.getCurrentMediaItem().liveConfiguration.targetOffsetMs;
+        }
+        if (target != C.TIME_UNSET) {
+            liveDriftMs.add(Math.abs(offset - target));
+        }
+    }
+
+    // ── Summary ──────────────────────────────────────────────
+
+    public int getRebufferCount() {
+        return rebufferCount;
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    /** Time spent actually playing so far, including the current stretch. */
+    public long getPlayingMs() {
+        return playingTotalMs + (playingSinceMs >= 0 ? SystemClock.elapsedRealtime() - playingSinceMs : 0);
+    }
+
+    /** Live-offset histogram, for callers that tune live-offset control. */
+    public Histogram getLiveOffsetHistogram() {
+        return liveOffsetMs;
+    }
+
+    /** One-line session summary; call after {@link #detach()}. */
+    public String summary() {
+        long watchedMs = playingTotalMs + rebufferTotalMs;
+        float rebufferRatio = watchedMs > 0 ? (float) rebufferTotalMs / watchedMs : 0f;
+        float droppedPerMin = playingTotalMs > 0 ? droppedFrames * 60_000f / playingTotalMs : 0f;
+        long avgBitrateKbps = bitrateTimeMs > 0 ? (long) (bitrateTimeSum / bitrateTimeMs / 1000) : 0;
+        return String.format(Locale.US,
+                "playMs=%d rebuffers=%d rebufferRatio=%.4f rebufferP90Ms=%d droppedPerMin=%.1f"
+                        + " switches=%d avgKbps=%d kbpsP50=%d liveOffsetP50=%d liveOffsetP90=%d driftP90=%d",
+                playingTotalMs, rebufferCount, rebufferRatio, rebufferMs.percentile(90), droppedPerMin,
+                bitrateSwitches, avgBitrateKbps, bitrateKbps.percentile(50),
+                liveOffsetMs.percentile(50), liveOffsetMs.percentile(90), liveDriftMs.percentile(90));
+    }
+}
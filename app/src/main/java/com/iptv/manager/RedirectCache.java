@@ -0,0 +1,130 @@
+package com.iptv.manager;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Short-lived cache of where playlist URLs end up after redirects. Xtream-style
+ * {@code /live/user/pass/id.m3u8} URLs usually 302 to a load-balanced edge; once
+ * the chain has been followed, playback and every playlist reload go straight
+ * to the edge until the entry expires. Any 4xx/5xx from a cached edge drops the
+ * entry and the request is repeated on the original URL, so a rotated edge or
+ * expired edge token costs one extra round trip at most.
+ *
+ * Installed as an interceptor on the shared transport's playback and
+ * interactive (playlist prefetch) clients.
+ */
+public class RedirectCache implements Interceptor {
+
+    private static final String TAG = "RedirectCache";
+    private static RedirectCache instance;
+
+    private static final long TTL_MS = 3 * 60_000;
+    private static final int MAX_ENTRIES = 32;
+
+    private static class Entry {
+        final HttpUrl location;
+        final int hops;
+        final long expiresAt;
+
+        Entry(HttpUrl location, int hops, long expiresAt) {
+            this.location = location;
+            this.hops = hops;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private final AtomicLong hopsSaved = new AtomicLong();
+
+    private RedirectCache() {
+    }
+
+    public static synchronized RedirectCache getInstance() {
+        if (instance == null) {
+            instance = new RedirectCache();
+        }
+        return instance;
+    }
+
+    /** Redirect hops skipped since the app started; diff two readings for a session. */
+    public long getHopsSaved() {
+        return hopsSaved.get();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    private synchronized Entry lookup(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null && SystemClock.elapsedRealtime() >= entry.expiresAt) {
+            entries.remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    private synchronized void store(String key, HttpUrl location, int hops) {
+        entries.put(key, new Entry(location, hops, SystemClock.elapsedRealtime() + TTL_MS));
+    }
+
+    private synchronized void invalidate(String key) {
+        entries.remove(key);
+    }
+
+    // ── Interceptor ──────────────────────────────────────────
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (!isCacheable(request)) return chain.proceed(request);
+
+        String key = request.url().toString();
+        Entry entry = lookup(key);
+        if (entry != null) {
+            Response response = chain.proceed(request.newBuilder().url(entry.location).build());
+            if (response.isSuccessful()) {
+                hopsSaved.addAndGet(entry.hops);
+                return response;
+            }
+            // Edge rotated or its token expired — forget it and follow the chain again
+            Log.d(TAG, "Cached location failed (" + response.code() + "), re-resolving " + request.url().host());
+            response.close();
+            invalidate(key);
+        }
+
+        Response response = chain.proceed(request);
+        int hops = 0;
+        for (Response prior = response.priorResponse(); prior != null; prior = prior.priorResponse()) {
+            hops++;
+        }
+        if (hops > 0 && response.isSuccessful()) {
+            store(key, response.request().url(), hops);
+            Log.d(TAG, "Cached " + hops + "-hop redirect to " + response.request().url().host());
+        } else if (!response.isSuccessful()) {
+            invalidate(key);
+        }
+        return response;
+    }
+
+    /** Only playlist GETs: segment URLs are requested once, playlists on every reload. */
+    private static boolean isCacheable(Request request) {
+        return "GET".equals(request.method()) && request.url().encodedPath().endsWith(".m3u8");
+    }
+}
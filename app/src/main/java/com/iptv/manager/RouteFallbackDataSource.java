@@ -0,0 +1,239 @@
+package com.iptv.manager;
+
+import android.net.Uri;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.OptIn;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.datasource.HttpDataSource;
+import androidx.media3.datasource.TransferListener;
+
+import com.iptv.manager.playback.PlaybackTuning;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-request direct → proxy fallback for a session that started on the direct
+ * route. When a playlist or segment request fails on the direct server, only
+ * that request is repeated through {@code /api/proxy/hls}; the player keeps its
+ * buffer. Requests then stay on the proxy for a short cooldown, after which the
+ * next request probes direct again and stays there if it succeeds. URLs the
+ * proxy rewrote into proxied form are unwrapped back to direct while direct is
+ * healthy.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class RouteFallbackDataSource implements DataSource {
+
+    private static final String TAG = "RouteFallback";
+    private static final long PROXY_COOLDOWN_MS = PlaybackTuning.PROXY_COOLDOWN_MS;
+    private static final int MAX_REDIRECTS = 32;
+
+    /** Per-session request counts for each route, shared by all sources of a session. */
+    public static class RouteStats {
+        final AtomicInteger directOk = new AtomicInteger();
+        final AtomicInteger directFailed = new AtomicInteger();
+        final AtomicInteger proxyOk = new AtomicInteger();
+        final AtomicInteger proxyFailed = new AtomicInteger();
+        final AtomicInteger fallbacks = new AtomicInteger();
+        volatile long proxyUntil = 0;
+        // Where direct requests ended up after redirects (panel → edge host)
+        private final Map<Uri, Uri> directFinal = new LinkedHashMap<Uri, Uri>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Uri, Uri> eldest) {
+                return size() > MAX_REDIRECTS;
+            }
+        };
+
+        void rememberRedirect(Uri requested, Uri actual) {
+            synchronized (directFinal) {
+                directFinal.put(requested, actual);
+            }
+        }
+
+        @Nullable
+        Uri redirectOf(Uri requested) {
+            synchronized (directFinal) {
+                return directFinal.get(requested);
+            }
+        }
+
+        public int getDirectOk() {
+            return directOk.get();
+        }
+
+        public int getProxyOk() {
+            return proxyOk.get();
+        }
+
+        public int getFallbacks() {
+            return fallbacks.get();
+        }
+
+        /** e.g. {@code direct=412/3 proxy=9/0 fallbacks=3} (ok/failed). */
+        public String describe() {
+            return "direct=" + directOk.get() + "/" + directFailed.get()
+                    + " proxy=" + proxyOk.get() + "/" + proxyFailed.get()
+                    + " fallbacks=" + fallbacks.get();
+        }
+    }
+
+    public static class Factory implements DataSource.Factory {
+        private final DataSource.Factory upstreamFactory;
+        private final Uri proxyTemplate;
+        private final RouteStats stats;
+
+        /**
+         * @param proxyMasterUrl the session's proxy URL for the master playlist;
+         *                       its endpoint and token are reused for every request
+         */
+        public Factory(DataSource.Factory upstreamFactory, String proxyMasterUrl, RouteStats stats) {
+            this.upstreamFactory = upstreamFactory;
+            this.proxyTemplate = Uri.parse(proxyMasterUrl);
+            this.stats = stats;
+        }
+
+        @Override
+        public DataSource createDataSource() {
+            return new RouteFallbackDataSource(upstreamFactory.createDataSource(), proxyTemplate, stats);
+        }
+    }
+
+    private final DataSource upstream;
+    private final Uri proxyTemplate;
+    private final RouteStats stats;
+    private Uri directUri;
+    private boolean viaProxy;
+
+    public RouteFallbackDataSource(DataSource upstream, Uri proxyTemplate, RouteStats stats) {
+        this.upstream = upstream;
+        this.proxyTemplate = proxyTemplate;
+        this.stats = stats;
+    }
+
+    @Override
+    public void addTransferListener(TransferListener transferListener) {
+        upstream.addTransferListener(transferListener);
+    }
+
+    @Override
+    public long open(DataSpec dataSpec) throws IOException {
+        directUri = unwrap(dataSpec.uri);
+        DataSpec direct = dataSpec.buildUpon().setUri(directUri).build();
+
+        if (SystemClock.elapsedRealtime() < stats.proxyUntil) {
+            return openProxy(direct);
+        }
+        try {
+            viaProxy = false;
+            long length = upstream.open(direct);
+            stats.directOk.incrementAndGet();
+            Uri actual = upstream.getUri();
+            if (actual != null && !actual.equals(directUri)) stats.rememberRedirect(directUri, actual);
+            return length;
+        } catch (IOException e) {
+            stats.directFailed.incrementAndGet();
+            if (!worthProxying(e)) throw e;
+            upstream.close();
+            stats.fallbacks.incrementAndGet();
+            stats.proxyUntil = SystemClock.elapsedRealtime() + PROXY_COOLDOWN_MS;
+            Log.w(TAG, "Direct request failed (" + e.getMessage() + "), retrying through proxy: "
+                    + directUri.getLastPathSegment());
+            return openProxy(direct);
+        }
+    }
+
+    private long openProxy(DataSpec direct) throws IOException {
+        viaProxy = true;
+        try {
+            long length = upstream.open(direct.buildUpon().setUri(wrap(direct.uri)).build());
+            stats.proxyOk.incrementAndGet();
+            return length;
+        } catch (IOException e) {
+            stats.proxyFailed.incrementAndGet();
+            throw e;
+        }
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        try {
+            return upstream.read(buffer, offset, length);
+        } catch (IOException e) {
+            // A transfer dying mid-body on direct sends the player's retry to the proxy
+            if (!viaProxy) {
+                stats.directFailed.incrementAndGet();
+                stats.proxyUntil = SystemClock.elapsedRealtime() + PROXY_COOLDOWN_MS;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Report a direct URI so relative playlist entries keep resolving against
+     * the direct server: where this URI last redirected to (usually an edge
+     * host), or the proxy's own redirect target, before the bare request URI.
+     */
+    @Nullable
+    @Override
+    public Uri getUri() {
+        if (!viaProxy) return upstream.getUri();
+        Uri actual = upstream.getUri();
+        if (actual != null && !isProxyUrl(actual)) return actual;
+        Uri redirected = directUri != null ? stats.redirectOf(directUri) : null;
+        return redirected != null ? redirected : directUri;
+    }
+
+    @Override
+    public Map<String, List<String>> getResponseHeaders() {
+        return upstream.getResponseHeaders();
+    }
+
+    @Override
+    public void close() throws IOException {
+        directUri = null;
+        upstream.close();
+    }
+
+    // ── URL mapping ──────────────────────────────────────────
+
+    private boolean isProxyUrl(Uri uri) {
+        return proxyTemplate.getPath() != null
+                && proxyTemplate.getPath().equals(uri.getPath())
+                && uri.getQueryParameter("url") != null;
+    }
+
+    private Uri unwrap(Uri uri) {
+        return isProxyUrl(uri) ? Uri.parse(uri.getQueryParameter("url")) : uri;
+    }
+
+    /** The proxy endpoint with this request's URL, keeping the session's token and channel. */
+    private Uri wrap(Uri uri) {
+        Uri.Builder builder = proxyTemplate.buildUpon().clearQuery()
+                .appendQueryParameter("url", uri.toString());
+        for (String name : proxyTemplate.getQueryParameterNames()) {
+            if ("url".equals(name)) continue;
+            String value = proxyTemplate.getQueryParameter(name);
+            if (value != null) builder.appendQueryParameter(name, value);
+        }
+        return builder.build();
+    }
+
+    /** Connection trouble, server errors and blocks may clear via the proxy; a 404 will not. */
+    private static boolean worthProxying(IOException e) {
+        if (e instanceof HttpDataSource.InvalidResponseCodeException) {
+            String errorClass = ErrorClassifier.classifyStatus(
+                    ((HttpDataSource.InvalidResponseCodeException) e).responseCode);
+            return ErrorClassifier.CLASS_SERVER.equals(errorClass)
+                    || ErrorClassifier.CLASS_AUTH.equals(errorClass);
+        }
+        return e instanceof HttpDataSource.HttpDataSourceException;
+    }
+}
@@ -0,0 +1,276 @@
+package com.iptv.manager;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.iptv.manager.playback.PlaybackTuning;
+
+import org.json.JSONObject;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Persistent route-health table keyed by server host and channel id.
+ * Records direct/proxy successes and failures, time to first frame and the
+ * route that last worked. Counts decay with a half-life so a route that has
+ * recovered gets tried again.
+ */
+public class RouteHealthStore {
+
+    private static final String TAG = "RouteHealthStore";
+    private static final String PREFS_NAME = "route_health";
+    private static final String PROXY_PATH = "/api/proxy/hls";
+
+    public static final String ROUTE_DIRECT = "direct";
+    public static final String ROUTE_PROXY = "proxy";
+
+    private static final long HALF_LIFE_MS = 6 * 60 * 60 * 1000L; // 6h
+    private static final int MAX_ENTRIES = 400;
+    /** Running count of stored entries, so saves don't have to load the whole table. */
+    private static final String KEY_COUNT = "n";
+    /** PlayerActivity's own cap, so a healthy route keeps ErrorClassifier's full budgets. */
+    private static final int FULL_RETRIES = PlaybackTuning.MAX_ERROR_RETRIES;
+    private static final int SHORT_RETRIES = 2;
+    /** Decayed samples needed before a middling score counts as mixed rather than just thin. */
+    private static final double MIN_MIXED_SAMPLES = 3;
+
+    private static final AtomicBoolean pruning = new AtomicBoolean();
+
+    private final SharedPreferences prefs;
+
+    public RouteHealthStore(Context context) {
+        prefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /** Route a stream URL belongs to. */
+    public static String routeOf(String url) {
+        return url != null && url.contains(PROXY_PATH) ? ROUTE_PROXY : ROUTE_DIRECT;
+    }
+
+    // ── Data model ──────────────────────────────────────────────
+
+    static class Entry {
+        double directOk;
+        double directFail;
+        double proxyOk;
+        double proxyFail;
+        long ttffMs;
+        String lastRoute;
+        long updatedAt;
+
+        /** Decay all counts towards zero based on time since the last update. */
+        void decay(long now) {
+            if (updatedAt <= 0 || now <= updatedAt) return;
+            double factor = Math.pow(0.5, (double) (now - updatedAt) / HALF_LIFE_MS);
+            directOk *= factor;
+            directFail *= factor;
+            proxyOk *= factor;
+            proxyFail *= factor;
+        }
+
+        /** Laplace-smoothed success rate, 0.5 with no data. */
+        double directScore() {
+            return (directOk + 1) / (directOk + directFail + 2);
+        }
+
+        double proxyScore() {
+            return (proxyOk + 1) / (proxyOk + proxyFail + 2);
+        }
+
+        double samples() {
+            return directOk + directFail + proxyOk + proxyFail;
+        }
+
+        double failures() {
+            return directFail + proxyFail;
+        }
+
+        static Entry fromJson(String raw) {
+            Entry e = new Entry();
+            if (raw == null) return e;
+            try {
+                JSONObject obj = new JSONObject(raw);
+                e.directOk = obj.optDouble("do", 0);
+                e.directFail = obj.optDouble("df", 0);
+                e.proxyOk = obj.optDouble("po", 0);
+                e.proxyFail = obj.optDouble("pf", 0);
+                e.ttffMs = obj.optLong("ttff", 0);
+                e.lastRoute = obj.optString("route", null);
+                e.updatedAt = obj.optLong("at", 0);
+            } catch (Exception ignored) {
+                // Corrupt entry — start over
+            }
+            return e;
+        }
+
+        String toJson() {
+            try {
+                JSONObject obj = new JSONObject();
+                obj.put("do", directOk);
+                obj.put("df", directFail);
+                obj.put("po", proxyOk);
+                obj.put("pf", proxyFail);
+                obj.put("ttff", ttffMs);
+                if (lastRoute != null) obj.put("route", lastRoute);
+                obj.put("at", updatedAt);
+                return obj.toString();
+            } catch (Exception e) {
+                return null;
+            }
+        }
+    }
+
+    /** Where to start a channel, how often to retry it before falling back, and whether to race. */
+    public static class Decision {
+        public final String startRoute;
+        public final int maxRetries;
+        public final boolean race;
+
+        Decision(String startRoute, int maxRetries, boolean race) {
+            this.startRoute = startRoute;
+            this.maxRetries = maxRetries;
+            this.race = race;
+        }
+    }
+
+    // ── Recording ───────────────────────────────────────────────
+
+    public void recordSuccess(String server, String channelId, String route, long ttffMs) {
+        update(channelKey(server, channelId), route, true, ttffMs);
+        update(serverKey(server), route, true, ttffMs);
+    }
+
+    public void recordFailure(String server, String channelId, String route) {
+        update(channelKey(server, channelId), route, false, 0);
+        update(serverKey(server), route, false, 0);
+    }
+
+    /** Remember which route won a start-up race, without counting it as playback. */
+    public void recordRaceWinner(String server, String route) {
+        String key = serverKey(server);
+        Entry e = Entry.fromJson(prefs.getString(key, null));
+        e.lastRoute = route;
+        save(key, e);
+    }
+
+    /** Route that last worked for this server, or null if unknown. */
+    public String getPreferredRoute(String server) {
+        return Entry.fromJson(prefs.getString(serverKey(server), null)).lastRoute;
+    }
+
+    private void update(String key, String route, boolean success, long ttffMs) {
+        long now = System.currentTimeMillis();
+        Entry e = Entry.fromJson(prefs.getString(key, null));
+        e.decay(now);
+        if (ROUTE_PROXY.equals(route)) {
+            if (success) e.proxyOk++; else e.proxyFail++;
+        } else {
+            if (success) e.directOk++; else e.directFail++;
+        }
+        if (success) {
+            e.lastRoute = route;
+            if (ttffMs > 0) e.ttffMs = ttffMs;
+        }
+        e.updatedAt = now;
+        save(key, e);
+    }
+
+    private void save(String key, Entry e) {
+        String json = e.toJson();
+        if (json == null) return;
+        SharedPreferences.Editor editor = prefs.edit().putString(key, json);
+        int count = prefs.getInt(KEY_COUNT, 0);
+        if (!prefs.contains(key)) editor.putInt(KEY_COUNT, ++count);
+        editor.apply();
+        if (count > MAX_ENTRIES && pruning.compareAndSet(false, true)) {
+            new Thread(this::prune, "RouteHealthPrune").start();
+        }
+    }
+
+    /** Drop the stalest entries once the table grows past {@link #MAX_ENTRIES}; runs off the main thread. */
+    private void prune() {
+        try {
+            Map<String, ?> all = new HashMap<>(prefs.getAll());
+            all.remove(KEY_COUNT);
+            int size = all.size();
+            int toRemove = size - MAX_ENTRIES / 2;
+            if (toRemove <= 0) {
+                prefs.edit().putInt(KEY_COUNT, size).apply();
+                return;
+            }
+            // Two passes: find the age cutoff, then drop everything older
+            long[] ages = new long[size];
+            int i = 0;
+            for (Object v : all.values()) {
+                ages[i++] = Entry.fromJson(v instanceof String ? (String) v : null).updatedAt;
+            }
+            Arrays.sort(ages);
+            long cutoff = ages[Math.min(toRemove, ages.length - 1)];
+            SharedPreferences.Editor editor = prefs.edit();
+            int removed = 0;
+            for (Map.Entry<String, ?> kv : all.entrySet()) {
+                Object v = kv.getValue();
+                if (Entry.fromJson(v instanceof String ? (String) v : null).updatedAt < cutoff) {
+                    editor.remove(kv.getKey());
+                    removed++;
+                }
+            }
+            editor.putInt(KEY_COUNT, size - removed).apply();
+            Log.d(TAG, "Pruned route table to " + (size - removed) + " entries");
+        } finally {
+            pruning.set(false);
+        }
+    }
+
+    // ── Decision ────────────────────────────────────────────────
+
+    /**
+     * Pick the starting route and retry budget. Channel history wins when it
+     * has data; otherwise the server-wide history is used. With little or mixed
+     * evidence both routes are raced. Direct successes with no failures keep
+     * direct and the full budget (one clean success only scores 2/3 once
+     * smoothed), and retries are only shortened once there are enough samples
+     * to call the history mixed.
+     */
+    public Decision decide(String server, String channelId) {
+        long now = System.currentTimeMillis();
+        Entry ch = Entry.fromJson(prefs.getString(channelKey(server, channelId), null));
+        Entry srv = Entry.fromJson(prefs.getString(serverKey(server), null));
+        ch.decay(now);
+        srv.decay(now);
+        Entry e = ch.samples() >= 1 ? ch : srv;
+
+        if (e.samples() < 1) {
+            return new Decision(ROUTE_DIRECT, FULL_RETRIES, true);
+        }
+
+        double direct = e.directScore();
+        double proxy = e.proxyScore();
+        if (direct < 0.3 && proxy > direct) {
+            // Direct keeps failing — start on proxy and keep direct as the fallback
+            return new Decision(ROUTE_PROXY, FULL_RETRIES, false);
+        }
+        if (direct >= 0.7 || (e.directOk > 0 && e.failures() < 0.5)) {
+            // Good history, or direct has worked and nothing has failed yet
+            return new Decision(ROUTE_DIRECT, FULL_RETRIES, false);
+        }
+        if (e.samples() < MIN_MIXED_SAMPLES) {
+            // Too little history to judge: race, but keep the full budget
+            return new Decision(ROUTE_DIRECT, FULL_RETRIES, true);
+        }
+        // Mixed history: race both and keep direct retries short
+        return new Decision(ROUTE_DIRECT, SHORT_RETRIES, true);
+    }
+
+    private static String channelKey(String server, String channelId) {
+        return "c:" + server + "|" + channelId;
+    }
+
+    private static String serverKey(String server) {
+        return "s:" + server;
+    }
+}
@@ -0,0 +1,201 @@
+package com.iptv.manager;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.os.Build;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.OptIn;
+import androidx.media3.common.C;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.analytics.AnalyticsListener;
+import androidx.media3.exoplayer.hls.playlist.DefaultHlsPlaylistParserFactory;
+import androidx.media3.exoplayer.hls.playlist.HlsMediaPlaylist;
+import androidx.media3.exoplayer.hls.playlist.HlsMultivariantPlaylist;
+import androidx.media3.exoplayer.hls.playlist.HlsPlaylist;
+import androidx.media3.exoplayer.hls.playlist.HlsPlaylistParserFactory;
+import androidx.media3.exoplayer.source.LoadEventInfo;
+import androidx.media3.exoplayer.source.MediaLoadData;
+import androidx.media3.exoplayer.upstream.ParsingLoadable;
+
+import java.io.InputStream;
+
+/**
+ * Time-to-first-frame breakdown for one playback start, from the click in
+ * MainActivity.playChannel to the first rendered frame. Each phase is stamped
+ * once with elapsedRealtime; the session ends up as one compact record such as
+ * {@code create=42 route=310 manifest=520 ... first_frame=1480}. Per-server,
+ * per-device histograms of every phase are kept in SharedPreferences so
+ * percentiles can be reported alongside the record.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class StartupTracer implements AnalyticsListener {
+
+    private static final String TAG = "StartupTracer";
+    private static final String PREFS_NAME = "startup_stats";
+
+    // Phases in the order they normally happen
+    public static final int CLICK = 0;
+    public static final int CREATE = 1;
+    public static final int ROUTE = 2;
+    public static final int MANIFEST = 3;
+    public static final int MEDIA_PLAYLIST = 4;
+    public static final int FIRST_SEGMENT = 5;
+    public static final int DECODER = 6;
+    public static final int FIRST_FRAME = 7;
+    private static final String[] PHASE_NAMES = {
+            "click", "create", "route", "manifest", "media_playlist",
+            "first_segment", "decoder", "first_frame"
+    };
+
+    private final long[] marks = new long[PHASE_NAMES.length];
+    private long dnsMs = -1;
+    private long connectMs = -1;
+    private long tlsMs = -1;
+    private boolean connReused;
+
+    public StartupTracer(long clickTimeMs) {
+        for (int i = 0; i < marks.length; i++) marks[i] = -1;
+        marks[CLICK] = clickTimeMs > 0 ? clickTimeMs : SystemClock.elapsedRealtime();
+    }
+
+    /** Stamp a phase. Only the first stamp counts — retries do not move it. */
+    public synchronized void mark(int phase) {
+        if (marks[phase] < 0) {
+            marks[phase] = SystemClock.elapsedRealtime();
+        }
+    }
+
+    public boolean reachedFirstFrame() {
+        return marks[FIRST_FRAME] >= 0;
+    }
+
+    /**
+     * Copy the shared transport's connection timings for the manifest host:
+     * DNS, TCP and TLS as measured on the real connection, or "reused" when a
+     * pooled connection skipped them all.
+     */
+    private void captureConnection(String host) {
+        NetworkStack.HostTiming timing = NetworkStack.getInstance().timingFor(host);
+        if (timing == null) return;
+        connReused = timing.reused;
+        dnsMs = timing.dnsMs;
+        connectMs = timing.connectMs;
+        tlsMs = timing.tlsMs;
+    }
+
+    // ── Playlist parsing ─────────────────────────────────────
+
+    /**
+     * Playlist parser factory for the HLS source that stamps the playlist phases
+     * by what was parsed: the first playlist of any type is the manifest, and the
+     * first {@link HlsMediaPlaylist} the media playlist. A channel URL that is
+     * already a media playlist so stamps both, and a reload or variant switch
+     * never counts as the media playlist twice.
+     */
+    public HlsPlaylistParserFactory playlistParserFactory() {
+        HlsPlaylistParserFactory defaults = new DefaultHlsPlaylistParserFactory();
+        return new HlsPlaylistParserFactory() {
+            @Override
+            public ParsingLoadable.Parser<HlsPlaylist> createPlaylistParser() {
+                return stamping(defaults.createPlaylistParser());
+            }
+
+            @Override
+            public ParsingLoadable.Parser<HlsPlaylist> createPlaylistParser(
+                    HlsMultivariantPlaylist multivariantPlaylist, HlsMediaPlaylist previousMediaPlaylist) {
+                return stamping(defaults.createPlaylistParser(multivariantPlaylist, previousMediaPlaylist));
+            }
+        };
+    }
+
+    private ParsingLoadable.Parser<HlsPlaylist> stamping(ParsingLoadable.Parser<HlsPlaylist> parser) {
+        return (Uri uri, InputStream in) -> {
+            HlsPlaylist playlist = parser.parse(uri, in);
+            onPlaylistParsed(uri, playlist);
+            return playlist;
+        };
+    }
+
+    private synchronized void onPlaylistParsed(Uri uri, HlsPlaylist playlist) {
+        if (marks[MANIFEST] < 0) {
+            mark(MANIFEST);
+            captureConnection(uri.getHost());
+        }
+        if (playlist instanceof HlsMediaPlaylist) mark(MEDIA_PLAYLIST);
+    }
+
+    // ── AnalyticsListener ────────────────────────────────────
+
+    @Override
+    public void onLoadCompleted(EventTime eventTime, LoadEventInfo loadEventInfo, MediaLoadData mediaLoadData) {
+        if (mediaLoadData.dataType == C.DATA_TYPE_MEDIA) {
+            mark(FIRST_SEGMENT);
+        }
+    }
+
+    @Override
+    public void onVideoDecoderInitialized(EventTime eventTime, String decoderName,
+                                          long initializedTimestampMs, long initializationDurationMs) {
+        mark(DECODER);
+    }
+
+    @Override
+    public void onRenderedFirstFrame(EventTime eventTime, Object output, long renderTimeMs) {
+        mark(FIRST_FRAME);
+    }
+
+    // ── Export ───────────────────────────────────────────────
+
+    /** Compact record: each reached phase as ms since click, plus connection setup. */
+    public synchronized String toRecord() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 1; i < marks.length; i++) {
+            if (marks[i] < 0) continue;
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(PHASE_NAMES[i]).append('=').append(marks[i] - marks[CLICK]);
+        }
+        if (connReused) sb.append(" conn=reused");
+        if (dnsMs >= 0) sb.append(" dns=").append(dnsMs);
+        if (connectMs >= 0) sb.append(" connect=").append(connectMs);
+        if (tlsMs >= 0) sb.append(" tls=").append(tlsMs);
+        if (!reachedFirstFrame()) sb.append(" abandoned");
+        return sb.toString();
+    }
+
+    /**
+     * Add this session to the per-server/device histograms and return a summary
+     * of first-frame percentiles for that key, e.g. {@code n=40 p50=1500 p90=3000}.
+     */
+    public String aggregate(Context context, String server) {
+        SharedPreferences prefs = context.getApplicationContext()
+                .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        String keyPrefix = (server != null ? server : "unknown") + "|" + Build.MODEL + "|";
+        SharedPreferences.Editor editor = prefs.edit();
+        Histogram firstFrame = null;
+        for (int i = 1; i < marks.length; i++) {
+            String key = keyPrefix + PHASE_NAMES[i];
+            Histogram h = Histogram.parse(Histogram.LATENCY_MS_BOUNDS, prefs.getString(key, null));
+            if (marks[i] >= 0) {
+                h.add(marks[i] - marks[CLICK]);
+                editor.putString(key, h.serialize());
+            }
+            if (i == FIRST_FRAME) firstFrame = h;
+        }
+        addSample(prefs, editor, keyPrefix + "dns", dnsMs);
+        addSample(prefs, editor, keyPrefix + "connect", connectMs);
+        addSample(prefs, editor, keyPrefix + "tls", tlsMs);
+        editor.apply();
+        return "n=" + firstFrame.count() + " p50=" + firstFrame.percentile(50)
+                + " p90=" + firstFrame.percentile(90) + " p99=" + firstFrame.percentile(99);
+    }
+
+    private static void addSample(SharedPreferences prefs, SharedPreferences.Editor editor, String key, long ms) {
+        if (ms < 0) return;
+        Histogram h = Histogram.parse(Histogram.LATENCY_MS_BOUNDS, prefs.getString(key, null));
+        h.add(ms);
+        editor.putString(key, h.serialize());
+    }
+}
@@ -0,0 +1,152 @@
+package com.iptv.manager;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+
+/**
+ * Probes the direct and proxy master playlists in parallel at playback start
+ * and reports whichever answers first with a valid manifest. The losing request
+ * is cancelled. The caller's preferred route (the last winner for the server)
+ * gets a short head start.
+ */
+public class StreamRouteRace {
+
+    private static final String TAG = "StreamRouteRace";
+
+    private static final long RACE_TIMEOUT_MS = 6_000;
+    private static final long HEAD_START_MS = 300;
+    private static final int MAX_MANIFEST_BYTES = 64 * 1024;
+
+    public interface Callback {
+        void onWinner(String url, String route, long elapsedMs);
+        void onNoWinner();
+    }
+
+    private static final OkHttpClient CLIENT = NetworkStack.getInstance()
+            .client(NetworkStack.PRIORITY_PLAYBACK)
+            .newBuilder()
+            .connectTimeout(5, TimeUnit.SECONDS)
+            .readTimeout(5, TimeUnit.SECONDS)
+            .build();
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<Call> calls = new ArrayList<>();
+    private final AtomicBoolean decided = new AtomicBoolean(false);
+    private final AtomicInteger failures = new AtomicInteger(0);
+    private Runnable timeoutRunnable;
+
+    /**
+     * Start the race. {@code preferredRoute} may be null. The callback is always
+     * invoked exactly once on the main thread.
+     */
+    public void start(String directUrl, String proxyUrl, String preferredRoute, Callback callback) {
+        long startedAt = SystemClock.elapsedRealtime();
+
+        // The remembered winner goes first; the other route follows after a short head start
+        long directDelay = RouteHealthStore.ROUTE_PROXY.equals(preferredRoute) ? HEAD_START_MS : 0;
+        long proxyDelay = RouteHealthStore.ROUTE_DIRECT.equals(preferredRoute) ? HEAD_START_MS : 0;
+
+        timeoutRunnable = () -> {
+            if (decided.compareAndSet(false, true)) {
+                Log.w(TAG, "No route answered within " + RACE_TIMEOUT_MS + "ms");
+                cancel();
+                callback.onNoWinner();
+            }
+        };
+        mainHandler.postDelayed(timeoutRunnable, RACE_TIMEOUT_MS);
+
+        executor.execute(() -> probe(directUrl, RouteHealthStore.ROUTE_DIRECT, directDelay, startedAt, callback));
+        executor.execute(() -> probe(proxyUrl, RouteHealthStore.ROUTE_PROXY, proxyDelay, startedAt, callback));
+    }
+
+    /** Cancel any in-flight probes. Safe to call more than once. */
+    public void cancel() {
+        if (timeoutRunnable != null) {
+            mainHandler.removeCallbacks(timeoutRunnable);
+        }
+        synchronized (calls) {
+            for (Call call : calls) {
+                call.cancel();
+            }
+            calls.clear();
+        }
+        executor.shutdownNow();
+    }
+
+    private void probe(String url, String route, long delayMs, long startedAt, Callback callback) {
+        Response response = null;
+        try {
+            if (delayMs > 0) Thread.sleep(delayMs);
+            if (decided.get()) return;
+
+            // Playback class: the race is on the critical path to first frame
+            Call call = CLIENT.newCall(NetworkStack.request(url).build());
+            synchronized (calls) {
+                calls.add(call);
+            }
+            response = call.execute();
+            if (response.code() != 200 || response.body() == null) {
+                throw new Exception("Response code: " + response.code());
+            }
+            byte[] manifest = readManifest(response.body().byteStream());
+            if (manifest == null) {
+                throw new Exception("Not an HLS manifest");
+            }
+
+            if (decided.compareAndSet(false, true)) {
+                long elapsed = SystemClock.elapsedRealtime() - startedAt;
+                Log.d(TAG, "Route " + route + " won in " + elapsed + "ms");
+                // Hand the manifest to the player so it does not fetch it again
+                ManifestPrefetcher.getInstance().putMaster(url, response.request().url().toString(), manifest);
+                mainHandler.post(() -> {
+                    cancel();
+                    callback.onWinner(url, route, elapsed);
+                });
+            }
+        } catch (InterruptedException e) {
+            // Lost the race
+        } catch (Exception e) {
+            Log.w(TAG, "Route " + route + " failed: " + e.getMessage());
+            if (failures.incrementAndGet() == 2 && decided.compareAndSet(false, true)) {
+                mainHandler.post(() -> {
+                    cancel();
+                    callback.onNoWinner();
+                });
+            }
+        } finally {
+            if (response != null) response.close();
+        }
+    }
+
+    /** Read the response and return it if it is an HLS manifest, else null. */
+    private static byte[] readManifest(InputStream is) throws Exception {
+        byte[] buf = new byte[MAX_MANIFEST_BYTES];
+        int total = 0;
+        int len;
+        while (total < buf.length && (len = is.read(buf, total, buf.length - total)) != -1) {
+            total += len;
+        }
+        is.close();
+        String body = new String(buf, 0, total, StandardCharsets.UTF_8).trim();
+        if (body.startsWith("\uFEFF")) body = body.substring(1);
+        return body.startsWith("#EXTM3U") ? Arrays.copyOf(buf, total) : null;
+    }
+}
@@ -0,0 +1,390 @@
+package com.iptv.manager;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.Process;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPOutputStream;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+/**
+ * Debug telemetry for /api/debug/report. Callers only build a small JSON event
+ * and drop it into a bounded lock-free ring; one background-priority sender
+ * thread batches events by count and age and sends each batch in one burst
+ * over the shared background connection pool. Every event keeps the endpoint's
+ * usual per-event body ({@code token}, {@code category}, {@code message},
+ * {@code data}); the client timestamp travels as {@code data.ts}. Larger bodies
+ * are gzipped until the server rejects the encoding. While offline, or when a
+ * send fails, the unsent events are spooled to a capped file and replayed
+ * later. Under pressure low-priority events are sampled and then dropped, and
+ * while a stream is playing batches are held longer so telemetry never
+ * competes with segment downloads.
+ */
+public class Telemetry {
+
+    private static final String TAG = "Telemetry";
+    private static final MediaType JSON = MediaType.get("application/json");
+    private static final String PREFS_NAME = "telemetry";
+    private static final String KEY_GZIP_DISABLED = "gzip_disabled";
+    private static final String SPOOL_FILE = "telemetry_spool.jsonl";
+    private static Telemetry instance;
+
+    /** Errors and session summaries — only dropped when the ring is full. */
+    public static final int PRIORITY_HIGH = 2;
+    /** Ordinary state changes. */
+    public static final int PRIORITY_NORMAL = 1;
+    /** Per-rebuffer and similar chatter — sampled first under pressure. */
+    public static final int PRIORITY_LOW = 0;
+
+    private static final int CAPACITY = 256;           // power of two
+    private static final int MASK = CAPACITY - 1;
+    private static final int BATCH_SIZE = 32;
+    private static final long IDLE_FLUSH_MS = 5_000;
+    private static final long PLAYBACK_FLUSH_MS = 60_000;
+    private static final int LOW_SAMPLE_RATE = 4;      // keep 1 in 4 low events under pressure
+    private static final long MAX_SPOOL_BYTES = 512 * 1024;
+    private static final int MAX_SPOOL_REPLAY = 8;     // batches per successful flush
+    private static final int GZIP_MIN_BYTES = 1024;    // smaller bodies gain nothing from gzip
+
+    // ── Ring buffer (multi-producer, single consumer) ────────
+    private final AtomicReferenceArray<JSONObject> slots = new AtomicReferenceArray<>(CAPACITY);
+    private final AtomicLong writeIndex = new AtomicLong();
+    private volatile long readIndex = 0;                // only advanced by the sender
+
+    private final AtomicInteger lowCounter = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong sampledOut = new AtomicLong();
+
+    private final Context appContext;
+    private final SharedPreferences prefs;
+    private final File spoolFile;
+    private final Thread sender;
+    private volatile String baseUrl;
+    private volatile String token;
+    private volatile boolean playbackActive;
+    private volatile boolean flushRequested;
+    private boolean gzipEnabled;
+
+    private Telemetry(Context context) {
+        appContext = context.getApplicationContext();
+        prefs = appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        gzipEnabled = !prefs.getBoolean(KEY_GZIP_DISABLED, false);
+        spoolFile = new File(appContext.getFilesDir(), SPOOL_FILE);
+        sender = new Thread(this::senderLoop, "telemetry-sender");
+        sender.setDaemon(true);
+        sender.start();
+    }
+
+    public static synchronized Telemetry get(Context context) {
+        if (instance == null) {
+            instance = new Telemetry(context);
+        }
+        return instance;
+    }
+
+    /** Server and token used for every following send. */
+    public void configure(String baseUrl, String token) {
+        if (baseUrl != null) this.baseUrl = baseUrl;
+        if (token != null) this.token = token;
+    }
+
+    /** While true, batches are held up to a minute so playback keeps the bandwidth. */
+    public void setPlaybackActive(boolean active) {
+        playbackActive = active;
+        if (!active) LockSupport.unpark(sender);
+    }
+
+    /** Whether a player is running — other background work (e.g. updates) backs off too. */
+    public boolean isPlaybackActive() {
+        return playbackActive;
+    }
+
+    /** Ask the sender to send what it has now (e.g. when the player closes). */
+    public void flushSoon() {
+        flushRequested = true;
+        LockSupport.unpark(sender);
+    }
+
+    // ── Producers (any thread) ───────────────────────────────
+
+    /** Queue an event. Never blocks; returns false if it was sampled out or dropped. */
+    public boolean report(int priority, String category, String message, String... kvPairs) {
+        int used = (int) (writeIndex.get() - readIndex);
+        if (!admit(priority, used)) return false;
+        JSONObject event = new JSONObject();
+        try {
+            event.put("category", category);
+            event.put("message", message);
+            JSONObject data = new JSONObject();
+            for (int i = 0; i + 1 < kvPairs.length; i += 2) {
+                data.put(kvPairs[i], kvPairs[i + 1]);
+            }
+            // Events can sit in a batch for a minute; keep when they happened
+            data.put("ts", System.currentTimeMillis());
+            event.put("data", data);
+        } catch (Exception e) {
+            return false;
+        }
+        if (!offer(event)) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        if (used + 1 >= BATCH_SIZE && !playbackActive) {
+            LockSupport.unpark(sender);
+        }
+        return true;
+    }
+
+    /**
+     * Sampling and drop policy: low events are kept in full below a quarter
+     * full, 1-in-{@value #LOW_SAMPLE_RATE} up to three quarters and dropped
+     * beyond; normal events are dropped beyond three quarters.
+     */
+    private boolean admit(int priority, int used) {
+        if (priority >= PRIORITY_HIGH) return true;
+        if (used >= CAPACITY * 3 / 4) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        if (priority == PRIORITY_LOW && used >= CAPACITY / 4
+                && lowCounter.incrementAndGet() % LOW_SAMPLE_RATE != 0) {
+            sampledOut.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    private boolean offer(JSONObject event) {
+        while (true) {
+            long w = writeIndex.get();
+            if (w - readIndex >= CAPACITY) return false;
+            if (writeIndex.compareAndSet(w, w + 1)) {
+                slots.set((int) (w & MASK), event);
+                return true;
+            }
+        }
+    }
+
+    /** Next published event, or null. Sender thread only. */
+    private JSONObject poll() {
+        long r = readIndex;
+        if (r == writeIndex.get()) return null;
+        int idx = (int) (r & MASK);
+        JSONObject event = slots.get(idx);
+        if (event == null) return null;   // slot claimed but not yet written
+        slots.set(idx, null);
+        readIndex = r + 1;
+        return event;
+    }
+
+    // ── Sender thread ────────────────────────────────────────
+
+    private void senderLoop() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+        List<JSONObject> batch = new ArrayList<>(BATCH_SIZE);
+        long batchStartedAt = 0;
+        while (true) {
+            JSONObject event;
+            while (batch.size() < BATCH_SIZE && (event = poll()) != null) {
+                if (batch.isEmpty()) batchStartedAt = System.currentTimeMillis();
+                batch.add(event);
+            }
+            long maxAge = playbackActive ? PLAYBACK_FLUSH_MS : IDLE_FLUSH_MS;
+            long age = batch.isEmpty() ? 0 : System.currentTimeMillis() - batchStartedAt;
+            boolean due = !batch.isEmpty()
+                    && (flushRequested || age >= maxAge || (batch.size() >= BATCH_SIZE && !playbackActive));
+            if (due) {
+                flushRequested = false;
+                flush(batch);
+                batch.clear();
+                continue;
+            }
+            long waitMs = batch.isEmpty() ? maxAge : Math.max(50, maxAge - age);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(waitMs));
+        }
+    }
+
+    private void flush(List<JSONObject> batch) {
+        JSONArray events = new JSONArray();
+        try {
+            for (JSONObject e : batch) events.put(e);
+            long d = dropped.getAndSet(0);
+            long s = sampledOut.getAndSet(0);
+            if (d > 0 || s > 0) {
+                JSONObject stats = new JSONObject();
+                stats.put("category", "telemetry");
+                stats.put("message", "Events lost under pressure");
+                stats.put("data", new JSONObject().put("dropped", d).put("sampledOut", s)
+                        .put("ts", System.currentTimeMillis()));
+                events.put(stats);
+            }
+        } catch (Exception e) {
+            return;
+        }
+
+        if (!isOnline()) {
+            spool(events.toString());
+            return;
+        }
+        JSONArray unsent = sendAll(events);
+        if (unsent.length() > 0) {
+            spool(unsent.toString());
+            return;
+        }
+        replaySpool();
+    }
+
+    /** Send a batch event by event; returns the events left unsent after a failure (empty when all went). */
+    private JSONArray sendAll(JSONArray events) {
+        JSONArray unsent = new JSONArray();
+        for (int i = 0; i < events.length(); i++) {
+            JSONObject event = events.optJSONObject(i);
+            if (event == null) continue;
+            if (unsent.length() > 0 || !send(event)) unsent.put(event);
+        }
+        return unsent;
+    }
+
+    /** POST one event in the endpoint's per-event shape. False means retry later. */
+    private boolean send(JSONObject event) {
+        String url = baseUrl;
+        String auth = token;
+        if (url == null || auth == null) return false;
+        try {
+            JSONObject json = new JSONObject(event.toString());
+            json.put("token", auth);
+            byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+
+            boolean gzip = gzipEnabled && body.length >= GZIP_MIN_BYTES;
+            int code = post(url, body, gzip);
+            if (gzip && (code == 400 || code == 415)) {
+                // A 400 may just be a bad event; only a plain resend that is
+                // accepted (or an explicit 415) says the encoding was the problem
+                int plain = post(url, body, false);
+                if (code == 415 || plain < 400) {
+                    Log.d(TAG, "Gzip rejected (" + code + "), sending uncompressed from now on");
+                    gzipEnabled = false;
+                    prefs.edit().putBoolean(KEY_GZIP_DISABLED, true).apply();
+                }
+                code = plain;
+            }
+            // 4xx will not get better by retrying
+            if (code >= 400) Log.d(TAG, "Event rejected: " + code);
+            return code < 500;
+        } catch (Exception e) {
+            Log.w(TAG, "Event send failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static int post(String url, byte[] body, boolean gzip) throws Exception {
+        Request.Builder req = NetworkStack.request(url + "/api/debug/report");
+        if (gzip) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length / 4 + 64);
+            try (GZIPOutputStream gz = new GZIPOutputStream(bytes)) {
+                gz.write(body);
+            }
+            body = bytes.toByteArray();
+            req.header("Content-Encoding", "gzip");
+        }
+        OkHttpClient client = NetworkStack.getInstance().client(NetworkStack.PRIORITY_BACKGROUND)
+                .newBuilder()
+                .connectTimeout(5, TimeUnit.SECONDS)
+                .readTimeout(5, TimeUnit.SECONDS)
+                .build();
+        try (Response response = client.newCall(req.post(RequestBody.create(body, JSON)).build()).execute()) {
+            return response.code();
+        }
+    }
+
+    private boolean isOnline() {
+        try {
+            ConnectivityManager cm = (ConnectivityManager) appContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+            NetworkInfo info = cm != null ? cm.getActiveNetworkInfo() : null;
+            return info != null && info.isConnected();
+        } catch (Exception e) {
+            return true;
+        }
+    }
+
+    // ── Disk spool ───────────────────────────────────────────
+
+    private void spool(String line) {
+        if (spoolFile.length() + line.length() > MAX_SPOOL_BYTES) {
+            Log.d(TAG, "Spool full, dropping batch");
+            return;
+        }
+        try (FileWriter w = new FileWriter(spoolFile, true)) {
+            w.write(line);
+            w.write('\n');
+        } catch (Exception e) {
+            Log.w(TAG, "Spool write failed: " + e.getMessage());
+        }
+    }
+
+    /** Send up to {@link #MAX_SPOOL_REPLAY} spooled batches; keep the rest for next time. */
+    private void replaySpool() {
+        if (!spoolFile.exists() || spoolFile.length() == 0) return;
+        List<String> remaining = new ArrayList<>();
+        int sent = 0;
+        try (BufferedReader r = new BufferedReader(new FileReader(spoolFile))) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (line.isEmpty()) continue;
+                if (sent < MAX_SPOOL_REPLAY && remaining.isEmpty()) {
+                    JSONArray spooled;
+                    try {
+                        spooled = new JSONArray(line);
+                    } catch (JSONException e) {
+                        continue; // torn write — drop it
+                    }
+                    JSONArray unsent = sendAll(spooled);
+                    if (unsent.length() == 0) {
+                        sent++;
+                        continue;
+                    }
+                    line = unsent.toString();
+                }
+                remaining.add(line);
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Spool read failed: " + e.getMessage());
+            return;
+        }
+        try (FileOutputStream out = new FileOutputStream(spoolFile, false)) {
+            for (String line : remaining) {
+                out.write(line.getBytes(StandardCharsets.UTF_8));
+                out.write('\n');
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Spool rewrite failed: " + e.getMessage());
+        }
+        if (sent > 0) Log.d(TAG, "Replayed " + sent + " spooled batches");
+    }
+}
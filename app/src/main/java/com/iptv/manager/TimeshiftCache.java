@@ -0,0 +1,428 @@
+package com.iptv.manager;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.OptIn;
+import androidx.media3.common.C;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.database.StandaloneDatabaseProvider;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.DataSourceUtil;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.datasource.TransferListener;
+import androidx.media3.datasource.cache.Cache;
+import androidx.media3.datasource.cache.CacheDataSink;
+import androidx.media3.datasource.cache.CacheDataSource;
+import androidx.media3.datasource.cache.CacheSpan;
+import androidx.media3.datasource.cache.CacheWriter;
+import androidx.media3.datasource.cache.ContentMetadata;
+import androidx.media3.datasource.cache.LeastRecentlyUsedCacheEvictor;
+import androidx.media3.datasource.cache.SimpleCache;
+import androidx.media3.exoplayer.hls.HlsDataSourceFactory;
+
+import com.iptv.manager.playback.RollingPlaylist;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded on-disk LRU cache of live HLS segments for pause / rewind / catch-up.
+ * Media playlists are still fetched every refresh, but the player is handed a
+ * {@link RollingPlaylist} that keeps listing segments the provider has dropped
+ * for as long as they are on disk, up to the timeshift window. While a channel
+ * plays, a recorder thread saves each new segment the player has not fetched
+ * itself (e.g. while paused), so a long pause or rewind plays from disk instead
+ * of falling behind the provider's live window. Segments are written through a
+ * buffered sink, never by the playback thread. Size and window are stored in
+ * SharedPreferences; usage and eviction counters are exposed for diagnostics.
+ */
+@OptIn(markerClass = UnstableApi.class)
+public class TimeshiftCache {
+
+    private static final String TAG = "TimeshiftCache";
+    private static final String PREFS_NAME = "timeshift";
+    private static final String KEY_MAX_MB = "max_mb";
+    private static final String KEY_WINDOW_MIN = "window_minutes";
+    private static final String CACHE_DIR = "timeshift";
+
+    /** Cache size choices offered in the UI (0 = timeshift off). */
+    public static final int[] SIZE_CHOICES_MB = {0, 128, 256, 512};
+    private static final int DEFAULT_WINDOW_MIN = 30;
+    private static final int SINK_BUFFER_BYTES = 64 * 1024;
+    private static final int AGE_TRIM_EVERY_SPANS = 20;
+    /** Give the player this long to fetch a new segment itself before the recorder does. */
+    private static final long RECORD_DELAY_MS = 6_000;
+    /** Nominal HD bitrate used to tell the user roughly how much a cache size holds. */
+    private static final long NOMINAL_HD_BITS_PER_SECOND = 5_000_000;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static TimeshiftCache instance;
+
+    private final SimpleCache cache;
+    private final long maxBytes;
+    private final long windowMs;
+    private final AtomicLong writtenBytes = new AtomicLong();
+    private final AtomicLong evictedBytes = new AtomicLong();
+    private final AtomicLong cacheReadBytes = new AtomicLong();
+    private final AtomicLong recordedBytes = new AtomicLong();
+    private Recording recording;
+
+    private TimeshiftCache(Context context, long maxBytes, long windowMs) {
+        this.maxBytes = maxBytes;
+        this.windowMs = windowMs;
+        File dir = new File(context.getCacheDir(), CACHE_DIR);
+        cache = new SimpleCache(dir, new Evictor(maxBytes), new StandaloneDatabaseProvider(context));
+    }
+
+    // ── Settings ─────────────────────────────────────────────
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    public static boolean isEnabled(Context context) {
+        return getMaxMb(context) > 0;
+    }
+
+    public static int getMaxMb(Context context) {
+        return prefs(context).getInt(KEY_MAX_MB, 0);
+    }
+
+    public static int getWindowMinutes(Context context) {
+        return prefs(context).getInt(KEY_WINDOW_MIN, DEFAULT_WINDOW_MIN);
+    }
+
+    /** Roughly how many minutes of HD video {@code maxMb} holds, capped at the window. */
+    public static int getEstimatedMinutes(Context context, int maxMb) {
+        long minutes = maxMb * 1024L * 1024L * 8 / NOMINAL_HD_BITS_PER_SECOND / 60;
+        return (int) Math.min(minutes, getWindowMinutes(context));
+    }
+
+    /**
+     * Change the cache size. 0 disables timeshift; the cache is then released
+     * and deleted on a background thread, as deleting can take a while.
+     */
+    public static void setMaxMb(Context context, int maxMb) {
+        prefs(context).edit().putInt(KEY_MAX_MB, maxMb).apply();
+        if (maxMb > 0) return;
+        Context app = context.getApplicationContext();
+        new Thread(() -> {
+            synchronized (TimeshiftCache.class) {
+                // Re-enabled in the meantime: keep the cache
+                if (getMaxMb(app) > 0) return;
+                releaseInstance();
+                SimpleCache.delete(new File(app.getCacheDir(), CACHE_DIR), new StandaloneDatabaseProvider(app));
+            }
+            Log.d(TAG, "Timeshift disabled, cache deleted");
+        }, "TimeshiftDelete").start();
+    }
+
+    // ── Instance ─────────────────────────────────────────────
+
+    /**
+     * Shared cache for the current settings, or null when timeshift is off.
+     * A size change takes effect here, on the next playback start.
+     */
+    public static synchronized TimeshiftCache get(Context context) {
+        int maxMb = getMaxMb(context);
+        if (maxMb <= 0) return null;
+        long maxBytes = maxMb * 1024L * 1024L;
+        long windowMs = getWindowMinutes(context) * 60_000L;
+        if (instance != null && (instance.maxBytes != maxBytes || instance.windowMs != windowMs)) {
+            releaseInstance();
+        }
+        if (instance == null) {
+            instance = new TimeshiftCache(context.getApplicationContext(), maxBytes, windowMs);
+            Log.d(TAG, "Timeshift cache opened: " + maxMb + "MB, " + (windowMs / 60_000) + " min");
+        }
+        return instance;
+    }
+
+    private static void releaseInstance() {
+        if (instance != null) {
+            instance.stopRecording();
+            instance.cache.release();
+            instance = null;
+        }
+    }
+
+    /**
+     * Wrap an upstream factory for one playback: media segments are written to
+     * and served from the cache, media playlists are rolled so recorded segments
+     * stay listed, and keys bypass the cache. Stops the previous playback's
+     * recorder.
+     */
+    public HlsDataSourceFactory wrap(DataSource.Factory upstreamFactory) {
+        CacheDataSource.Factory cachedFactory = new CacheDataSource.Factory()
+                .setCache(cache)
+                .setUpstreamDataSourceFactory(upstreamFactory)
+                .setCacheWriteDataSinkFactory(new CacheDataSink.Factory()
+                        .setCache(cache)
+                        .setBufferSize(SINK_BUFFER_BYTES))
+                .setFlags(CacheDataSource.FLAG_IGNORE_CACHE_ON_ERROR)
+                .setEventListener(new CacheDataSource.EventListener() {
+                    @Override
+                    public void onCachedBytesRead(long cacheSizeBytes, long cachedBytesRead) {
+                        cacheReadBytes.addAndGet(cachedBytesRead);
+                    }
+
+                    @Override
+                    public void onCacheIgnored(int reason) {
+                    }
+                });
+        Recording current = new Recording(cachedFactory);
+        synchronized (this) {
+            if (recording != null) recording.stop();
+            recording = current;
+        }
+        return dataType -> {
+            switch (dataType) {
+                case C.DATA_TYPE_MEDIA:
+                    return cachedFactory.createDataSource();
+                case C.DATA_TYPE_MANIFEST:
+                    return new RollingPlaylistDataSource(upstreamFactory.createDataSource(), current);
+                default:
+                    return upstreamFactory.createDataSource();
+            }
+        };
+    }
+
+    /** Stop recording for the current playback (the player is being released). */
+    public synchronized void stopRecording() {
+        if (recording != null) {
+            recording.stop();
+            recording = null;
+        }
+    }
+
+    /** Whether the whole of a segment is on disk. */
+    private boolean isFullyCached(String uri) {
+        long length = ContentMetadata.getContentLength(cache.getContentMetadata(uri));
+        return length != C.LENGTH_UNSET && cache.isCached(uri, 0, length);
+    }
+
+    /**
+     * One playback's rolling playlists (one per variant, keyed by request URI)
+     * and the single recorder thread that saves their new segments.
+     */
+    private class Recording {
+        private final CacheDataSource.Factory cachedFactory;
+        private final Map<String, RollingPlaylist> playlists = new HashMap<>();
+        private final ScheduledExecutorService recorder = Executors.newSingleThreadScheduledExecutor();
+        private volatile CacheWriter writer;
+        private volatile boolean stopped;
+
+        Recording(CacheDataSource.Factory cachedFactory) {
+            this.cachedFactory = cachedFactory;
+        }
+
+        RollingPlaylist playlist(String uri) {
+            synchronized (playlists) {
+                RollingPlaylist playlist = playlists.get(uri);
+                if (playlist == null) {
+                    playlist = new RollingPlaylist(windowMs, TimeshiftCache.this::isFullyCached);
+                    playlists.put(uri, playlist);
+                }
+                return playlist;
+            }
+        }
+
+        void record(List<String> uris) {
+            for (String uri : uris) {
+                try {
+                    recorder.schedule(() -> recordSegment(uri), RECORD_DELAY_MS, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    return; // stopped
+                }
+            }
+        }
+
+        private void recordSegment(String uri) {
+            // Normally the player has fetched it by now; only a paused or
+            // rewound player leaves it to the recorder
+            if (stopped || isFullyCached(uri)) return;
+            CacheWriter w = new CacheWriter(cachedFactory.createDataSource(), new DataSpec(Uri.parse(uri)),
+                    null, (requestLength, bytesCached, newBytesCached) -> recordedBytes.addAndGet(newBytesCached));
+            writer = w;
+            try {
+                w.cache();
+            } catch (IOException e) {
+                if (!stopped) Log.d(TAG, "Recording segment failed: " + e.getMessage());
+            } finally {
+                writer = null;
+            }
+        }
+
+        void stop() {
+            stopped = true;
+            recorder.shutdownNow();
+            CacheWriter w = writer;
+            if (w != null) w.cancel();
+        }
+    }
+
+    /**
+     * Loads a playlist in full and hands the player its {@link RollingPlaylist}
+     * version; new segments it lists are queued for recording.
+     */
+    private static class RollingPlaylistDataSource implements DataSource {
+        private final DataSource upstream;
+        private final Recording recording;
+        private byte[] data;
+        private int readPosition;
+        private Uri uri;
+        private Map<String, List<String>> responseHeaders = Collections.emptyMap();
+
+        RollingPlaylistDataSource(DataSource upstream, Recording recording) {
+            this.upstream = upstream;
+            this.recording = recording;
+        }
+
+        @Override
+        public void addTransferListener(TransferListener transferListener) {
+            upstream.addTransferListener(transferListener);
+        }
+
+        @Override
+        public long open(DataSpec dataSpec) throws IOException {
+            byte[] raw;
+            try {
+                upstream.open(dataSpec);
+                raw = DataSourceUtil.readToEnd(upstream);
+                // Post-redirect URL, which relative segment URIs resolve against
+                uri = upstream.getUri();
+                responseHeaders = upstream.getResponseHeaders();
+            } finally {
+                upstream.close();
+            }
+            RollingPlaylist playlist = recording.playlist(dataSpec.uri.toString());
+            String rolled = playlist.update(new String(raw, UTF_8), (uri != null ? uri : dataSpec.uri).toString());
+            recording.record(playlist.drainAdded());
+            data = rolled.getBytes(UTF_8);
+            readPosition = 0;
+            return data.length;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (length == 0) return 0;
+            if (readPosition == data.length) return C.RESULT_END_OF_INPUT;
+            int n = Math.min(length, data.length - readPosition);
+            System.arraycopy(data, readPosition, buffer, offset, n);
+            readPosition += n;
+            return n;
+        }
+
+        @Nullable
+        @Override
+        public Uri getUri() {
+            return uri;
+        }
+
+        @Override
+        public Map<String, List<String>> getResponseHeaders() {
+            return responseHeaders;
+        }
+
+        @Override
+        public void close() {
+            data = null;
+            uri = null;
+        }
+    }
+
+    // ── Observability ────────────────────────────────────────
+
+    public long getUsedBytes() {
+        return cache.getCacheSpace();
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long getWrittenBytes() {
+        return writtenBytes.get();
+    }
+
+    public long getEvictedBytes() {
+        return evictedBytes.get();
+    }
+
+    /** Bytes the recorder fetched because the player had not (e.g. while paused). */
+    public long getRecordedBytes() {
+        return recordedBytes.get();
+    }
+
+    /** Bytes served from disk instead of the network (rewind / catch-up). */
+    public long getCacheReadBytes() {
+        return cacheReadBytes.get();
+    }
+
+    /** One-line summary for logs and debug reports. */
+    public String describe() {
+        return "used=" + (getUsedBytes() / 1024) + "KB/" + (maxBytes / 1024) + "KB"
+                + " written=" + (getWrittenBytes() / 1024) + "KB"
+                + " evicted=" + (getEvictedBytes() / 1024) + "KB"
+                + " recorded=" + (getRecordedBytes() / 1024) + "KB"
+                + " fromCache=" + (getCacheReadBytes() / 1024) + "KB";
+    }
+
+    /**
+     * LRU by size, plus age-based trimming so nothing older than the timeshift
+     * window is kept even when the cache is not yet full.
+     */
+    private class Evictor extends LeastRecentlyUsedCacheEvictor {
+        private int spansSinceTrim = 0;
+
+        Evictor(long maxBytes) {
+            super(maxBytes);
+        }
+
+        @Override
+        public void onSpanAdded(Cache cache, CacheSpan span) {
+            writtenBytes.addAndGet(span.length);
+            super.onSpanAdded(cache, span);
+            if (++spansSinceTrim >= AGE_TRIM_EVERY_SPANS) {
+                spansSinceTrim = 0;
+                trimOlderThanWindow(cache);
+            }
+        }
+
+        @Override
+        public void onSpanRemoved(Cache cache, CacheSpan span) {
+            evictedBytes.addAndGet(span.length);
+            super.onSpanRemoved(cache, span);
+        }
+
+        private void trimOlderThanWindow(Cache cache) {
+            long cutoff = System.currentTimeMillis() - windowMs;
+            List<CacheSpan> stale = new ArrayList<>();
+            for (String key : cache.getKeys()) {
+                NavigableSet<CacheSpan> spans = cache.getCachedSpans(key);
+                for (CacheSpan span : spans) {
+                    if (span.lastTouchTimestamp < cutoff) stale.add(span);
+                }
+            }
+            for (CacheSpan span : stale) {
+                cache.removeSpan(span);
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.iptv.manager;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.media.MediaCodecInfo;
+import android.media.MediaCodecList;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.media3.common.PlaybackException;
+
+import java.util.Locale;
+
+/**
+ * Tunneled playback for PlayerActivity: video frames go straight from the
+ * decoder to the display with A/V sync done in hardware, which saves the app
+ * thread work that drops frames on low-end sticks. Off by default; once the
+ * user opts in to "auto" it is requested when a video decoder advertises
+ * FEATURE_TunneledPlayback, unless tunneling has failed on this device. The
+ * decoder probe runs on a background thread and its result is kept per OS
+ * build. Dropped frames and played time are counted per mode actually used,
+ * so the two paths can be compared.
+ */
+public class TunnelingMode {
+
+    private static final String TAG = "TunnelingMode";
+    private static final String PREFS_NAME = "tunneling";
+    private static final String KEY_SELECTED = "selected";
+    private static final String KEY_FAILED = "failed";
+    private static final String KEY_FAILURES = "failures";
+    private static final String KEY_PROBED_BUILD = "probed_build";
+    private static final String KEY_SUPPORTED = "supported";
+    /** Failures other than decoder / audio track init that it takes to give up on auto. */
+    private static final int MAX_FAILURES = 3;
+
+    public static final String AUTO = "auto";
+    public static final String OFF = "off";
+
+    public static final String MODE_TUNNELED = "tunneled";
+    public static final String MODE_NORMAL = "normal";
+
+    private static Boolean supported;
+    private static boolean probing;
+
+    private TunnelingMode() {
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    public static String getSelected(Context context) {
+        return prefs(context).getString(KEY_SELECTED, OFF);
+    }
+
+    public static void setSelected(Context context, String selected) {
+        SharedPreferences.Editor editor = prefs(context).edit().putString(KEY_SELECTED, selected);
+        // Picking auto again gives a previously failed device another try
+        if (AUTO.equals(selected)) editor.remove(KEY_FAILED).remove(KEY_FAILURES);
+        editor.apply();
+    }
+
+    /**
+     * Whether the next playback should request tunneling. Never probes on the
+     * caller's thread: until the background probe has answered, this is false.
+     */
+    public static boolean shouldEnable(Context context) {
+        return AUTO.equals(getSelected(context))
+                && !prefs(context).getBoolean(KEY_FAILED, false)
+                && Boolean.TRUE.equals(getSupported(context, null));
+    }
+
+    /**
+     * Count a failure of tunneled playback. A decoder or audio track init
+     * failure stops auto at once; other decoder / audio errors only after
+     * {@value #MAX_FAILURES} of them.
+     */
+    public static void recordFailure(Context context, PlaybackException error) {
+        SharedPreferences prefs = prefs(context);
+        int failures = prefs.getInt(KEY_FAILURES, 0) + 1;
+        boolean giveUp = isInitError(error) || failures >= MAX_FAILURES;
+        prefs.edit()
+                .putInt(KEY_FAILURES, failures)
+                .putBoolean(KEY_FAILED, prefs.getBoolean(KEY_FAILED, false) || giveUp)
+                .apply();
+        Log.d(TAG, "Tunneling failure " + failures + (giveUp ? ", auto disabled on this device" : ""));
+    }
+
+    /**
+     * Decoder tunneling support: the probed answer, or null while it is not
+     * known yet. An unknown answer starts the probe on a background thread and
+     * calls {@code onProbed} on the main thread when it is stored.
+     */
+    public static synchronized Boolean getSupported(Context context, Runnable onProbed) {
+        if (supported != null) return supported;
+        SharedPreferences prefs = prefs(context);
+        if (Build.FINGERPRINT.equals(prefs.getString(KEY_PROBED_BUILD, null))) {
+            supported = prefs.getBoolean(KEY_SUPPORTED, false);
+            return supported;
+        }
+        if (!probing) {
+            probing = true;
+            new Thread(() -> {
+                boolean found = probe();
+                prefs.edit()
+                        .putString(KEY_PROBED_BUILD, Build.FINGERPRINT)
+                        .putBoolean(KEY_SUPPORTED, found)
+                        .apply();
+                synchronized (TunnelingMode.class) {
+                    supported = found;
+                    probing = false;
+                }
+                if (onProbed != null) new Handler(Looper.getMainLooper()).post(onProbed);
+            }, "TunnelingProbe").start();
+        }
+        return null;
+    }
+
+    /** True if any AVC or HEVC decoder supports tunneled playback. Slow — background thread only. */
+    private static boolean probe() {
+        boolean found = false;
+        try {
+            MediaCodecList list = new MediaCodecList(MediaCodecList.REGULAR_CODECS);
+            for (MediaCodecInfo info : list.getCodecInfos()) {
+                if (info.isEncoder()) continue;
+                for (String type : info.getSupportedTypes()) {
+                    if (!"video/avc".equalsIgnoreCase(type) && !"video/hevc".equalsIgnoreCase(type)) continue;
+                    if (info.getCapabilitiesForType(type).isFeatureSupported(
+                            MediaCodecInfo.CodecCapabilities.FEATURE_TunneledPlayback)) {
+                        Log.d(TAG, "Tunneled decoder: " + info.getName() + " (" + type + ")");
+                        found = true;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Codec probe failed: " + e.getMessage());
+        }
+        return found;
+    }
+
+    private static boolean isInitError(PlaybackException error) {
+        return error.errorCode == PlaybackException.ERROR_CODE_DECODER_INIT_FAILED
+                || error.errorCode == PlaybackException.ERROR_CODE_AUDIO_TRACK_INIT_FAILED;
+    }
+
+    /** Decoder and audio sink errors are the ones tunneling can cause; each drops this session to normal. */
+    public static boolean isTunnelingError(PlaybackException error) {
+        switch (error.errorCode) {
+            case PlaybackException.ERROR_CODE_DECODER_INIT_FAILED:
+            case PlaybackException.ERROR_CODE_DECODER_QUERY_FAILED:
+            case PlaybackException.ERROR_CODE_DECODING_FAILED:
+            case PlaybackException.ERROR_CODE_DECODING_FORMAT_UNSUPPORTED:
+            case PlaybackException.ERROR_CODE_AUDIO_TRACK_INIT_FAILED:
+            case PlaybackException.ERROR_CODE_AUDIO_TRACK_WRITE_FAILED:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // ── Metrics ──────────────────────────────────────────────
+
+    public static void recordSession(Context context, String mode, long droppedFrames, long playedMs) {
+        if (playedMs <= 0) return;
+        SharedPreferences prefs = prefs(context);
+        prefs.edit()
+                .putLong(mode + ".dropped", prefs.getLong(mode + ".dropped", 0) + droppedFrames)
+                .putLong(mode + ".played_ms", prefs.getLong(mode + ".played_ms", 0) + playedMs)
+                .apply();
+    }
+
+    /** Dropped frames per minute for one mode, e.g. {@code tunneled: droppedPerMin=0.4 playedMin=310}. */
+    public static String describeMode(Context context, String mode) {
+        SharedPreferences prefs = prefs(context);
+        long dropped = prefs.getLong(mode + ".dropped", 0);
+        long playedMs = prefs.getLong(mode + ".played_ms", 0);
+        float perMin = playedMs > 0 ? dropped * 60_000f / playedMs : 0f;
+        return mode + ": droppedPerMin=" + String.format(Locale.US, "%.1f", perMin)
+                + " playedMin=" + (playedMs / 60_000);
+    }
+
+    /** Both modes side by side, for debug reports. */
+    public static String describeStats(Context context) {
+        String stats = describeMode(context, MODE_TUNNELED) + " " + describeMode(context, MODE_NORMAL);
+        return prefs(context).getBoolean(KEY_FAILED, false) ? stats + " (failed on this device)" : stats;
+    }
+}
@@ -0,0 +1,103 @@
+package com.iptv.manager;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.util.Log;
+
+/**
+ * Keeps the update check off the startup path. MainActivity arms it once the
+ * channel list and its first EPG load are done; the check then runs from a main-looper
+ * IdleHandler, i.e. only when the UI has nothing else to do, and is skipped
+ * while any playback (player or background audio) is running. Checks are at
+ * most one per configured interval, counted in wall-clock time so the
+ * interval survives restarts, from the last time the server answered: a
+ * check that never got through is retried at the next idle moment.
+ */
+public class UpdateScheduler {
+
+    private static final String TAG = "UpdateScheduler";
+    private static final String PREFS_NAME = "update_scheduler";
+    private static final String KEY_INTERVAL_HOURS = "interval_hours";
+    private static final String KEY_LAST_CHECK = "last_check";
+
+    public static final int[] INTERVAL_CHOICES_HOURS = {1, 6, 24, 72};
+    private static final int DEFAULT_INTERVAL_HOURS = 6;
+
+    private final Activity activity;
+    private final SharedPreferences prefs;
+    private boolean started;
+    private volatile boolean checking;
+    private MessageQueue.IdleHandler idleHandler;
+
+    public UpdateScheduler(Activity activity) {
+        this.activity = activity;
+        this.prefs = prefs(activity);
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    public static int getIntervalHours(Context context) {
+        return prefs(context).getInt(KEY_INTERVAL_HOURS, DEFAULT_INTERVAL_HOURS);
+    }
+
+    public static void setIntervalHours(Context context, int hours) {
+        prefs(context).edit().putInt(KEY_INTERVAL_HOURS, hours).apply();
+    }
+
+    // ── Scheduling (main thread) ─────────────────────────────
+
+    /** The channel list and its first EPG load are done (or failed); checks may start. */
+    public void onStartupLoaded() {
+        if (started) return;
+        started = true;
+        arm();
+    }
+
+    /** Re-arm after returning to the list (e.g. from the player). No-op before startup has loaded. */
+    public void arm() {
+        if (!started || checking || idleHandler != null || !isDue()) return;
+        idleHandler = () -> {
+            idleHandler = null;
+            runIfAllowed();
+            return false;   // one shot
+        };
+        Looper.myQueue().addIdleHandler(idleHandler);
+    }
+
+    /** The list is going away (player starting, activity paused). */
+    public void cancel() {
+        if (idleHandler != null) {
+            Looper.myQueue().removeIdleHandler(idleHandler);
+            idleHandler = null;
+        }
+    }
+
+    private boolean isDue() {
+        long intervalMs = getIntervalHours(activity) * 3_600_000L;
+        long last = prefs.getLong(KEY_LAST_CHECK, 0);
+        long now = System.currentTimeMillis();
+        // A clock set backwards counts as due rather than blocking checks for good
+        return now < last || now - last >= intervalMs;
+    }
+
+    private void runIfAllowed() {
+        if (activity.isFinishing() || checking || !isDue()) return;
+        if (Telemetry.get(activity).isPlaybackActive() || AudioPlaybackService.getNowPlaying() != null) {
+            Log.d(TAG, "Playback running, update check deferred");
+            return;
+        }
+        String url = new TokenManager(activity).getBaseUrl();
+        if (url == null) return;
+        Log.d(TAG, "Idle, checking for updates (every " + getIntervalHours(activity) + "h)");
+        checking = true;
+        new AppUpdater(activity, url).checkForUpdate(responded -> {
+            if (responded) prefs.edit().putLong(KEY_LAST_CHECK, System.currentTimeMillis()).apply();
+            checking = false;
+        });
+    }
+}
@@ -0,0 +1,158 @@
+package com.iptv.manager.model;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Catalog operations at 1k / 10k / 100k channels: parsing the /api/channels
+ * response, the sidebar filters, search, group indexing, EPG merge and the
+ * recent filter. Data is generated with a fixed seed so runs are comparable.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CatalogBenchmark {
+
+    private static final int GROUPS = 60;
+    private static final String[] WORDS = {
+            "News", "Sport", "Movies", "Kids", "Music", "Docs", "HD", "FHD", "Live", "Plus"
+    };
+
+    @Param({"1000", "10000", "100000"})
+    public int channels;
+
+    private String channelsJson;
+    private List<Channel> parsed;
+    private Map<String, EpgEntry> epg;
+    private List<String> recentIds;
+    private String someGroup;
+    private ChannelCatalog catalog;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        Random random = new Random(42);
+        JSONArray arr = new JSONArray();
+        for (int i = 0; i < channels; i++) {
+            arr.put(new JSONObject()
+                    .put("id", i)
+                    .put("channel_id", "ch" + i)
+                    .put("name", WORDS[random.nextInt(WORDS.length)] + " "
+                            + WORDS[random.nextInt(WORDS.length)] + " " + i)
+                    .put("group", "Group " + random.nextInt(GROUPS))
+                    .put("favourite", random.nextInt(20) == 0));
+        }
+        channelsJson = new JSONObject().put("channels", arr).toString();
+        parsed = parse(channelsJson);
+
+        epg = new HashMap<>();
+        long now = System.currentTimeMillis() / 1000;
+        for (int i = 0; i < channels; i += 2) {   // EPG for half the channels, as is typical
+            EpgEntry e = new EpgEntry();
+            e.nowTitle = "Programme " + i;
+            e.nextTitle = "Next " + i;
+            e.nowStart = now - 600;
+            e.nowEnd = now + 1200;
+            epg.put("ch" + i, e);
+        }
+
+        recentIds = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            recentIds.add("ch" + random.nextInt(channels));
+        }
+        someGroup = "Group " + (GROUPS / 2);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetCatalog() {
+        catalog = new ChannelCatalog();
+        catalog.setChannels(parsed);
+    }
+
+    private static List<Channel> parse(String json) {
+        JSONArray arr = new JSONObject(json).getJSONArray("channels");
+        List<Channel> list = new ArrayList<>(arr.length());
+        for (int i = 0; i < arr.length(); i++) {
+            JSONObject obj = arr.optJSONObject(i);
+            if (obj != null) list.add(Channel.fromJson(obj));
+        }
+        return list;
+    }
+
+    // ── Benchmarks ───────────────────────────────────────────
+
+    @Benchmark
+    public List<Channel> parseChannels() {
+        return parse(channelsJson);
+    }
+
+    @Benchmark
+    public int setChannels() {
+        catalog.setChannels(parsed);
+        return catalog.getFilteredChannels().size();
+    }
+
+    @Benchmark
+    public int filterAll() {
+        catalog.setFilter(ChannelCatalog.FILTER_ALL, null);
+        return catalog.getFilteredChannels().size();
+    }
+
+    @Benchmark
+    public int filterFavourites() {
+        catalog.setFilter(ChannelCatalog.FILTER_FAVOURITES, null);
+        return catalog.getFilteredChannels().size();
+    }
+
+    @Benchmark
+    public int filterGroup() {
+        catalog.setFilter(ChannelCatalog.FILTER_GROUP, someGroup);
+        return catalog.getFilteredChannels().size();
+    }
+
+    @Benchmark
+    public int search() {
+        catalog.setFilter(ChannelCatalog.FILTER_ALL, null);
+        catalog.setSearch("sport hd");
+        int n = catalog.getFilteredChannels().size();
+        catalog.setSearch("");
+        return n;
+    }
+
+    @Benchmark
+    public List<ChannelCatalog.GroupInfo> groupIndex() {
+        return catalog.getGroups();
+    }
+
+    @Benchmark
+    public int favouriteCount() {
+        return catalog.getFavouriteCount();
+    }
+
+    @Benchmark
+    public List<Channel> epgMerge() {
+        catalog.updateEpg(epg);
+        return catalog.getAllChannels();
+    }
+
+    @Benchmark
+    public int recentFilter() {
+        catalog.setRecentFilter(recentIds);
+        return catalog.getFilteredChannels().size();
+    }
+}
@@ -0,0 +1,185 @@
+package com.iptv.manager.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The channel list and its current filter, independent of any UI. ChannelAdapter
+ * wraps one of these and only adds RecyclerView notifications, so the catalog
+ * logic can be run and benchmarked on a plain JVM.
+ *
+ * Lower-cased names and a channel-id index are built once per
+ * {@link #setChannels}, so search and recent lookups do not redo that work on
+ * every keystroke.
+ */
+public class ChannelCatalog {
+
+    public static final String FILTER_ALL = "all";
+    public static final String FILTER_FAVOURITES = "favourites";
+    public static final String FILTER_GROUP = "group";
+    public static final String FILTER_RECENT = "recent";
+
+    private final List<Channel> allChannels = new ArrayList<>();
+    private final List<Channel> filteredChannels = new ArrayList<>();
+    private final Map<String, Channel> byId = new HashMap<>();
+    private String[] lowerNames = new String[0];
+    private String currentFilter = FILTER_FAVOURITES;
+    private String currentGroup = null;
+    private String searchQuery = "";
+
+    public static class GroupInfo {
+        public final String name;
+        public final int count;
+
+        public GroupInfo(String name, int count) {
+            this.name = name;
+            this.count = count;
+        }
+    }
+
+    // ── Data ─────────────────────────────────────────────────
+
+    public void setChannels(List<Channel> channels) {
+        allChannels.clear();
+        allChannels.addAll(channels);
+        byId.clear();
+        lowerNames = new String[allChannels.size()];
+        for (int i = 0; i < lowerNames.length; i++) {
+            Channel ch = allChannels.get(i);
+            lowerNames[i] = ch.name.toLowerCase(Locale.ROOT);
+            // First occurrence wins, as the old linear scans did
+            if (!byId.containsKey(ch.channelId)) byId.put(ch.channelId, ch);
+        }
+        applyFilter();
+    }
+
+    public List<Channel> getAllChannels() {
+        return allChannels;
+    }
+
+    public List<Channel> getFilteredChannels() {
+        return filteredChannels;
+    }
+
+    // ── Filtering ────────────────────────────────────────────
+
+    public void setFilter(String filter, String group) {
+        currentFilter = filter;
+        currentGroup = group;
+        applyFilter();
+    }
+
+    public void setSearch(String query) {
+        searchQuery = query != null ? query.toLowerCase(Locale.ROOT).trim() : "";
+        applyFilter();
+    }
+
+    public String getCurrentFilter() {
+        return currentFilter;
+    }
+
+    public String getCurrentGroup() {
+        return currentGroup;
+    }
+
+    public boolean isSearching() {
+        return !searchQuery.isEmpty();
+    }
+
+    public void applyFilter() {
+        filteredChannels.clear();
+        boolean searching = !searchQuery.isEmpty();
+
+        for (int i = 0; i < allChannels.size(); i++) {
+            Channel ch = allChannels.get(i);
+            // Search filter
+            if (searching && !lowerNames[i].contains(searchQuery)) {
+                continue;
+            }
+
+            switch (currentFilter) {
+                case FILTER_FAVOURITES:
+                    if (ch.favourite) filteredChannels.add(ch);
+                    break;
+                case FILTER_GROUP:
+                    if (currentGroup != null && currentGroup.equals(ch.group)) {
+                        filteredChannels.add(ch);
+                    }
+                    break;
+                default:
+                    filteredChannels.add(ch);
+                    break;
+            }
+        }
+    }
+
+    // ── EPG updates ──────────────────────────────────────────
+
+    public void updateEpg(Map<String, EpgEntry> epgMap) {
+        for (Channel ch : allChannels) {
+            EpgEntry entry = epgMap.get(ch.channelId);
+            if (entry != null) {
+                ch.epgNowTitle = entry.nowTitle;
+                ch.epgNextTitle = entry.nextTitle;
+                ch.epgNowStart = entry.nowStart;
+                ch.epgNowEnd = entry.nowEnd;
+            }
+        }
+    }
+
+    // ── Favourite toggle ─────────────────────────────────────
+
+    public void updateFavourite(String channelId, boolean favourite) {
+        Channel ch = byId.get(channelId);
+        if (ch != null) ch.favourite = favourite;
+        applyFilter();
+    }
+
+    // ── Recent channels filter ───────────────────────────────
+
+    public void setRecentFilter(List<String> recentIds) {
+        currentFilter = FILTER_RECENT;
+        currentGroup = null;
+        filteredChannels.clear();
+        for (String id : recentIds) {
+            Channel ch = byId.get(id);
+            if (ch != null) filteredChannels.add(ch);
+        }
+    }
+
+    // ── Sidebar data helpers ─────────────────────────────────
+
+    public int getAllCount() {
+        return allChannels.size();
+    }
+
+    public int getFavouriteCount() {
+        int count = 0;
+        for (Channel ch : allChannels) {
+            if (ch.favourite) count++;
+        }
+        return count;
+    }
+
+    /** Unique groups with counts, in order of first appearance. One pass. */
+    public List<GroupInfo> getGroups() {
+        Map<String, int[]> counts = new LinkedHashMap<>();
+        for (Channel ch : allChannels) {
+            int[] count = counts.get(ch.group);
+            if (count == null) {
+                count = new int[1];
+                counts.put(ch.group, count);
+            }
+            count[0]++;
+        }
+        List<GroupInfo> groups = new ArrayList<>(counts.size());
+        for (Map.Entry<String, int[]> e : counts.entrySet()) {
+            groups.add(new GroupInfo(e.getKey(), e.getValue()[0]));
+        }
+        return groups;
+    }
+}
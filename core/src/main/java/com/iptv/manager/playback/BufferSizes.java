@@ -0,0 +1,49 @@
+package com.iptv.manager.playback;
+
+/**
+ * LoadControl buffer durations and byte target for each buffer profile. The
+ * app's BufferProfile picks one per device; the HLS fault harness plays with
+ * the same values.
+ */
+public class BufferSizes {
+
+    // Low-memory sticks: small buffer, still starts fast
+    public static final BufferSizes LOW = new BufferSizes("low",
+            10_000, 20_000, 1_000, 2_000, 12 * 1024 * 1024);
+    // Previous hard-coded defaults, tuned for Fire TV Stick
+    public static final BufferSizes STANDARD = new BufferSizes("standard",
+            15_000, 35_000, 1_200, 2_500, 30 * 1024 * 1024);
+    // Boxes with plenty of RAM: ride out longer network dips
+    public static final BufferSizes HIGH = new BufferSizes("high",
+            20_000, 50_000, 1_500, 3_000, 60 * 1024 * 1024);
+    // Slow or rebuffer-prone networks: wait a little longer before (re)starting
+    public static final BufferSizes RESILIENT = new BufferSizes("resilient",
+            25_000, 50_000, 2_500, 5_000, 40 * 1024 * 1024);
+
+    public static final BufferSizes[] ALL = {LOW, STANDARD, HIGH, RESILIENT};
+
+    public final String name;
+    public final int minBufferMs;
+    public final int maxBufferMs;
+    public final int bufferForPlaybackMs;
+    public final int bufferForPlaybackAfterRebufferMs;
+    public final int targetBufferBytes;
+
+    private BufferSizes(String name, int minBufferMs, int maxBufferMs,
+                        int bufferForPlaybackMs, int bufferForPlaybackAfterRebufferMs,
+                        int targetBufferBytes) {
+        this.name = name;
+        this.minBufferMs = minBufferMs;
+        this.maxBufferMs = maxBufferMs;
+        this.bufferForPlaybackMs = bufferForPlaybackMs;
+        this.bufferForPlaybackAfterRebufferMs = bufferForPlaybackAfterRebufferMs;
+        this.targetBufferBytes = targetBufferBytes;
+    }
+
+    public static BufferSizes byName(String name) {
+        for (BufferSizes s : ALL) {
+            if (s.name.equals(name)) return s;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,34 @@
+package com.iptv.manager.playback;
+
+/**
+ * Full-screen live playback settings that decide start-up and recovery time.
+ * PlayerActivity, LowLatencyController and RouteFallbackDataSource configure
+ * the player from these, and the HLS fault harness models the same numbers,
+ * so a tuning change shows up in the recovery benchmark instead of drifting
+ * away from it. Buffer sizes live in {@link BufferSizes}.
+ */
+public final class PlaybackTuning {
+
+    /** Media data source timeouts: fail fast on connect, allow a slow segment body. */
+    public static final int MEDIA_CONNECT_TIMEOUT_MS = 5_000;
+    public static final int MEDIA_READ_TIMEOUT_MS = 12_000;
+
+    /** Live offset targets: stay 5 s behind the edge, never closer than 2 s, seek to live past 12 s. */
+    public static final long LIVE_TARGET_OFFSET_MS = 5_000;
+    public static final long LIVE_MIN_OFFSET_MS = 2_000;
+    public static final long LIVE_MAX_OFFSET_MS = 12_000;
+    /** Gentle catch-up only. */
+    public static final float LIVE_MAX_PLAYBACK_SPEED = 1.04f;
+
+    /** After a rebuffer, jump to the live edge when further behind than this (standard mode). */
+    public static final long JUMP_TO_LIVE_MS = 10_000;
+
+    /** Cap on retries per error class; the route decision can lower it per channel. */
+    public static final int MAX_ERROR_RETRIES = 6;
+
+    /** How long requests stay on the proxy after a direct request failed over to it. */
+    public static final long PROXY_COOLDOWN_MS = 30_000;
+
+    private PlaybackTuning() {
+    }
+}
@@ -0,0 +1,181 @@
+package com.iptv.manager.playback;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The player's error recovery policy without any player types: per-class
+ * retry budgets, decorrelated-jitter backoff and the recovery clock. The app's
+ * ErrorClassifier maps media3 errors onto the classes here; the HLS fault
+ * harness drives the same policy on a plain JVM. Times are passed in by the
+ * caller so either clock can be used.
+ */
+public class RecoveryPolicy {
+
+    public static final String CLASS_NETWORK = "network";       // connect / read failures, timeouts
+    public static final String CLASS_SERVER = "server";         // 5xx, 429
+    public static final String CLASS_AUTH = "auth";             // 401, 403
+    public static final String CLASS_NOT_FOUND = "not_found";   // 404, 410, 451
+    public static final String CLASS_CLIENT = "client";         // other 4xx
+    public static final String CLASS_CONTENT = "content";       // malformed playlist or container
+    public static final String CLASS_DECODER = "decoder";
+    public static final String CLASS_UNKNOWN = "unknown";
+
+    public static final int ACTION_RETRY = 0;
+    public static final int ACTION_FALLBACK = 1;
+    public static final int ACTION_FAIL = 2;
+    private static final String[] ACTION_NAMES = {"retry", "fallback", "fail"};
+
+    /** Behind-live-window errors are re-prepared at the live edge this many times in a row. */
+    public static final int MAX_BEHIND_LIVE_RETRIES = 3;
+
+    private static final long BASE_DELAY_MS = 500;
+
+    /** One recovery decision. */
+    public static class Decision {
+        public final String errorClass;
+        public final int action;
+        public final long delayMs;
+        public final int attempt;
+        public final int budget;
+
+        Decision(String errorClass, int action, long delayMs, int attempt, int budget) {
+            this.errorClass = errorClass;
+            this.action = action;
+            this.delayMs = delayMs;
+            this.attempt = attempt;
+            this.budget = budget;
+        }
+
+        @Override
+        public String toString() {
+            return errorClass + " -> " + ACTION_NAMES[action]
+                    + (action == ACTION_RETRY ? " in " + delayMs + "ms (" + attempt + "/" + budget + ")" : "");
+        }
+    }
+
+    /** A finished recovery: the first error's class, how long it took and how many decisions. */
+    public static class Recovery {
+        public final String errorClass;
+        public final long recoveryMs;
+        public final int decisions;
+
+        Recovery(String errorClass, long recoveryMs, int decisions) {
+            this.errorClass = errorClass;
+            this.recoveryMs = recoveryMs;
+            this.decisions = decisions;
+        }
+    }
+
+    private final int maxRetries;
+    private final Random random;
+    private final Map<String, Integer> attempts = new HashMap<>();
+    private long lastDelayMs = BASE_DELAY_MS;
+    private long firstErrorAt = 0;
+    private String firstErrorClass;
+    private int decisions = 0;
+
+    /** {@code maxRetries} caps every class's budget (e.g. the caller's own retry limit). */
+    public RecoveryPolicy(int maxRetries) {
+        this(maxRetries, new Random());
+    }
+
+    /** With a seeded {@code random}, for reproducible runs. */
+    public RecoveryPolicy(int maxRetries, Random random) {
+        this.maxRetries = maxRetries;
+        this.random = random;
+    }
+
+    // ── Classification ───────────────────────────────────────
+
+    public static String classifyStatus(int status) {
+        if (status == 401 || status == 403) return CLASS_AUTH;
+        if (status == 404 || status == 410 || status == 451) return CLASS_NOT_FOUND;
+        if (status == 429 || status >= 500) return CLASS_SERVER;
+        return CLASS_CLIENT;
+    }
+
+    /** Retries allowed per class before falling back. Auth and not-found fail fast. */
+    private static int budgetFor(String errorClass) {
+        switch (errorClass) {
+            case CLASS_NETWORK: return 6;
+            case CLASS_SERVER: return 4;
+            case CLASS_UNKNOWN: return 3;
+            case CLASS_CONTENT:
+            case CLASS_DECODER: return 1;
+            default: return 0;
+        }
+    }
+
+    private static long capFor(String errorClass) {
+        switch (errorClass) {
+            case CLASS_NETWORK: return 8_000;
+            case CLASS_SERVER: return 15_000;
+            default: return 4_000;
+        }
+    }
+
+    // ── Decisions ────────────────────────────────────────────
+
+    /**
+     * Decide what to do about an error of {@code errorClass}. {@code retryAfterMs}
+     * is the server's Retry-After (0 if none); {@code canFallBack} says whether
+     * another route is still untried.
+     */
+    public Decision decide(String errorClass, long retryAfterMs, boolean canFallBack, long nowMs) {
+        if (firstErrorAt == 0) {
+            firstErrorAt = nowMs;
+            firstErrorClass = errorClass;
+        }
+        decisions++;
+
+        int budget = Math.min(budgetFor(errorClass), maxRetries);
+        int used = attempts.containsKey(errorClass) ? attempts.get(errorClass) : 0;
+        if (used < budget) {
+            attempts.put(errorClass, used + 1);
+            long delay = nextDelay(errorClass, retryAfterMs);
+            return new Decision(errorClass, ACTION_RETRY, delay, used + 1, budget);
+        } else if (canFallBack) {
+            return new Decision(errorClass, ACTION_FALLBACK, 0, used, budget);
+        } else {
+            return new Decision(errorClass, ACTION_FAIL, 0, used, budget);
+        }
+    }
+
+    /**
+     * Decorrelated jitter: a random delay between the base and three times the
+     * previous delay, capped per class. A server's Retry-After raises the floor.
+     */
+    private long nextDelay(String errorClass, long retryAfterMs) {
+        long cap = capFor(errorClass);
+        long upper = Math.max(BASE_DELAY_MS + 1, Math.min(cap, lastDelayMs * 3));
+        long delay = BASE_DELAY_MS + (long) (random.nextDouble() * (upper - BASE_DELAY_MS));
+        if (retryAfterMs > delay) delay = Math.min(retryAfterMs, cap);
+        lastDelayMs = delay;
+        return delay;
+    }
+
+    /** Start a fresh budget on a new route; the recovery clock keeps running. */
+    public void onRouteChanged() {
+        attempts.clear();
+        lastDelayMs = BASE_DELAY_MS;
+    }
+
+    // ── Recovery clock ───────────────────────────────────────
+
+    /**
+     * Playback is ready again: budgets reset. Returns the finished recovery if
+     * one was in progress, otherwise null.
+     */
+    public Recovery recovered(long nowMs) {
+        attempts.clear();
+        lastDelayMs = BASE_DELAY_MS;
+        if (firstErrorAt == 0) return null;
+        Recovery recovery = new Recovery(firstErrorClass, nowMs - firstErrorAt, decisions);
+        firstErrorAt = 0;
+        firstErrorClass = null;
+        decisions = 0;
+        return recovery;
+    }
+}
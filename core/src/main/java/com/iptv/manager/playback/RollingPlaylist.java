@@ -0,0 +1,249 @@
+package com.iptv.manager.playback;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local rolling copy of one live HLS media playlist, for timeshift. Every
+ * refresh from the provider is merged by media sequence into the segments
+ * already seen, and segments that have left the provider's window stay listed
+ * while they are still on disk and inside the timeshift window. The player so
+ * sees a live window as long as what was recorded rather than the provider's
+ * few minutes, and a long pause or rewind stays seekable.
+ *
+ * <p>Multivariant, VOD, ended and low-latency (partial segment or delta update)
+ * playlists pass through unchanged. Segment, key and map URIs are written out
+ * absolute, so segments kept from older refreshes keep the same cache key.
+ */
+public final class RollingPlaylist {
+
+    /** Where a segment that has left the provider's playlist can still be read from. */
+    public interface SegmentStore {
+        boolean contains(String uri);
+    }
+
+    private static final Pattern ATTR_URI = Pattern.compile("URI=\"([^\"]*)\"");
+
+    private final long windowUs;
+    private final SegmentStore store;
+    private final List<Segment> segments = new ArrayList<>();
+    private final List<String> added = new ArrayList<>();
+    private List<String> header = new ArrayList<>();
+    private long newestSequence = -1;
+
+    public RollingPlaylist(long windowMs, SegmentStore store) {
+        this.windowUs = windowMs * 1000;
+        this.store = store;
+    }
+
+    private static class Segment {
+        long sequence;
+        long discontinuitySequence;
+        String key;
+        String map;
+        final List<String> tags = new ArrayList<>();
+        String uri;
+        long durationUs;
+        boolean byteRange;
+    }
+
+    private static class Parsed {
+        final List<String> header = new ArrayList<>();
+        final List<Segment> segments = new ArrayList<>();
+    }
+
+    /**
+     * Merge a freshly loaded playlist and return the text to hand the player.
+     *
+     * @param playlist playlist body as served
+     * @param baseUri  URI it was served from (after redirects), for relative URIs
+     */
+    public synchronized String update(String playlist, String baseUri) {
+        Parsed parsed = parse(playlist, baseUri);
+        if (parsed == null) {
+            segments.clear();
+            newestSequence = -1;
+            return playlist;
+        }
+        header = parsed.header;
+        merge(parsed.segments);
+        trim(parsed.segments.get(0).sequence);
+        return write();
+    }
+
+    /** URIs of segments first listed since the last call, for recording. Byte-range segments are left out. */
+    public synchronized List<String> drainAdded() {
+        List<String> out = new ArrayList<>(added);
+        added.clear();
+        return out;
+    }
+
+    // ── Merge ───────────────────────────────────────────────────
+
+    private void merge(List<Segment> fresh) {
+        long first = fresh.get(0).sequence;
+        boolean restart = true;
+        if (!segments.isEmpty()) {
+            long ourFirst = segments.get(0).sequence;
+            long ourLast = ourFirst + segments.size() - 1;
+            // Continues our copy if it overlaps or directly follows it, with the
+            // same segment at the shared sequence number
+            restart = first < ourFirst || first > ourLast + 1
+                    || (first <= ourLast && !segments.get((int) (first - ourFirst)).uri.equals(fresh.get(0).uri));
+        }
+        if (restart) {
+            // First load, a gap or a restarted stream: start over from this playlist
+            segments.clear();
+            newestSequence = fresh.get(fresh.size() - 1).sequence;
+        } else {
+            while (!segments.isEmpty() && segments.get(segments.size() - 1).sequence >= first) {
+                segments.remove(segments.size() - 1);
+            }
+        }
+        for (Segment s : fresh) {
+            if (s.sequence > newestSequence) {
+                newestSequence = s.sequence;
+                if (!s.byteRange) added.add(s.uri);
+            }
+            segments.add(s);
+        }
+    }
+
+    /** Drop segments the provider no longer lists once they are outside the window or no longer on disk. */
+    private void trim(long providerFirst) {
+        long totalUs = 0;
+        for (Segment s : segments) totalUs += s.durationUs;
+        while (totalUs > windowUs && segments.get(0).sequence < providerFirst) {
+            totalUs -= segments.remove(0).durationUs;
+        }
+        // What remains before the provider's window must be on disk back to back
+        int lastMissing = -1;
+        for (int i = 0; i < segments.size() && segments.get(i).sequence < providerFirst; i++) {
+            if (!store.contains(segments.get(i).uri)) lastMissing = i;
+        }
+        if (lastMissing >= 0) segments.subList(0, lastMissing + 1).clear();
+    }
+
+    private String write() {
+        StringBuilder sb = new StringBuilder();
+        for (String line : header) sb.append(line).append('\n');
+        Segment first = segments.get(0);
+        sb.append("#EXT-X-MEDIA-SEQUENCE:").append(first.sequence).append('\n');
+        sb.append("#EXT-X-DISCONTINUITY-SEQUENCE:").append(first.discontinuitySequence).append('\n');
+        String key = null;
+        String map = null;
+        for (Segment s : segments) {
+            if (s.key != null ? !s.key.equals(key) : key != null) {
+                sb.append(s.key != null ? s.key : "#EXT-X-KEY:METHOD=NONE").append('\n');
+                key = s.key;
+            }
+            if (s.map != null && !s.map.equals(map)) {
+                sb.append(s.map).append('\n');
+                map = s.map;
+            }
+            for (String tag : s.tags) {
+                // The header's discontinuity sequence already covers the first segment
+                if (s == first && tag.equals("#EXT-X-DISCONTINUITY")) continue;
+                sb.append(tag).append('\n');
+            }
+            sb.append(s.uri).append('\n');
+        }
+        return sb.toString();
+    }
+
+    // ── Parsing ─────────────────────────────────────────────────
+
+    /** Parse a live media playlist, or return null for anything that must pass through. */
+    private static Parsed parse(String text, String baseUri) {
+        if (!text.trim().startsWith("#EXTM3U")) return null;
+        Parsed parsed = new Parsed();
+        long sequence = 0;
+        long discontinuity = 0;
+        String key = null;
+        String map = null;
+        Segment pending = new Segment();
+        for (String raw : text.split("\n")) {
+            String line = raw.trim();
+            if (line.isEmpty()) continue;
+            if (line.startsWith("#EXT-X-STREAM-INF") || line.startsWith("#EXT-X-PART-INF")
+                    || line.startsWith("#EXT-X-SKIP") || line.startsWith("#EXT-X-ENDLIST")
+                    || line.startsWith("#EXT-X-DEFINE") || line.equals("#EXT-X-PLAYLIST-TYPE:VOD")) {
+                return null;
+            }
+            if (line.startsWith("#EXT-X-MEDIA-SEQUENCE:")) {
+                sequence = parseLong(line);
+            } else if (line.startsWith("#EXT-X-DISCONTINUITY-SEQUENCE:")) {
+                discontinuity = parseLong(line);
+            } else if (line.startsWith("#EXT-X-SERVER-CONTROL")) {
+                // Dropped so the player never asks for blocking reloads or delta updates
+                continue;
+            } else if (line.startsWith("#EXT-X-KEY:")) {
+                key = resolveAttribute(baseUri, line);
+            } else if (line.startsWith("#EXT-X-MAP:")) {
+                map = resolveAttribute(baseUri, line);
+            } else if (isHeaderTag(line)) {
+                parsed.header.add(line);
+            } else if (line.equals("#EXT-X-DISCONTINUITY")) {
+                discontinuity++;
+                pending.tags.add(line);
+            } else if (line.startsWith("#EXTINF:")) {
+                pending.durationUs = parseDurationUs(line);
+                pending.tags.add(line);
+            } else if (line.startsWith("#")) {
+                if (line.startsWith("#EXT-X-BYTERANGE")) pending.byteRange = true;
+                pending.tags.add(line);
+            } else {
+                pending.sequence = sequence++;
+                pending.discontinuitySequence = discontinuity;
+                pending.key = key;
+                pending.map = map;
+                pending.uri = resolve(baseUri, line);
+                parsed.segments.add(pending);
+                pending = new Segment();
+            }
+        }
+        return parsed.segments.isEmpty() ? null : parsed;
+    }
+
+    private static boolean isHeaderTag(String line) {
+        return line.startsWith("#EXTM3U") || line.startsWith("#EXT-X-VERSION")
+                || line.startsWith("#EXT-X-TARGETDURATION") || line.startsWith("#EXT-X-INDEPENDENT-SEGMENTS")
+                || line.startsWith("#EXT-X-START") || line.startsWith("#EXT-X-PLAYLIST-TYPE")
+                || line.startsWith("#EXT-X-ALLOW-CACHE");
+    }
+
+    private static long parseLong(String line) {
+        try {
+            return Long.parseLong(line.substring(line.indexOf(':') + 1).trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static long parseDurationUs(String line) {
+        String value = line.substring("#EXTINF:".length());
+        int comma = value.indexOf(',');
+        try {
+            return (long) (Double.parseDouble(comma >= 0 ? value.substring(0, comma) : value) * 1_000_000);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static String resolveAttribute(String baseUri, String line) {
+        Matcher m = ATTR_URI.matcher(line);
+        if (!m.find()) return line;
+        return line.substring(0, m.start(1)) + resolve(baseUri, m.group(1)) + line.substring(m.end(1));
+    }
+
+    private static String resolve(String baseUri, String ref) {
+        try {
+            return URI.create(baseUri).resolve(ref).toString();
+        } catch (RuntimeException e) {
+            return ref;
+        }
+    }
+}
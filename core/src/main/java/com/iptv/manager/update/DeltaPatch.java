@@ -0,0 +1,204 @@
+package com.iptv.manager.update;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Binary patches from the installed APK to a new one: {@link #apply} runs in
+ * the app's updater, {@link #create} in the release build (and the dev
+ * server's patch tool). A patch is a gzip stream of:
+ *
+ * <pre>
+ *   "IPTVPATCH1"
+ *   { op:u8 ... }         1 = COPY offset:i64 length:i32  (bytes from the old APK)
+ *                         2 = ADD  length:i32 data[length]
+ *                         0 = END
+ * </pre>
+ *
+ * All integers are big-endian. Ops are applied in order while streaming, with
+ * a fixed 64 KB buffer whatever the APK size, and the output is hashed as it is
+ * written so it can be checked against the target SHA-256 without a second pass.
+ */
+public class DeltaPatch {
+
+    private static final byte[] MAGIC = "IPTVPATCH1".getBytes(StandardCharsets.US_ASCII);
+    private static final int OP_END = 0;
+    private static final int OP_COPY = 1;
+    private static final int OP_ADD = 2;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Matching granularity for create(): small enough to find unchanged runs
+    // between rewritten zip entries, large enough that a COPY beats an ADD
+    private static final int BLOCK = 512;
+    private static final long HASH_BASE = 1_000_003L;
+
+    private DeltaPatch() {
+    }
+
+    /**
+     * Rebuild the new APK from {@code oldApk} and {@code patch} into {@code out}.
+     * Returns the output's SHA-256 in lower-case hex; the caller compares it to
+     * the expected one. Throws on a malformed patch.
+     */
+    public static String apply(File oldApk, File patch, File out) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] buf = new byte[BUFFER_SIZE];
+        try (RandomAccessFile old = new RandomAccessFile(oldApk, "r");
+             DataInputStream in = new DataInputStream(new BufferedInputStream(
+                     new GZIPInputStream(new FileInputStream(patch), BUFFER_SIZE)));
+             OutputStream os = new FileOutputStream(out)) {
+
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) throw new IOException("Not a patch file");
+
+            long oldLength = old.length();
+            while (true) {
+                int op = in.read();
+                if (op == OP_END) break;
+                if (op < 0) throw new EOFException("Patch ended without END");
+                if (op == OP_COPY) {
+                    long offset = in.readLong();
+                    int length = in.readInt();
+                    if (offset < 0 || length < 0 || offset + length > oldLength) {
+                        throw new IOException("COPY outside old APK");
+                    }
+                    old.seek(offset);
+                    while (length > 0) {
+                        int n = Math.min(length, buf.length);
+                        old.readFully(buf, 0, n);
+                        os.write(buf, 0, n);
+                        digest.update(buf, 0, n);
+                        length -= n;
+                    }
+                } else if (op == OP_ADD) {
+                    int length = in.readInt();
+                    if (length < 0) throw new IOException("Negative ADD length");
+                    while (length > 0) {
+                        int n = Math.min(length, buf.length);
+                        in.readFully(buf, 0, n);
+                        os.write(buf, 0, n);
+                        digest.update(buf, 0, n);
+                        length -= n;
+                    }
+                } else {
+                    throw new IOException("Unknown patch op " + op);
+                }
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest.digest()) {
+            sb.append(String.format(Locale.US, "%02x", b));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Write a patch that turns {@code oldFile} into {@code newFile}. Blocks of
+     * the old file are indexed by a rolling hash; the new file is scanned for
+     * them byte by byte, matches are extended in both directions and emitted as
+     * COPY, everything between as ADD. Both files are held in memory, which is
+     * fine for an APK on a build machine. Returns the patch size in bytes.
+     */
+    public static long create(File oldFile, File newFile, File patch) throws IOException {
+        byte[] old = readAll(oldFile);
+        byte[] target = readAll(newFile);
+
+        Map<Long, Integer> index = new HashMap<>();
+        for (int off = 0; off + BLOCK <= old.length; off += BLOCK) {
+            index.putIfAbsent(hash(old, off), off);
+        }
+        long outPower = 1;   // HASH_BASE^(BLOCK-1), to drop the outgoing byte
+        for (int i = 1; i < BLOCK; i++) outPower *= HASH_BASE;
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(new FileOutputStream(patch), BUFFER_SIZE)))) {
+            out.write(MAGIC);
+            ByteArrayOutputStream pending = new ByteArrayOutputStream();
+            int pos = 0;
+            long h = target.length >= BLOCK ? hash(target, 0) : 0;
+            while (pos < target.length) {
+                Integer at = pos + BLOCK <= target.length ? index.get(h) : null;
+                if (at != null && regionsEqual(old, at, target, pos, BLOCK)) {
+                    // Extend back over bytes not yet written, then forward
+                    int start = pos;
+                    int oldStart = at;
+                    while (start > pos - pending.size() && oldStart > 0 && old[oldStart - 1] == target[start - 1]) {
+                        start--;
+                        oldStart--;
+                    }
+                    int end = pos + BLOCK;
+                    int oldEnd = at + BLOCK;
+                    while (end < target.length && oldEnd < old.length && old[oldEnd] == target[end]) {
+                        end++;
+                        oldEnd++;
+                    }
+                    byte[] literal = pending.toByteArray();
+                    writeAdd(out, literal, literal.length - (pos - start));
+                    pending.reset();
+                    out.writeByte(OP_COPY);
+                    out.writeLong(oldStart);
+                    out.writeInt(end - start);
+                    pos = end;
+                    if (pos + BLOCK <= target.length) h = hash(target, pos);
+                    continue;
+                }
+                pending.write(target[pos]);
+                if (pos + BLOCK < target.length) {
+                    h = (h - (target[pos] & 0xFF) * outPower) * HASH_BASE + (target[pos + BLOCK] & 0xFF);
+                }
+                pos++;
+            }
+            byte[] literal = pending.toByteArray();
+            writeAdd(out, literal, literal.length);
+            out.writeByte(OP_END);
+        }
+        return patch.length();
+    }
+
+    private static void writeAdd(DataOutputStream out, byte[] data, int length) throws IOException {
+        if (length <= 0) return;
+        out.writeByte(OP_ADD);
+        out.writeInt(length);
+        out.write(data, 0, length);
+    }
+
+    // Not java.nio.file: this class also loads on API 21 devices
+    private static byte[] readAll(File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            byte[] data = new byte[(int) in.length()];
+            in.readFully(data);
+            return data;
+        }
+    }
+
+    private static long hash(byte[] data, int off) {
+        long h = 0;
+        for (int i = 0; i < BLOCK; i++) h = h * HASH_BASE + (data[off + i] & 0xFF);
+        return h;
+    }
+
+    private static boolean regionsEqual(byte[] a, int aOff, byte[] b, int bOff, int length) {
+        for (int i = 0; i < length; i++) {
+            if (a[aOff + i] != b[bOff + i]) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,203 @@
+package com.iptv.manager.update;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** Round trips through {@link DeltaPatch#create} and {@link DeltaPatch#apply}, and patches it must refuse. */
+public class DeltaPatchTest {
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = File.createTempFile("deltapatch", "");
+        assertTrue(dir.delete() && dir.mkdir());
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) for (File f : files) f.delete();
+        dir.delete();
+    }
+
+    // ── Round trips ─────────────────────────────────────────────
+
+    @Test
+    public void identicalFiles() throws Exception {
+        byte[] old = random(1, 64 * 1024);
+        long size = roundTrip(old, old);
+        // Only a single COPY, whatever the file size
+        assertTrue("patch was " + size + " bytes", size < 100);
+    }
+
+    @Test
+    public void insertedBlock() throws Exception {
+        byte[] old = random(2, 40_000);
+        byte[] inserted = concat(Arrays.copyOfRange(old, 0, 12_345), random(3, 3_000),
+                Arrays.copyOfRange(old, 12_345, old.length));
+        long size = roundTrip(old, inserted);
+        assertTrue("patch was " + size + " bytes", size < 5_000);
+    }
+
+    @Test
+    public void removedBlock() throws Exception {
+        byte[] old = random(4, 40_000);
+        byte[] removed = concat(Arrays.copyOfRange(old, 0, 10_001), Arrays.copyOfRange(old, 17_777, old.length));
+        long size = roundTrip(old, removed);
+        assertTrue("patch was " + size + " bytes", size < 1_000);
+    }
+
+    @Test
+    public void changedBlock() throws Exception {
+        byte[] old = random(5, 40_000);
+        byte[] changed = old.clone();
+        System.arraycopy(random(6, 2_000), 0, changed, 20_000, 2_000);
+        changed[old.length - 1] ^= 1;
+        long size = roundTrip(old, changed);
+        assertTrue("patch was " + size + " bytes", size < 4_000);
+    }
+
+    @Test
+    public void shorterThanBlock() throws Exception {
+        byte[] old = random(7, 300);
+        byte[] changed = old.clone();
+        changed[150] ^= 1;
+        roundTrip(old, old);
+        roundTrip(old, changed);
+        roundTrip(old, random(8, 100));
+        roundTrip(new byte[0], old);
+        roundTrip(old, new byte[0]);
+    }
+
+    // ── Malformed patches ───────────────────────────────────────
+
+    @Test(expected = IOException.class)
+    public void wrongMagic() throws Exception {
+        File old = write("old", random(9, 4_000));
+        File patch = new File(dir, "patch");
+        try (OutputStream os = new GZIPOutputStream(new FileOutputStream(patch))) {
+            os.write("NOTAPATCH1".getBytes("US-ASCII"));
+            os.write(0);
+        }
+        DeltaPatch.apply(old, patch, new File(dir, "out"));
+    }
+
+    @Test(expected = IOException.class)
+    public void notGzip() throws Exception {
+        File old = write("old", random(10, 4_000));
+        DeltaPatch.apply(old, write("patch", random(11, 200)), new File(dir, "out"));
+    }
+
+    @Test(expected = EOFException.class)
+    public void truncatedPatch() throws Exception {
+        byte[] old = random(12, 20_000);
+        byte[] changed = old.clone();
+        System.arraycopy(random(13, 5_000), 0, changed, 8_000, 5_000);
+        File oldFile = write("old", old);
+        File patch = new File(dir, "patch");
+        DeltaPatch.create(oldFile, write("new", changed), patch);
+        byte[] full = read(patch);
+        File truncated = write("truncated", Arrays.copyOf(full, full.length / 2));
+        DeltaPatch.apply(oldFile, truncated, new File(dir, "out"));
+    }
+
+    @Test(expected = EOFException.class)
+    public void missingEnd() throws Exception {
+        File old = write("old", random(14, 4_000));
+        File patch = new File(dir, "patch");
+        try (OutputStream os = new GZIPOutputStream(new FileOutputStream(patch))) {
+            os.write("IPTVPATCH1".getBytes("US-ASCII"));
+        }
+        DeltaPatch.apply(old, patch, new File(dir, "out"));
+    }
+
+    @Test(expected = IOException.class)
+    public void copyOutsideOldFile() throws Exception {
+        File old = write("old", random(15, 4_000));
+        File patch = new File(dir, "patch");
+        try (DataOutputStream os = new DataOutputStream(
+                new GZIPOutputStream(new FileOutputStream(patch)))) {
+            os.write("IPTVPATCH1".getBytes("US-ASCII"));
+            os.write(1);
+            os.writeLong(3_000);
+            os.writeInt(2_000);
+            os.write(0);
+        }
+        DeltaPatch.apply(old, patch, new File(dir, "out"));
+    }
+
+    // ── Helpers ─────────────────────────────────────────────────
+
+    /** Patch {@code from} into {@code to}, apply it, check bytes and hash; returns the patch size. */
+    private long roundTrip(byte[] from, byte[] to) throws Exception {
+        File oldFile = write("old", from);
+        File newFile = write("new", to);
+        File patch = new File(dir, "patch");
+        File out = new File(dir, "out");
+        long size = DeltaPatch.create(oldFile, newFile, patch);
+        assertEquals(patch.length(), size);
+        String hash = DeltaPatch.apply(oldFile, patch, out);
+        assertArrayEquals(to, read(out));
+        assertEquals(sha256(to), hash);
+        return size;
+    }
+
+    private File write(String name, byte[] data) throws IOException {
+        File f = new File(dir, name);
+        try (OutputStream os = new FileOutputStream(f)) {
+            os.write(data);
+        }
+        return f;
+    }
+
+    private static byte[] read(File f) throws IOException {
+        try (InputStream in = new FileInputStream(f)) {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) != -1) bos.write(buf, 0, n);
+            return bos.toByteArray();
+        }
+    }
+
+    private static byte[] random(long seed, int length) {
+        byte[] b = new byte[length];
+        new Random(seed).nextBytes(b);
+        return b;
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        for (byte[] p : parts) bos.write(p, 0, p.length);
+        return bos.toByteArray();
+    }
+
+    private static String sha256(byte[] data) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-256").digest(data)) {
+            sb.append(String.format(Locale.US, "%02x", b));
+        }
+        return sb.toString();
+    }
+}
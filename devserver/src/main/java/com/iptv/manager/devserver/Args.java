@@ -0,0 +1,49 @@
+package com.iptv.manager.devserver;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/** {@code --name value} / {@code --flag} command-line options for the dev tools. */
+final class Args {
+
+    private final Map<String, String> values = new HashMap<>();
+
+    Args(String[] argv) {
+        for (int i = 0; i < argv.length; i++) {
+            String a = argv[i];
+            if (!a.startsWith("--")) throw new IllegalArgumentException("Unexpected argument: " + a);
+            String name = a.substring(2);
+            int eq = name.indexOf('=');
+            if (eq >= 0) {
+                values.put(name.substring(0, eq), name.substring(eq + 1));
+            } else if (i + 1 < argv.length && !argv[i + 1].startsWith("--")) {
+                values.put(name, argv[++i]);
+            } else {
+                values.put(name, "true");
+            }
+        }
+    }
+
+    boolean has(String name) {
+        return values.containsKey(name);
+    }
+
+    String get(String name, String def) {
+        String v = values.get(name);
+        return v != null ? v : def;
+    }
+
+    int getInt(String name, int def) {
+        String v = values.get(name);
+        return v != null ? Integer.parseInt(v) : def;
+    }
+
+    long getLong(String name, long def) {
+        String v = values.get(name);
+        return v != null ? Long.parseLong(v) : def;
+    }
+
+    boolean getBool(String name) {
+        return Boolean.parseBoolean(values.get(name));
+    }
+}
@@ -0,0 +1,301 @@
+package com.iptv.manager.devserver;
+
+import com.iptv.manager.model.Channel;
+import com.iptv.manager.model.ChannelCatalog;
+import com.iptv.manager.model.EpgEntry;
+import com.iptv.manager.model.ServerConfig;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.ConnectionPool;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+/**
+ * End-to-end timing of the app's startup data path against {@link MockBackend}.
+ * Each iteration replays what LoginActivity and MainActivity do, in order and
+ * with the same model code: login, config, me, channels (fetch and parse),
+ * catalog setup and the sidebar groups, then the first EPG batch of up to 200
+ * visible channels and its merge — the same call the periodic EPG refresh
+ * makes — and finally the recent-channel post made on first play.
+ *
+ * Every iteration uses a fresh connection pool, like a cold process, unless
+ * {@code --warm}. {@code --clients} runs that many bootstraps concurrently to
+ * load the server. Per-phase percentiles are printed and written as JSON;
+ * {@code --max-p90 to_list=1500,total=2500} turns it into a check that exits
+ * non-zero on a breach or on any failed request.
+ *
+ * <pre>
+ *   ./gradlew :devserver:bootstrapTiming -PtimingArgs="--channels 50000 --latency-ms 120 --clients 8"
+ * </pre>
+ *
+ * Without {@code --url} a backend is started in-process with the same
+ * catalog and latency options.
+ */
+public class BootstrapTiming {
+
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    private static final int EPG_BATCH = 200;
+    private static final String[] PHASES = {
+            "login", "config", "me", "channels", "catalog", "epg", "recent", "to_list", "total"
+    };
+
+    private final String baseUrl;
+    private final boolean warm;
+    private final OkHttpClient sharedClient;
+    private final Map<String, Samples> samples = new LinkedHashMap<>();
+    private final AtomicInteger failures = new AtomicInteger();
+
+    private BootstrapTiming(String baseUrl, boolean warm) {
+        this.baseUrl = baseUrl;
+        this.warm = warm;
+        this.sharedClient = newClient();
+        for (String phase : PHASES) samples.put(phase, new Samples());
+    }
+
+    public static void main(String[] argv) throws Exception {
+        Args args = new Args(argv);
+        MockBackend backend = null;
+        String url = args.get("url", null);
+        if (url == null) {
+            String[] serverArgv = withPort(argv);
+            backend = new MockBackend(serverArgv);
+            url = "http://127.0.0.1:" + backend.start();
+            System.out.println("Backend: " + backend.describe());
+        }
+
+        int clients = args.getInt("clients", 1);
+        int iterations = args.getInt("iterations", 20);
+        int warmup = args.getInt("warmup", 3);
+        BootstrapTiming timing = new BootstrapTiming(url, args.getBool("warm"));
+        long wallStart = System.nanoTime();
+        try {
+            timing.run(clients, warmup, iterations);
+        } finally {
+            if (backend != null) backend.stop();
+        }
+        long wallMs = (System.nanoTime() - wallStart) / 1_000_000;
+
+        System.out.println();
+        System.out.println(clients + " client(s) x " + iterations + " bootstrap(s), "
+                + (timing.warm ? "warm" : "cold") + " connections, " + wallMs + " ms wall");
+        System.out.println(Samples.header());
+        for (Map.Entry<String, Samples> e : timing.samples.entrySet()) {
+            System.out.println(e.getValue().row(e.getKey()));
+        }
+        System.out.println("failures: " + timing.failures.get());
+
+        File out = new File(args.get("out", "build/reports/bootstrap/results.json"));
+        timing.write(out, args, clients, iterations, wallMs);
+        System.out.println("Results: " + out.getPath());
+
+        List<String> breaches = timing.checkBudgets(args.get("max-p90", null));
+        for (String b : breaches) System.out.println("BUDGET EXCEEDED: " + b);
+        if (!breaches.isEmpty() || timing.failures.get() > 0) System.exit(1);
+    }
+
+    /** Backend options pass straight through; only the port is forced to a free one. */
+    private static String[] withPort(String[] argv) {
+        List<String> list = new ArrayList<>();
+        for (String a : argv) list.add(a);
+        list.add("--port");
+        list.add("0");
+        return list.toArray(new String[0]);
+    }
+
+    private static OkHttpClient newClient() {
+        // Same timeouts as NetworkStack's interactive client
+        return new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(5, 5, TimeUnit.MINUTES))
+                .connectTimeout(10, TimeUnit.SECONDS)
+                .readTimeout(15, TimeUnit.SECONDS)
+                .build();
+    }
+
+    // ── Run ──────────────────────────────────────────────────
+
+    private void run(int clients, int warmup, int iterations) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < warmup + iterations; i++) {
+                    bootstrap(i >= warmup);
+                }
+            }));
+        }
+        for (Future<?> f : futures) f.get();
+        pool.shutdown();
+    }
+
+    private void bootstrap(boolean record) {
+        OkHttpClient client = warm ? sharedClient : newClient();
+        Map<String, Long> t = new HashMap<>();
+        long start = System.nanoTime();
+        long mark = start;
+        try {
+            JSONObject login = call(client, post("/api/auth/login", null,
+                    new JSONObject().put("username", "dev").put("password", "dev")));
+            String token = login.getString("token");
+            mark = lap(t, "login", mark);
+
+            ServerConfig config = ServerConfig.fromJson(call(client, get("/api/config", token)));
+            mark = lap(t, "config", mark);
+
+            call(client, get("/api/auth/me", token));
+            mark = lap(t, "me", mark);
+
+            JSONArray arr = call(client, get("/api/channels", token)).optJSONArray("channels");
+            List<Channel> channels = new ArrayList<>();
+            if (arr != null) {
+                for (int i = 0; i < arr.length(); i++) {
+                    JSONObject obj = arr.optJSONObject(i);
+                    if (obj != null) channels.add(Channel.fromJson(obj));
+                }
+            }
+            mark = lap(t, "channels", mark);
+
+            ChannelCatalog catalog = new ChannelCatalog();
+            catalog.setChannels(channels);
+            catalog.getGroups();
+            catalog.getFavouriteCount();
+            mark = lap(t, "catalog", mark);
+            t.put("to_list", (mark - start) / 1_000_000);
+
+            List<Channel> visible = catalog.getFilteredChannels();
+            if (visible.isEmpty()) visible = channels;   // no favourites: time the "all" batch instead
+            StringBuilder ids = new StringBuilder();
+            for (int i = 0; i < Math.min(visible.size(), EPG_BATCH); i++) {
+                if (i > 0) ids.append(",");
+                ids.append(visible.get(i).channelId);
+            }
+            JSONObject epgObj = call(client, get("/api/epg?channel_ids=" + ids, token)).optJSONObject("epg");
+            Map<String, EpgEntry> epg = new HashMap<>();
+            if (epgObj != null) {
+                Iterator<String> keys = epgObj.keys();
+                while (keys.hasNext()) {
+                    String id = keys.next();
+                    JSONObject entry = epgObj.optJSONObject(id);
+                    if (entry != null) epg.put(id, EpgEntry.fromJson(entry));
+                }
+            }
+            catalog.updateEpg(epg);
+            mark = lap(t, "epg", mark);
+
+            if (!channels.isEmpty() && config.getActiveServer() != null) {
+                Channel first = channels.get(0);
+                call(client, post("/api/user/recent", token, new JSONObject()
+                        .put("channel_id", first.channelId).put("name", first.name).put("group", first.group)));
+            }
+            mark = lap(t, "recent", mark);
+            t.put("total", (mark - start) / 1_000_000);
+        } catch (Exception e) {
+            failures.incrementAndGet();
+            System.out.println("Bootstrap failed: " + e.getMessage());
+            return;
+        } finally {
+            if (!warm) {
+                client.connectionPool().evictAll();
+                client.dispatcher().executorService().shutdown();
+            }
+        }
+        if (record) {
+            for (Map.Entry<String, Long> e : t.entrySet()) samples.get(e.getKey()).add(e.getValue());
+        }
+    }
+
+    private static long lap(Map<String, Long> t, String phase, long since) {
+        long now = System.nanoTime();
+        t.put(phase, (now - since) / 1_000_000);
+        return now;
+    }
+
+    // ── HTTP ─────────────────────────────────────────────────
+
+    private Request get(String path, String token) {
+        return new Request.Builder().url(baseUrl + path)
+                .header("Authorization", "Bearer " + token)
+                .header("Accept", "application/json")
+                .build();
+    }
+
+    private Request post(String path, String token, JSONObject body) {
+        Request.Builder req = new Request.Builder().url(baseUrl + path)
+                .post(RequestBody.create(body.toString(), JSON))
+                .header("Accept", "application/json");
+        if (token != null) req.header("Authorization", "Bearer " + token);
+        return req.build();
+    }
+
+    private static JSONObject call(OkHttpClient client, Request request) throws Exception {
+        try (Response response = client.newCall(request).execute()) {
+            String body = response.body() != null ? response.body().string() : "";
+            if (!response.isSuccessful()) {
+                throw new Exception(request.url().encodedPath() + ": HTTP " + response.code() + " " + body);
+            }
+            body = body.trim();
+            return body.isEmpty() ? new JSONObject() : new JSONObject(body);
+        }
+    }
+
+    // ── Report ───────────────────────────────────────────────
+
+    private void write(File out, Args args, int clients, int iterations, long wallMs) throws Exception {
+        File dir = out.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.exists()) dir.mkdirs();
+        JSONObject phases = new JSONObject();
+        for (Map.Entry<String, Samples> e : samples.entrySet()) phases.put(e.getKey(), e.getValue().toJson());
+        JSONObject result = new JSONObject()
+                .put("time", System.currentTimeMillis())
+                .put("baseUrl", baseUrl)
+                .put("channels", args.getInt("channels", 5000))
+                .put("groups", args.getInt("groups", 60))
+                .put("latencyMs", args.getLong("latency-ms", 40))
+                .put("jitterMs", args.getLong("jitter-ms", 40))
+                .put("clients", clients)
+                .put("iterations", iterations)
+                .put("warm", warm)
+                .put("wallMs", wallMs)
+                .put("failures", failures.get())
+                .put("phases", phases);
+        try (FileWriter w = new FileWriter(out)) {
+            w.write(result.toString(2));
+        }
+    }
+
+    /** {@code phase=ms,...} against each phase's p90. */
+    private List<String> checkBudgets(String spec) {
+        List<String> breaches = new ArrayList<>();
+        if (spec == null || spec.isEmpty()) return breaches;
+        for (String pair : spec.split(",")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) throw new IllegalArgumentException("Bad budget: " + pair);
+            String phase = pair.substring(0, eq).trim();
+            long limit = Long.parseLong(pair.substring(eq + 1).trim());
+            Samples s = samples.get(phase);
+            if (s == null) throw new IllegalArgumentException("Unknown phase: " + phase);
+            if (s.percentile(90) > limit) {
+                breaches.add(phase + " p90 " + s.percentile(90) + " ms > " + limit + " ms");
+            }
+        }
+        return breaches;
+    }
+}
@@ -0,0 +1,170 @@
+package com.iptv.manager.devserver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Timed faults for {@link HlsFaultServer}. A script is a {@code ;}-separated
+ * list of rules, each {@code <at>[+<for>] <action> [playlist|segment] [direct|proxy|both]}:
+ *
+ * <pre>
+ *   15s+4s 503 segment        segments answer 503 for four seconds
+ *   15s+15s stall playlist    playlist requests hang for fifteen seconds
+ *   15s+20s slow=800 segment  segments trickle at 800 kbit/s
+ *   15s+40s 403 direct        the direct route is blocked; the proxy still works
+ *   15s+15s freeze            the playlist stops advancing (segments still served)
+ *   15s reset                 the media sequence restarts, as after an encoder restart
+ *   15s jump=30s              the live edge leaps ahead, leaving players behind the window
+ * </pre>
+ *
+ * Times are from server start. Rules hit both routes unless narrowed, since a
+ * failing origin fails through the proxy too.
+ */
+final class FaultScript {
+
+    static final String TARGET_ANY = "any";
+    static final String TARGET_PLAYLIST = "playlist";
+    static final String TARGET_SEGMENT = "segment";
+
+    static final String ROUTE_BOTH = "both";
+    static final String ROUTE_DIRECT = "direct";
+    static final String ROUTE_PROXY = "proxy";
+
+    static final String ACTION_STATUS = "status";
+    static final String ACTION_STALL = "stall";
+    static final String ACTION_SLOW = "slow";
+    static final String ACTION_FREEZE = "freeze";
+    static final String ACTION_RESET = "reset";
+    static final String ACTION_JUMP = "jump";
+
+    static final class Rule {
+        final long atMs;
+        final long forMs;
+        final String action;
+        final long value;      // status code, kbit/s or jump ms
+        final String target;
+        final String route;
+        boolean fired;         // one-shot stream events
+
+        Rule(long atMs, long forMs, String action, long value, String target, String route) {
+            this.atMs = atMs;
+            this.forMs = forMs;
+            this.action = action;
+            this.value = value;
+            this.target = target;
+            this.route = route;
+        }
+
+        boolean activeAt(long tMs) {
+            return tMs >= atMs && tMs < atMs + forMs;
+        }
+
+        long endMs() {
+            return atMs + forMs;
+        }
+
+        boolean matches(String requestTarget, String requestRoute) {
+            return (target.equals(TARGET_ANY) || target.equals(requestTarget))
+                    && (route.equals(ROUTE_BOTH) || route.equals(requestRoute));
+        }
+
+        @Override
+        public String toString() {
+            String v = action.equals(ACTION_STATUS) ? String.valueOf(value)
+                    : action.equals(ACTION_SLOW) ? "slow=" + value
+                    : action.equals(ACTION_JUMP) ? "jump=" + value + "ms" : action;
+            return atMs + "ms" + (forMs > 0 ? "+" + forMs + "ms" : "") + " " + v
+                    + (target.equals(TARGET_ANY) ? "" : " " + target)
+                    + (route.equals(ROUTE_BOTH) ? "" : " " + route);
+        }
+    }
+
+    final List<Rule> rules;
+
+    private FaultScript(List<Rule> rules) {
+        this.rules = Collections.unmodifiableList(rules);
+    }
+
+    static FaultScript parse(String spec) {
+        List<Rule> rules = new ArrayList<>();
+        if (spec == null) return new FaultScript(rules);
+        for (String part : spec.split(";")) {
+            String[] tokens = part.trim().split("\\s+");
+            if (tokens.length == 0 || tokens[0].isEmpty()) continue;
+            String when = tokens[0];
+            int plus = when.indexOf('+');
+            long at = parseMs(plus < 0 ? when : when.substring(0, plus));
+            long duration = plus < 0 ? 0 : parseMs(when.substring(plus + 1));
+
+            String action = null;
+            long value = 0;
+            String target = TARGET_ANY;
+            String route = ROUTE_BOTH;
+            for (int i = 1; i < tokens.length; i++) {
+                String t = tokens[i].toLowerCase(Locale.ROOT);
+                if (t.equals(TARGET_PLAYLIST) || t.equals(TARGET_SEGMENT)) {
+                    target = t;
+                } else if (t.equals(ROUTE_DIRECT) || t.equals(ROUTE_PROXY) || t.equals(ROUTE_BOTH)) {
+                    route = t;
+                } else if (t.matches("\\d{3}")) {
+                    action = ACTION_STATUS;
+                    value = Integer.parseInt(t);
+                } else if (t.startsWith(ACTION_SLOW + "=")) {
+                    action = ACTION_SLOW;
+                    value = Long.parseLong(t.substring(5));
+                } else if (t.startsWith(ACTION_JUMP + "=")) {
+                    action = ACTION_JUMP;
+                    value = parseMs(t.substring(5));
+                } else if (t.equals(ACTION_STALL) || t.equals(ACTION_FREEZE) || t.equals(ACTION_RESET)) {
+                    action = t;
+                } else {
+                    throw new IllegalArgumentException("Unknown token '" + t + "' in: " + part.trim());
+                }
+            }
+            if (action == null) throw new IllegalArgumentException("No action in: " + part.trim());
+            boolean instant = action.equals(ACTION_RESET) || action.equals(ACTION_JUMP);
+            if (!instant && duration <= 0) throw new IllegalArgumentException("Missing +duration in: " + part.trim());
+            rules.add(new Rule(at, duration, action, value, target, route));
+        }
+        return new FaultScript(rules);
+    }
+
+    private static long parseMs(String s) {
+        s = s.trim().toLowerCase(Locale.ROOT);
+        if (s.endsWith("ms")) return Long.parseLong(s.substring(0, s.length() - 2));
+        if (s.endsWith("s")) return (long) (Double.parseDouble(s.substring(0, s.length() - 1)) * 1000);
+        return Long.parseLong(s);
+    }
+
+    /** The first rule of a request-time action active for this request, or null. */
+    Rule activeFor(long tMs, String target, String route) {
+        for (Rule r : rules) {
+            if (r.action.equals(ACTION_STATUS) || r.action.equals(ACTION_STALL) || r.action.equals(ACTION_SLOW)) {
+                if (r.activeAt(tMs) && r.matches(target, route)) return r;
+            }
+        }
+        return null;
+    }
+
+    /** When the first fault starts, or -1 for an empty script. */
+    long firstFaultMs() {
+        long first = -1;
+        for (Rule r : rules) {
+            if (first < 0 || r.atMs < first) first = r.atMs;
+        }
+        return first;
+    }
+
+    @Override
+    public String toString() {
+        if (rules.isEmpty()) return "(none)";
+        StringBuilder sb = new StringBuilder();
+        for (Rule r : rules) {
+            if (sb.length() > 0) sb.append("; ");
+            sb.append(r);
+        }
+        return sb.toString();
+    }
+}
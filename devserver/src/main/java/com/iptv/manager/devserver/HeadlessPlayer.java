@@ -0,0 +1,648 @@
+package com.iptv.manager.devserver;
+
+import com.iptv.manager.playback.BufferSizes;
+import com.iptv.manager.playback.PlaybackTuning;
+import com.iptv.manager.playback.RecoveryPolicy;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * A live-HLS player model for {@link RecoveryHarness}: real HTTP against the
+ * fault server, simulated playout. ExoPlayer itself needs a device, so this
+ * reproduces the parts that decide recovery time:
+ *
+ * <ul>
+ *   <li>media3 loading: one playlist loader and one segment loader, each
+ *       retrying a failed load after {@code min((n-1) s, 5 s)} and giving up
+ *       after 3 retries; playlist reset and stuck (3.5 target durations)
+ *       detection; behind-live-window when the next segment has left the
+ *       window. Load errors reach the player only once it is buffering.</li>
+ *   <li>the app's settings, read from the same :core constants the app uses:
+ *       {@link PlaybackTuning}'s media timeouts, live offset, jump-to-live on
+ *       rebuffer, retry cap and proxy cooldown, and the start thresholds and
+ *       max buffer of a {@link BufferSizes} profile.</li>
+ *   <li>PlayerActivity.onPlayerError: behind-live re-prepare at the live edge,
+ *       then the shared {@link RecoveryPolicy} for retry / session fallback
+ *       to the proxy / fail, and RouteFallbackDataSource's per-request proxy
+ *       retry and cooldown while the session is on the direct route.</li>
+ * </ul>
+ *
+ * It times what the user sees: startup, every stretch without picture after
+ * the first frame, and when playback came back.
+ */
+final class HeadlessPlayer {
+
+    // media3 DefaultLoadErrorHandlingPolicy / HlsPlaylistTracker
+    private static final int MIN_LOADABLE_RETRY_COUNT = 3;
+    private static final double PLAYLIST_STUCK_TARGET_DURATION_COEFFICIENT = 3.5;
+
+    private static final long TICK_MS = 20;
+
+    static final int STATE_BUFFERING = 0;
+    static final int STATE_READY = 1;
+    static final int STATE_WAITING_RETRY = 2;
+    static final int STATE_FAILED = 3;
+    private static final String[] STATE_NAMES = {"buffering", "ready", "waiting_retry", "failed"};
+
+    /** A failed load: HTTP status, or 0 for connection trouble and the HLS conditions below. */
+    static final class LoadError extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        static final String KIND_HTTP = "http";
+        static final String KIND_IO = "io";
+        static final String KIND_BEHIND_LIVE = "behind_live_window";
+        static final String KIND_PLAYLIST_RESET = "playlist_reset";
+        static final String KIND_PLAYLIST_STUCK = "playlist_stuck";
+        static final String KIND_PARSE = "parse";
+
+        final String kind;
+        final int status;
+        final long retryAfterMs;
+
+        LoadError(String kind, int status, long retryAfterMs, String message) {
+            super(message);
+            this.kind = kind;
+            this.status = status;
+            this.retryAfterMs = retryAfterMs;
+        }
+
+        /** As ErrorClassifier maps it: HTTP by status, parse errors as content, other IOExceptions as network. */
+        String errorClass() {
+            if (status > 0) return RecoveryPolicy.classifyStatus(status);
+            return kind.equals(KIND_PARSE) ? RecoveryPolicy.CLASS_CONTENT : RecoveryPolicy.CLASS_NETWORK;
+        }
+
+        boolean worthProxying() {
+            String c = errorClass();
+            return kind.equals(KIND_IO) || RecoveryPolicy.CLASS_SERVER.equals(c) || RecoveryPolicy.CLASS_AUTH.equals(c);
+        }
+    }
+
+    private static final class Playlist {
+        long firstSeq;
+        long targetMs;
+        final List<Long> durationsMs = new ArrayList<>();
+        final List<String> uris = new ArrayList<>();
+
+        long lastSeq() {
+            return firstSeq + durationsMs.size() - 1;
+        }
+    }
+
+    /** What one run measured. */
+    static final class Result {
+        long startupMs = -1;
+        long blackMs;
+        int outages;
+        long longestOutageMs;
+        long firstImpactMs = -1;     // first outage or surfaced error at/after the fault, from start
+        long recoveredAtMs = -1;     // last return to playback, from start
+        int errors;
+        int retries;
+        int sessionFallbacks;
+        int behindLive;
+        int jumpsToLive;
+        int proxyRequests;
+        long policyRecoveryMs;       // longest first-error-to-ready, as ErrorClassifier records it
+        final List<String> events = new ArrayList<>();
+        String finalState;
+    }
+
+    private final OkHttpClient client;
+    private final RecoveryPolicy policy;
+    private final BufferSizes buffers;
+    private final Result result = new Result();
+    private final Object lock = new Object();
+
+    // Session, all guarded by lock
+    private String url;
+    private String fallbackUrl;
+    private boolean routeFallback;
+    private volatile long proxyUntil;
+    private int generation;
+    private int seekGeneration;
+    private Playlist snapshot;
+    private long snapshotChangedAt;
+    private long nextSeq = -1;
+    private final ArrayDeque<long[]> buffer = new ArrayDeque<>();   // {seq, remainingMs}
+    private long bufferedMs;
+    private LoadError pendingError;
+    private int state;
+    private boolean rebuffering;
+    private boolean positionChecked;
+    private long retryAt;
+    private int behindLiveRetries;
+    private long startedAt;
+    private long outageStartedAt = -1;
+    private long faultAt;
+
+    /**
+     * @param directUrl  stream URL on the direct route
+     * @param proxyUrl   the proxy URL for it, or null when the session has no fallback
+     * @param faultAtMs  when the scenario's first fault starts, from start, or -1
+     * @param buffers    the buffer profile to play with
+     */
+    HeadlessPlayer(String directUrl, String proxyUrl, long faultAtMs, BufferSizes buffers, long seed) {
+        this.url = directUrl;
+        this.fallbackUrl = proxyUrl;
+        this.routeFallback = proxyUrl != null;
+        this.faultAt = faultAtMs;
+        this.buffers = buffers;
+        this.policy = new RecoveryPolicy(PlaybackTuning.MAX_ERROR_RETRIES, new Random(seed));
+        this.client = new OkHttpClient.Builder()
+                .connectTimeout(PlaybackTuning.MEDIA_CONNECT_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .readTimeout(PlaybackTuning.MEDIA_READ_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    private static long now() {
+        return System.nanoTime() / 1_000_000;
+    }
+
+    // ── Run ──────────────────────────────────────────────────
+
+    /** Play for {@code durationMs} of wall time, then stop and return the measurements. */
+    Result run(long durationMs) {
+        startedAt = now();
+        synchronized (lock) {
+            prepare(true);
+        }
+        long last = startedAt;
+        while (true) {
+            long t = now();
+            if (t - startedAt >= durationMs) break;
+            synchronized (lock) {
+                tick(t, t - last);
+            }
+            last = t;
+            sleep(TICK_MS);
+        }
+        synchronized (lock) {
+            long end = now();
+            if (state != STATE_READY && outageStartedAt >= 0) endOutage(end);
+            if (state != STATE_READY && result.startupMs < 0) result.finalState = "never_started";
+            else result.finalState = STATE_NAMES[state];
+            if (state != STATE_READY) result.recoveredAtMs = -1;
+            generation++;   // stop loaders
+        }
+        client.dispatcher().cancelAll();
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+        return result;
+    }
+
+    private void tick(long t, long dt) {
+        switch (state) {
+            case STATE_READY:
+                consume(dt);
+                if (bufferedMs <= 0) {
+                    setState(STATE_BUFFERING, t);
+                    rebuffering = true;
+                    // PlayerActivity: far behind live on a rebuffer → back to the live edge
+                    if (liveOffsetMs(t) > PlaybackTuning.JUMP_TO_LIVE_MS) {
+                        result.jumpsToLive++;
+                        event(t, "jump to live edge");
+                        seekToDefaultPosition();
+                    }
+                }
+                break;
+            case STATE_BUFFERING:
+                if (pendingError != null) {
+                    LoadError e = pendingError;
+                    pendingError = null;
+                    onPlayerError(e, t);
+                } else if (bufferedMs >= (rebuffering ? buffers.bufferForPlaybackAfterRebufferMs : buffers.bufferForPlaybackMs)) {
+                    setState(STATE_READY, t);
+                }
+                break;
+            case STATE_WAITING_RETRY:
+                if (t >= retryAt) prepare(false);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void consume(long dt) {
+        while (dt > 0 && !buffer.isEmpty()) {
+            long[] head = buffer.peekFirst();
+            long used = Math.min(dt, head[1]);
+            head[1] -= used;
+            bufferedMs -= used;
+            dt -= used;
+            if (head[1] == 0) buffer.pollFirst();
+        }
+    }
+
+    private void setState(int newState, long t) {
+        if (state == newState) return;
+        int old = state;
+        state = newState;
+        if (newState == STATE_READY) {
+            if (result.startupMs < 0) {
+                result.startupMs = t - startedAt;
+                event(t, "first frame");
+            } else {
+                endOutage(t);
+                result.recoveredAtMs = t - startedAt;
+                event(t, "playing again");
+            }
+            behindLiveRetries = 0;
+            RecoveryPolicy.Recovery recovery = policy.recovered(t);
+            if (recovery != null) {
+                result.policyRecoveryMs = Math.max(result.policyRecoveryMs, recovery.recoveryMs);
+            }
+        } else if (old == STATE_READY) {
+            outageStartedAt = t;
+            result.outages++;
+            markImpact(t);
+            event(t, "picture lost (" + STATE_NAMES[newState] + ")");
+        }
+    }
+
+    private void endOutage(long t) {
+        if (outageStartedAt < 0) return;
+        long ms = t - outageStartedAt;
+        result.blackMs += ms;
+        result.longestOutageMs = Math.max(result.longestOutageMs, ms);
+        outageStartedAt = -1;
+    }
+
+    private void markImpact(long t) {
+        long rel = t - startedAt;
+        if (faultAt >= 0 && rel >= faultAt && result.firstImpactMs < 0) result.firstImpactMs = rel;
+    }
+
+    private long liveOffsetMs(long t) {
+        if (snapshot == null) return 0;
+        long ahead = 0;
+        for (long s = Math.max(nextSeq, snapshot.firstSeq); s <= snapshot.lastSeq(); s++) {
+            ahead += snapshot.durationsMs.get((int) (s - snapshot.firstSeq));
+        }
+        return bufferedMs + ahead + (t - snapshotChangedAt);
+    }
+
+    private void event(long t, String what) {
+        result.events.add((t - startedAt) + "ms " + what);
+    }
+
+    // ── PlayerActivity error handling ────────────────────────
+
+    private void onPlayerError(LoadError error, long t) {
+        result.errors++;
+        markImpact(t);
+        event(t, "error " + error.kind + (error.status > 0 ? " " + error.status : "") + ": " + error.getMessage());
+
+        if (error.kind.equals(LoadError.KIND_BEHIND_LIVE)
+                && behindLiveRetries < RecoveryPolicy.MAX_BEHIND_LIVE_RETRIES) {
+            behindLiveRetries++;
+            result.behindLive++;
+            seekToDefaultPosition();
+            prepare(false);
+            return;
+        }
+
+        boolean canFallBack = fallbackUrl != null && !url.equals(fallbackUrl);
+        RecoveryPolicy.Decision decision = policy.decide(error.errorClass(), error.retryAfterMs, canFallBack, t);
+        event(t, "decision " + decision);
+        if (decision.action == RecoveryPolicy.ACTION_RETRY) {
+            result.retries++;
+            setState(STATE_WAITING_RETRY, t);
+            retryAt = t + decision.delayMs;
+            generation++;   // the player is idle until prepare()
+            return;
+        }
+        if (decision.action == RecoveryPolicy.ACTION_FALLBACK) {
+            result.sessionFallbacks++;
+            url = fallbackUrl;
+            fallbackUrl = null;
+            routeFallback = false;
+            policy.onRouteChanged();
+            behindLiveRetries = 0;
+            nextSeq = -1;
+            buffer.clear();
+            bufferedMs = 0;
+            prepare(false);
+            return;
+        }
+        setState(STATE_FAILED, t);
+        generation++;
+    }
+
+    /** Player.prepare(): playlist reloaded from scratch, buffer dropped, position kept. */
+    private void prepare(boolean first) {
+        generation++;
+        if (!buffer.isEmpty()) nextSeq = buffer.peekFirst()[0];
+        buffer.clear();
+        bufferedMs = 0;
+        snapshot = null;
+        pendingError = null;
+        rebuffering = false;
+        positionChecked = false;
+        if (!first) setState(STATE_BUFFERING, now());
+        final int gen = generation;
+        startThread("playlist", () -> playlistLoop(gen));
+        startThread("segments", () -> segmentLoop(gen));
+    }
+
+    private void seekToDefaultPosition() {
+        seekGeneration++;
+        buffer.clear();
+        bufferedMs = 0;
+        nextSeq = -1;
+    }
+
+    // ── Loaders ──────────────────────────────────────────────
+
+    private void playlistLoop(int gen) {
+        int errors = 0;
+        while (isCurrent(gen)) {
+            String playlistUrl;
+            synchronized (lock) {
+                playlistUrl = url;
+            }
+            long waitMs;
+            try {
+                Playlist loaded = parse(new String(fetch(playlistUrl), "UTF-8"), playlistUrl);
+                errors = 0;
+                synchronized (lock) {
+                    if (generation != gen) return;
+                    waitMs = onPlaylistLoaded(loaded, now());
+                }
+            } catch (LoadError e) {
+                errors++;
+                // Parse errors are not retried by media3
+                if (errors > MIN_LOADABLE_RETRY_COUNT || e.kind.equals(LoadError.KIND_PARSE)) {
+                    fail(gen, e);
+                    return;
+                }
+                waitMs = Math.min((errors - 1) * 1000L, 5000L);
+            } catch (IOException e) {
+                fail(gen, new LoadError(LoadError.KIND_IO, 0, 0, e.getMessage()));
+                return;
+            }
+            if (waitMs < 0) return;
+            sleepWhileCurrent(gen, waitMs);
+        }
+    }
+
+    /** HlsPlaylistTracker's snapshot rules. Returns ms until the next refresh, or -1 after a fatal condition. */
+    private long onPlaylistLoaded(Playlist loaded, long t) {
+        if (snapshot == null || loaded.firstSeq > snapshot.firstSeq
+                || (loaded.firstSeq == snapshot.firstSeq && loaded.durationsMs.size() > snapshot.durationsMs.size())) {
+            snapshot = loaded;
+            snapshotChangedAt = t;
+            return loaded.targetMs;
+        }
+        if (loaded.firstSeq + loaded.durationsMs.size() < snapshot.firstSeq) {
+            if (pendingError == null) pendingError = new LoadError(LoadError.KIND_PLAYLIST_RESET, 0, 0, "media sequence went back");
+            return -1;
+        }
+        if (t - snapshotChangedAt > snapshot.targetMs * PLAYLIST_STUCK_TARGET_DURATION_COEFFICIENT) {
+            if (pendingError == null) pendingError = new LoadError(LoadError.KIND_PLAYLIST_STUCK, 0, 0, "playlist not advancing");
+            return -1;
+        }
+        return snapshot.targetMs / 2;
+    }
+
+    private void segmentLoop(int gen) {
+        int errors = 0;
+        while (isCurrent(gen)) {
+            String segmentUrl;
+            long seq;
+            int seekGen;
+            long durationMs;
+            synchronized (lock) {
+                if (snapshot == null || bufferedMs >= buffers.maxBufferMs) {
+                    segmentUrl = null;
+                    seq = 0;
+                    seekGen = 0;
+                    durationMs = 0;
+                } else {
+                    // A position past a fresh playlist's end (sequence renumbered) starts at the default
+                    if (nextSeq < 0 || (!positionChecked && nextSeq > snapshot.lastSeq() + 1)) {
+                        nextSeq = defaultStartSeq(snapshot);
+                    }
+                    positionChecked = true;
+                    if (nextSeq < snapshot.firstSeq) {
+                        pendingError = new LoadError(LoadError.KIND_BEHIND_LIVE, 0, 0,
+                                "segment " + nextSeq + " left the window at " + snapshot.firstSeq);
+                        return;
+                    }
+                    if (nextSeq > snapshot.lastSeq()) {
+                        segmentUrl = null;
+                        seq = 0;
+                        seekGen = 0;
+                        durationMs = 0;
+                    } else {
+                        int i = (int) (nextSeq - snapshot.firstSeq);
+                        segmentUrl = snapshot.uris.get(i);
+                        durationMs = snapshot.durationsMs.get(i);
+                        seq = nextSeq;
+                        seekGen = seekGeneration;
+                    }
+                }
+            }
+            if (segmentUrl == null) {
+                sleepWhileCurrent(gen, 50);
+                continue;
+            }
+            try {
+                fetch(segmentUrl);
+                errors = 0;
+                synchronized (lock) {
+                    if (generation != gen) return;
+                    if (seekGen == seekGeneration && seq == nextSeq) {
+                        buffer.addLast(new long[]{seq, durationMs});
+                        bufferedMs += durationMs;
+                        nextSeq = seq + 1;
+                    }
+                }
+            } catch (LoadError e) {
+                errors++;
+                if (errors > MIN_LOADABLE_RETRY_COUNT) {
+                    fail(gen, e);
+                    return;
+                }
+                sleepWhileCurrent(gen, Math.min((errors - 1) * 1000L, 5000L));
+            }
+        }
+    }
+
+    private static long defaultStartSeq(Playlist p) {
+        long behind = 0;
+        long seq = p.lastSeq();
+        while (seq > p.firstSeq && behind < PlaybackTuning.LIVE_TARGET_OFFSET_MS) {
+            behind += p.durationsMs.get((int) (seq - p.firstSeq));
+            seq--;
+        }
+        return seq;
+    }
+
+    private void fail(int gen, LoadError e) {
+        synchronized (lock) {
+            if (generation == gen && pendingError == null) pendingError = e;
+        }
+    }
+
+    private boolean isCurrent(int gen) {
+        synchronized (lock) {
+            return generation == gen;
+        }
+    }
+
+    // ── HTTP with RouteFallbackDataSource's routing ──────────
+
+    private byte[] fetch(String requestUrl) throws LoadError {
+        boolean fallback;
+        synchronized (lock) {
+            fallback = routeFallback;
+        }
+        if (!fallback) return get(requestUrl);
+
+        String direct = unwrap(requestUrl);
+        if (now() < proxyUntil) return viaProxy(direct);
+        try {
+            return get(direct);
+        } catch (LoadError e) {
+            if (!e.worthProxying()) throw e;
+            proxyUntil = now() + PlaybackTuning.PROXY_COOLDOWN_MS;
+            return viaProxy(direct);
+        }
+    }
+
+    private byte[] viaProxy(String direct) throws LoadError {
+        String proxy;
+        synchronized (lock) {
+            proxy = fallbackUrl;
+            result.proxyRequests++;
+        }
+        if (proxy == null) return get(direct);
+        HttpUrl template = HttpUrl.get(proxy);
+        try {
+            return get(template.newBuilder().query(null)
+                    .addQueryParameter("url", direct)
+                    .addQueryParameter("token", template.queryParameter("token"))
+                    .build().toString());
+        } catch (IllegalArgumentException e) {
+            throw new LoadError(LoadError.KIND_IO, 0, 0, e.getMessage());
+        }
+    }
+
+    private static String unwrap(String u) {
+        int i = u.indexOf(HlsFaultServer.PROXY_PATH + "?url=");
+        if (i < 0) return u;
+        String rest = u.substring(i + HlsFaultServer.PROXY_PATH.length() + 5);
+        int amp = rest.indexOf('&');
+        try {
+            return URLDecoder.decode(amp < 0 ? rest : rest.substring(0, amp), "UTF-8");
+        } catch (Exception e) {
+            return u;
+        }
+    }
+
+    private byte[] get(String requestUrl) throws LoadError {
+        Request request = new Request.Builder().url(requestUrl).header("User-Agent", "IPTV-Manager/ExoPlayer").build();
+        try (Response response = client.newCall(request).execute()) {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful()) {
+                long retryAfter = 0;
+                String header = response.header("Retry-After");
+                if (header != null) {
+                    try {
+                        retryAfter = Long.parseLong(header.trim()) * 1000;
+                    } catch (NumberFormatException ignored) {
+                    }
+                }
+                throw new LoadError(LoadError.KIND_HTTP, response.code(), retryAfter,
+                        "HTTP " + response.code() + " " + shortPath(requestUrl));
+            }
+            return body != null ? body.bytes() : new byte[0];
+        } catch (LoadError e) {
+            throw e;
+        } catch (IOException e) {
+            throw new LoadError(LoadError.KIND_IO, 0, 0,
+                    e.getClass().getSimpleName() + " " + shortPath(requestUrl));
+        }
+    }
+
+    private static String shortPath(String u) {
+        String d = unwrap(u);
+        return (d.equals(u) ? "" : "proxy:") + d.substring(d.lastIndexOf('/') + 1);
+    }
+
+    private static Playlist parse(String text, String baseUrl) throws LoadError {
+        Playlist p = new Playlist();
+        HttpUrl base = HttpUrl.get(baseUrl);
+        long pendingDuration = -1;
+        for (String line : text.split("\n")) {
+            line = line.trim();
+            if (line.startsWith("#EXT-X-TARGETDURATION:")) {
+                p.targetMs = Long.parseLong(line.substring(22)) * 1000;
+            } else if (line.startsWith("#EXT-X-MEDIA-SEQUENCE:")) {
+                p.firstSeq = Long.parseLong(line.substring(22));
+            } else if (line.startsWith("#EXTINF:")) {
+                String d = line.substring(8);
+                int comma = d.indexOf(',');
+                pendingDuration = (long) (Double.parseDouble(comma < 0 ? d : d.substring(0, comma)) * 1000);
+            } else if (!line.isEmpty() && !line.startsWith("#") && pendingDuration >= 0) {
+                HttpUrl resolved = base.resolve(line);
+                p.uris.add(resolved != null ? resolved.toString() : line);
+                p.durationsMs.add(pendingDuration);
+                pendingDuration = -1;
+            }
+        }
+        if (p.durationsMs.isEmpty() || p.targetMs <= 0) {
+            throw new LoadError(LoadError.KIND_PARSE, 0, 0, "malformed playlist");
+        }
+        return p;
+    }
+
+    /** The panel's proxy URL for {@code directUrl} on {@code host}. */
+    static String proxyUrlFor(String host, String directUrl) {
+        try {
+            return "http://" + host + HlsFaultServer.PROXY_PATH + "?url="
+                    + URLEncoder.encode(directUrl, "UTF-8") + "&token=dev";
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // ── Threads ──────────────────────────────────────────────
+
+    private static void startThread(String name, Runnable r) {
+        Thread t = new Thread(r, "HeadlessPlayer-" + name);
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private void sleepWhileCurrent(int gen, long ms) {
+        long until = now() + ms;
+        while (isCurrent(gen)) {
+            long left = until - now();
+            if (left <= 0) return;
+            sleep(Math.min(left, 50));
+        }
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.iptv.manager.devserver;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local live HLS origin with scripted faults ({@link FaultScript}). Serves
+ * generated media playlists and MPEG-TS segments on the panel's stream URL
+ * layout, {@code /live/<user>/<pass>/<channel>.m3u8}, plus the panel's
+ * {@code /api/proxy/hls?url=...} route, which serves the same stream with
+ * segment URIs rewritten through the proxy. Faults can target either route.
+ * Segments are null TS packets at the configured bitrate: right size and
+ * framing for the network path, nothing to decode.
+ *
+ * <pre>
+ *   ./gradlew :devserver:runHls --args="--script '30s+10s 503 segment; 60s jump=30s'"
+ * </pre>
+ *
+ * Runs offline; {@link MockBackend}'s config points stream URLs here by
+ * default, so the app itself can be pointed at the pair.
+ */
+public class HlsFaultServer {
+
+    public static final int DEFAULT_PORT = 8090;
+    static final String PROXY_PATH = "/api/proxy/hls";
+
+    private static final int TS_PACKET = 188;
+    private static final int WRITE_CHUNK = 8 * 1024;
+
+    private final FaultScript script;
+    private final int port;
+    private final long segmentMs;
+    private final int windowSize;
+    private final byte[] segment;
+    private final Map<String, AtomicLong> counts = new ConcurrentHashMap<>();
+    private LiveStream stream;
+    private HttpServer server;
+    private ExecutorService executor;
+    private volatile long startMs;
+
+    HlsFaultServer(FaultScript script, int port, long segmentMs, int windowSize, int bitrateKbps) {
+        this.script = script;
+        this.port = port;
+        this.segmentMs = segmentMs;
+        this.windowSize = windowSize;
+        this.segment = nullSegment(bitrateKbps * segmentMs / 8);
+    }
+
+    public static void main(String[] argv) throws Exception {
+        Args args = new Args(argv);
+        FaultScript script = FaultScript.parse(args.get("script", null));
+        HlsFaultServer server = new HlsFaultServer(script,
+                args.getInt("port", DEFAULT_PORT),
+                args.getLong("segment-ms", 2000),
+                args.getInt("window", 6),
+                args.getInt("bitrate-kbps", 2000));
+        int bound = server.start();
+        System.out.println("HLS fault server on http://0.0.0.0:" + bound + "/live/dev/dev/<channel>.m3u8");
+        System.out.println("Faults: " + script);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            System.out.println("Requests: " + server.counts);
+        }));
+    }
+
+    /** Bind and start; fault times count from here. Returns the bound port. */
+    int start() throws IOException {
+        startMs = now();
+        stream = new LiveStream(segmentMs, windowSize, startMs);
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress(port), 128);
+        // Stalled requests hold their thread, so the pool must not cap them
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext("/live/", ex -> handle(ex, FaultScript.ROUTE_DIRECT, ex.getRequestURI().getPath()));
+        server.createContext(PROXY_PATH, this::handleProxy);
+        server.start();
+        return server.getAddress().getPort();
+    }
+
+    void stop() {
+        if (server != null) server.stop(0);
+        if (executor != null) executor.shutdownNow();
+    }
+
+    long segmentMs() {
+        return segmentMs;
+    }
+
+    Map<String, AtomicLong> counts() {
+        return counts;
+    }
+
+    private static long now() {
+        return System.nanoTime() / 1_000_000;
+    }
+
+    // ── Requests ─────────────────────────────────────────────
+
+    private void handleProxy(HttpExchange ex) throws IOException {
+        String url = Http.query(ex).get("url");
+        if (url == null) {
+            Http.error(ex, 400, "url is required");
+            return;
+        }
+        handle(ex, FaultScript.ROUTE_PROXY, URI.create(url).getPath());
+    }
+
+    private void handle(HttpExchange ex, String route, String path) throws IOException {
+        long t = now() - startMs;
+        applyStreamEvents(t);
+        boolean playlist = path.endsWith(".m3u8");
+        String target = playlist ? FaultScript.TARGET_PLAYLIST : FaultScript.TARGET_SEGMENT;
+        count(route + "." + target);
+
+        FaultScript.Rule fault = script.activeFor(t, target, route);
+        long rateKbps = 0;
+        if (fault != null) {
+            count("fault." + fault.action);
+            if (fault.action.equals(FaultScript.ACTION_STATUS)) {
+                if (fault.value == 429 || fault.value == 503) ex.getResponseHeaders().set("Retry-After", "1");
+                Http.error(ex, (int) fault.value, "Injected " + fault.value);
+                return;
+            } else if (fault.action.equals(FaultScript.ACTION_STALL)) {
+                // Hold the request until the stall ends; clients usually give up first
+                sleep(fault.endMs() - t);
+            } else {
+                rateKbps = fault.value;
+            }
+        }
+
+        try {
+            if (playlist) {
+                servePlaylist(ex, route, path, t);
+            } else {
+                serveSegment(ex, path, rateKbps);
+            }
+        } catch (IOException e) {
+            // Client went away (timed out on a stall or slow body)
+            ex.close();
+        }
+    }
+
+    private void servePlaylist(HttpExchange ex, String route, String path, long t) throws IOException {
+        long at = startMs + t;
+        for (FaultScript.Rule r : script.rules) {
+            if (r.action.equals(FaultScript.ACTION_FREEZE) && r.activeAt(t)) at = startMs + r.atMs;
+        }
+        String name = path.substring(path.lastIndexOf('/') + 1, path.length() - ".m3u8".length());
+        String text;
+        if (route.equals(FaultScript.ROUTE_PROXY)) {
+            // Segment URIs go back through the proxy, absolute, as the panel's proxy writes them
+            String host = ex.getRequestHeaders().getFirst("Host");
+            String directBase = "http://" + host + path.substring(0, path.lastIndexOf('/') + 1) + name + "/";
+            StringBuilder sb = new StringBuilder();
+            for (String line : stream.playlist(at, "").split("\n")) {
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    line = "http://" + host + PROXY_PATH + "?url="
+                            + URLEncoder.encode(directBase + line, "UTF-8") + "&token=dev";
+                }
+                sb.append(line).append('\n');
+            }
+            text = sb.toString();
+        } else {
+            text = stream.playlist(at, name + "/");
+        }
+        Http.send(ex, 200, text.getBytes(StandardCharsets.UTF_8), "application/vnd.apple.mpegurl");
+    }
+
+    private void serveSegment(HttpExchange ex, String path, long rateKbps) throws IOException {
+        long seq;
+        try {
+            String file = path.substring(path.lastIndexOf('/') + 1);
+            seq = Long.parseLong(file.substring(0, file.length() - ".ts".length()));
+        } catch (RuntimeException e) {
+            Http.error(ex, 404, "Not found");
+            return;
+        }
+        if (!stream.hasSegment(seq, now())) {
+            count("segment.gone");
+            Http.error(ex, 404, "Segment " + seq + " not available");
+            return;
+        }
+        ex.getResponseHeaders().set("Content-Type", "video/mp2t");
+        ex.sendResponseHeaders(200, segment.length);
+        long started = now();
+        try (OutputStream os = ex.getResponseBody()) {
+            for (int off = 0; off < segment.length; off += WRITE_CHUNK) {
+                int n = Math.min(WRITE_CHUNK, segment.length - off);
+                os.write(segment, off, n);
+                if (rateKbps > 0) {
+                    os.flush();
+                    long dueMs = (off + n) * 8L / rateKbps;
+                    sleep(dueMs - (now() - started));
+                }
+            }
+        }
+    }
+
+    /** Fire one-shot stream events whose time has come. */
+    private void applyStreamEvents(long t) {
+        synchronized (script) {
+            for (FaultScript.Rule r : script.rules) {
+                if (r.fired || t < r.atMs) continue;
+                if (r.action.equals(FaultScript.ACTION_RESET)) {
+                    stream.reset(startMs + t);
+                } else if (r.action.equals(FaultScript.ACTION_JUMP)) {
+                    stream.jump(r.value);
+                } else {
+                    continue;
+                }
+                r.fired = true;
+                count("event." + r.action);
+            }
+        }
+    }
+
+    private void count(String key) {
+        counts.computeIfAbsent(key, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    private static void sleep(long ms) {
+        if (ms <= 0) return;
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** {@code bytes} rounded to whole TS packets: sync byte, null PID, stuffing. */
+    private static byte[] nullSegment(long bytes) {
+        int packets = (int) Math.max(1, bytes / TS_PACKET);
+        byte[] data = new byte[packets * TS_PACKET];
+        for (int p = 0; p < packets; p++) {
+            int o = p * TS_PACKET;
+            data[o] = 0x47;
+            data[o + 1] = 0x1F;
+            data[o + 2] = (byte) 0xFF;
+            data[o + 3] = (byte) (0x10 | (p & 0x0F));
+            for (int i = 4; i < TS_PACKET; i++) data[o + i] = (byte) 0xFF;
+        }
+        return data;
+    }
+}
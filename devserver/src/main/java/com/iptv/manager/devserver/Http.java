@@ -0,0 +1,95 @@
+package com.iptv.manager.devserver;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/** Response and request helpers shared by the dev servers. */
+final class Http {
+
+    private static final int GZIP_MIN_BYTES = 1024;
+
+    private Http() {
+    }
+
+    static byte[] jsonBytes(JSONObject obj) {
+        return obj.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    static void json(HttpExchange ex, int code, JSONObject body) throws IOException {
+        send(ex, code, jsonBytes(body), "application/json");
+    }
+
+    static void error(HttpExchange ex, int code, String message) throws IOException {
+        json(ex, code, new JSONObject().put("error", message));
+    }
+
+    /** Send {@code body}, gzipped when the client accepts it and it is worth it (OkHttp always asks). */
+    static void send(HttpExchange ex, int code, byte[] body, String contentType) throws IOException {
+        ex.getResponseHeaders().set("Content-Type", contentType);
+        String accept = ex.getRequestHeaders().getFirst("Accept-Encoding");
+        if (body.length >= GZIP_MIN_BYTES && accept != null && accept.contains("gzip")) {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(body.length / 4);
+            try (GZIPOutputStream gz = new GZIPOutputStream(bos)) {
+                gz.write(body);
+            }
+            body = bos.toByteArray();
+            ex.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        if ("HEAD".equals(ex.getRequestMethod())) {
+            ex.sendResponseHeaders(code, -1);
+            ex.close();
+            return;
+        }
+        ex.sendResponseHeaders(code, body.length == 0 ? -1 : body.length);
+        try (OutputStream os = ex.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    static void empty(HttpExchange ex, int code) throws IOException {
+        ex.sendResponseHeaders(code, -1);
+        ex.close();
+    }
+
+    static byte[] readBody(HttpExchange ex) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        try (InputStream in = ex.getRequestBody()) {
+            int n;
+            while ((n = in.read(buf)) > 0) bos.write(buf, 0, n);
+        }
+        return bos.toByteArray();
+    }
+
+    static JSONObject readJson(HttpExchange ex) throws IOException {
+        String s = new String(readBody(ex), StandardCharsets.UTF_8).trim();
+        return s.isEmpty() ? new JSONObject() : new JSONObject(s);
+    }
+
+    static Map<String, String> query(HttpExchange ex) {
+        Map<String, String> params = new HashMap<>();
+        String raw = ex.getRequestURI().getRawQuery();
+        if (raw == null) return params;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            try {
+                String k = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), "UTF-8");
+                String v = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), "UTF-8");
+                params.put(k, v);
+            } catch (Exception ignored) {
+            }
+        }
+        return params;
+    }
+}
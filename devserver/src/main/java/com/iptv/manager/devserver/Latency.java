@@ -0,0 +1,52 @@
+package com.iptv.manager.devserver;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Injected server think time: a base delay plus uniform jitter, with optional
+ * per-endpoint overrides such as {@code channels=900,epg=250} for the slow
+ * calls of a real panel. Applied before the response is written, so it shows
+ * up in the client as time to first byte.
+ */
+final class Latency {
+
+    private final long baseMs;
+    private final long jitterMs;
+    private final Map<String, Long> overridesMs = new HashMap<>();
+
+    Latency(long baseMs, long jitterMs, String overrides) {
+        this.baseMs = baseMs;
+        this.jitterMs = jitterMs;
+        if (overrides != null && !overrides.isEmpty()) {
+            for (String pair : overrides.split(",")) {
+                int eq = pair.indexOf('=');
+                if (eq <= 0) throw new IllegalArgumentException("Bad latency override: " + pair);
+                overridesMs.put(pair.substring(0, eq).trim(), Long.parseLong(pair.substring(eq + 1).trim()));
+            }
+        }
+    }
+
+    long delayFor(String endpoint) {
+        Long base = overridesMs.get(endpoint);
+        long ms = base != null ? base : baseMs;
+        if (jitterMs > 0) ms += ThreadLocalRandom.current().nextLong(jitterMs + 1);
+        return ms;
+    }
+
+    void apply(String endpoint) {
+        long ms = delayFor(endpoint);
+        if (ms <= 0) return;
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return baseMs + "ms +0.." + jitterMs + "ms" + (overridesMs.isEmpty() ? "" : " " + overridesMs);
+    }
+}
@@ -0,0 +1,72 @@
+package com.iptv.manager.devserver;
+
+import java.util.Locale;
+
+/**
+ * The timeline of a generated live channel. Segment {@code i} covers
+ * {@code [i, i+1) * segmentMs} of stream time and is listed once complete; the
+ * playlist is a sliding window of the last {@code windowSize} segments.
+ * Stream time starts well before the server does, so sequence numbers are
+ * already large, as on a real panel.
+ *
+ * Scripted stream events change the mapping: a reset renumbers the media
+ * sequence from zero, a jump moves the live edge ahead, and a freeze pins
+ * the playlist to one moment while it lasts.
+ */
+final class LiveStream {
+
+    /** Segments stay fetchable this many positions behind the window, as origins usually allow. */
+    private static final int GRACE_SEGMENTS = 6;
+    private static final long PREROLL_MS = 10 * 60_000;
+
+    private final long segmentMs;
+    private final int windowSize;
+    private final long originMs;
+    private long jumpMs;
+    private long sequenceBase;
+
+    LiveStream(long segmentMs, int windowSize, long startMs) {
+        this.segmentMs = segmentMs;
+        this.windowSize = windowSize;
+        this.originMs = startMs - PREROLL_MS;
+    }
+
+    long segmentMs() {
+        return segmentMs;
+    }
+
+    private long lastIndex(long nowMs) {
+        return (nowMs - originMs + jumpMs) / segmentMs - 1;
+    }
+
+    synchronized void reset(long nowMs) {
+        // The first segment of the current window becomes sequence 0
+        sequenceBase = -(lastIndex(nowMs) - windowSize + 1);
+    }
+
+    synchronized void jump(long ms) {
+        jumpMs += ms;
+    }
+
+    /** Media playlist as of {@code nowMs}; {@code uriPrefix} precedes {@code <seq>.ts}. */
+    synchronized String playlist(long nowMs, String uriPrefix) {
+        long last = lastIndex(nowMs);
+        long first = last - windowSize + 1;
+        StringBuilder sb = new StringBuilder(64 + windowSize * 48);
+        sb.append("#EXTM3U\n#EXT-X-VERSION:3\n")
+                .append("#EXT-X-TARGETDURATION:").append((segmentMs + 999) / 1000).append('\n')
+                .append("#EXT-X-MEDIA-SEQUENCE:").append(first + sequenceBase).append('\n');
+        for (long i = first; i <= last; i++) {
+            sb.append(String.format(Locale.US, "#EXTINF:%.3f,\n", segmentMs / 1000.0))
+                    .append(uriPrefix).append(i + sequenceBase).append(".ts\n");
+        }
+        return sb.toString();
+    }
+
+    /** Whether media sequence {@code seq} can be fetched at {@code nowMs}. */
+    synchronized boolean hasSegment(long seq, long nowMs) {
+        long index = seq - sequenceBase;
+        long last = lastIndex(nowMs);
+        return index <= last && index > last - windowSize - GRACE_SEGMENTS;
+    }
+}
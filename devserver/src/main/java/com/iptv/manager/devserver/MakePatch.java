@@ -0,0 +1,52 @@
+package com.iptv.manager.devserver;
+
+import com.iptv.manager.update.DeltaPatch;
+
+import java.io.File;
+import java.util.Locale;
+
+/**
+ * Builds an update patch from one APK to the next in the format the app's
+ * updater applies ({@link DeltaPatch}), then applies it to the old APK and
+ * checks the result against the new one, so a bad patch never gets published.
+ * The release workflow runs it against the previous release's APK; for local
+ * runs, put the output under {@code <static>/patches/} for {@link MockBackend}.
+ *
+ * <pre>
+ *   ./gradlew :devserver:makePatch -PpatchArgs="--old /tmp/v41.apk --new /tmp/v42.apk --out /tmp/update/patches/41-42.patch"
+ * </pre>
+ */
+public class MakePatch {
+
+    public static void main(String[] argv) throws Exception {
+        Args args = new Args(argv);
+        File oldApk = new File(args.get("old", ""));
+        File newApk = new File(args.get("new", ""));
+        File out = new File(args.get("out", ""));
+        if (!oldApk.isFile() || !newApk.isFile() || out.getPath().isEmpty()) {
+            System.err.println("Usage: --old <installed.apk> --new <target.apk> --out <from>-<to>.patch");
+            System.exit(2);
+        }
+        File dir = out.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.exists()) dir.mkdirs();
+
+        long started = System.nanoTime();
+        long patchBytes = DeltaPatch.create(oldApk, newApk, out);
+        long tookMs = (System.nanoTime() - started) / 1_000_000;
+
+        File check = File.createTempFile("patched", ".apk");
+        try {
+            String expected = StaticFiles.sha256(newApk);
+            String actual = DeltaPatch.apply(oldApk, out, check);
+            if (!expected.equals(actual)) {
+                out.delete();
+                System.err.println("Patch does not rebuild the new APK: " + actual + " != " + expected);
+                System.exit(1);
+            }
+            System.out.println(String.format(Locale.US, "%s: %d bytes, %.1f%% of the %d-byte APK, in %d ms",
+                    out.getPath(), patchBytes, 100.0 * patchBytes / newApk.length(), newApk.length(), tookMs));
+        } finally {
+            check.delete();
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.iptv.manager.devserver;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the panel API, serving a {@link SyntheticCatalog} with
+ * injected {@link Latency}. Implements what the app calls: login, config, me,
+ * channels (and the favourite toggle), EPG, recents, preferences,
+ * app-version (with ETag revalidation), the debug report sink, the HLS
+ * proxy route as a redirect to {@link HlsFaultServer}, and, with
+ * {@code --static <dir>}, update downloads from {@link StaticFiles}; app-version
+ * then carries the SHA-256 of {@code <dir>/tv.apk}, as the release's
+ * version.json does. Any
+ * username/password logs in; other endpoints need the issued Bearer token and
+ * answer 401 without it, as the panel does.
+ *
+ * <pre>
+ *   ./gradlew :devserver:run --args="--channels 20000 --groups 120 --latency-ms 80 --jitter-ms 60"
+ *   ./gradlew :devserver:run --args="--static /tmp/update --version-code 99"
+ * </pre>
+ *
+ * Point the app's login at {@code http://<host>:8080}. Stream URLs in the
+ * config go to {@code --stream-host} (default: the HLS test server's port).
+ */
+public class MockBackend {
+
+    private static final int MAX_RECENTS = 20;
+
+    private final SyntheticCatalog catalog;
+    private final Latency latency;
+    private final String streamHost;
+    private final int versionCode;
+    private final StaticFiles staticFiles;
+    private final int port;
+    private final int threads;
+    private final Set<String> tokens = ConcurrentHashMap.newKeySet();
+    private final LinkedList<JSONObject> recents = new LinkedList<>();
+    private final Map<String, AtomicLong> requestCounts = new ConcurrentHashMap<>();
+    private volatile int activeServerIndex;
+    private volatile int activeCredentialIndex;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public MockBackend(String[] argv) {
+        this(new Args(argv));
+    }
+
+    MockBackend(Args args) {
+        catalog = new SyntheticCatalog(
+                args.getInt("channels", 5000),
+                args.getInt("groups", 60),
+                Double.parseDouble(args.get("epg-coverage", "0.7")),
+                args.getLong("seed", 42));
+        latency = new Latency(args.getLong("latency-ms", 40), args.getLong("jitter-ms", 40),
+                args.get("latency", null));
+        streamHost = args.get("stream-host", "127.0.0.1:" + HlsFaultServer.DEFAULT_PORT);
+        versionCode = args.getInt("version-code", 1);
+        staticFiles = args.has("static") ? new StaticFiles(new File(args.get("static", "."))) : null;
+        port = args.getInt("port", 8080);
+        threads = args.getInt("threads", 16);
+        for (String id : catalog.firstIds(5)) {
+            SyntheticCatalog.Item item = catalog.get(id);
+            recents.add(recentJson(item.channelId, item.name, item.group));
+        }
+    }
+
+    public static void main(String[] argv) throws Exception {
+        MockBackend backend = new MockBackend(argv);
+        int bound = backend.start();
+        System.out.println("Mock backend on http://0.0.0.0:" + bound + ": " + backend.describe());
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            backend.stop();
+            System.out.println("Requests: " + backend.requestCounts);
+        }));
+    }
+
+    /** Bind and start serving. Returns the bound port ({@code --port 0} picks a free one). */
+    public int start() throws IOException {
+        // Headers and body go out in separate writes; without this, delayed ACKs add ~40 ms per call
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress(port), 128);
+        executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.createContext("/api/", this::handle);
+        if (staticFiles != null) server.createContext(StaticFiles.PATH, staticFiles);
+        server.start();
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        if (server != null) server.stop(0);
+        if (executor != null) executor.shutdownNow();
+    }
+
+    String describe() {
+        return catalog.size() + " channels in " + catalog.groupNames().size() + " groups, latency " + latency;
+    }
+
+    // ── Routing ──────────────────────────────────────────────
+
+    private void handle(HttpExchange ex) throws IOException {
+        String method = ex.getRequestMethod();
+        String path = ex.getRequestURI().getPath();
+        String endpoint = endpointName(path);
+        requestCounts.computeIfAbsent(endpoint, k -> new AtomicLong()).incrementAndGet();
+        try {
+            latency.apply(endpoint);
+            if (path.equals("/api/auth/login") && method.equals("POST")) {
+                login(ex);
+                return;
+            }
+            if (path.equals("/api/app-version")) {
+                appVersion(ex);
+                return;
+            }
+            if (path.equals(HlsFaultServer.PROXY_PATH)) {
+                // The panel relays streams itself; here the HLS test server plays the proxy
+                ex.getResponseHeaders().set("Location", "http://" + streamHost + HlsFaultServer.PROXY_PATH
+                        + "?" + ex.getRequestURI().getRawQuery());
+                Http.empty(ex, 302);
+                return;
+            }
+            if (!authorised(ex)) {
+                Http.error(ex, 401, "Invalid or expired token");
+                return;
+            }
+            if (path.equals("/api/auth/me")) {
+                Http.json(ex, 200, new JSONObject().put("user",
+                        new JSONObject().put("username", "dev").put("is_admin", false)));
+            } else if (path.equals("/api/config")) {
+                Http.json(ex, 200, config());
+            } else if (path.equals("/api/channels")) {
+                Http.send(ex, 200, catalog.channelsBody(), "application/json");
+            } else if (path.startsWith("/api/channels/") && path.endsWith("/favourite") && method.equals("POST")) {
+                favourite(ex, path.substring("/api/channels/".length(), path.length() - "/favourite".length()));
+            } else if (path.equals("/api/epg")) {
+                String ids = Http.query(ex).get("channel_ids");
+                String[] split = ids == null || ids.isEmpty() ? new String[0] : ids.split(",");
+                Http.json(ex, 200, catalog.epg(split, System.currentTimeMillis() / 1000));
+            } else if (path.equals("/api/user/recent")) {
+                recent(ex, method);
+            } else if (path.equals("/api/preferences") && method.equals("PUT")) {
+                preferences(ex);
+            } else if (path.equals("/api/debug/report")) {
+                Http.readBody(ex);
+                Http.empty(ex, 204);
+            } else {
+                Http.error(ex, 404, "Not found");
+            }
+        } catch (Exception e) {
+            Http.error(ex, 500, String.valueOf(e.getMessage()));
+        }
+    }
+
+    /** Counter/override key: the path after /api/, with channel ids collapsed. */
+    private static String endpointName(String path) {
+        String p = path.startsWith("/api/") ? path.substring(5) : path;
+        if (p.startsWith("channels/")) return "favourite";
+        if (p.startsWith("auth/")) return p.substring(5);
+        if (p.startsWith("user/")) return p.substring(5);
+        return p;
+    }
+
+    private boolean authorised(HttpExchange ex) {
+        String auth = ex.getRequestHeaders().getFirst("Authorization");
+        return auth != null && auth.startsWith("Bearer ") && tokens.contains(auth.substring(7));
+    }
+
+    // ── Endpoints ────────────────────────────────────────────
+
+    private void login(HttpExchange ex) throws IOException {
+        JSONObject body = Http.readJson(ex);
+        if (body.optString("username").isEmpty() || body.optString("password").isEmpty()) {
+            Http.error(ex, 400, "Username and password are required");
+            return;
+        }
+        String token = UUID.randomUUID().toString();
+        tokens.add(token);
+        Http.json(ex, 200, new JSONObject().put("token", token)
+                .put("user", new JSONObject().put("username", body.optString("username")).put("is_admin", false)));
+    }
+
+    private JSONObject config() {
+        JSONArray servers = new JSONArray().put(streamHost).put(streamHost);
+        JSONArray credentials = new JSONArray()
+                .put(new JSONObject().put("id", 1).put("username", "dev").put("password", "dev"))
+                .put(new JSONObject().put("id", 2).put("username", "dev2").put("password", "dev2"));
+        JSONArray order = new JSONArray();
+        for (String g : catalog.groupNames()) order.put(g);
+        JSONArray recent = new JSONArray();
+        synchronized (recents) {
+            for (JSONObject r : recents) recent.put(r);
+        }
+        return new JSONObject()
+                .put("servers", servers)
+                .put("server_ids", new JSONArray().put(1).put(2))
+                .put("server_statuses", new JSONArray().put("online").put("online"))
+                .put("credentials", credentials)
+                .put("active", new JSONObject()
+                        .put("server_index", activeServerIndex)
+                        .put("credential_index", activeCredentialIndex))
+                .put("recent", recent)
+                .put("group_order", order);
+    }
+
+    private void favourite(HttpExchange ex, String channelId) throws IOException {
+        SyntheticCatalog.Item item = catalog.get(channelId);
+        if (item == null) {
+            Http.error(ex, 404, "Channel not found");
+            return;
+        }
+        Http.json(ex, 200, new JSONObject().put("favourite", catalog.toggleFavourite(item)));
+    }
+
+    private void recent(HttpExchange ex, String method) throws IOException {
+        if (method.equals("POST")) {
+            JSONObject body = Http.readJson(ex);
+            String id = body.optString("channel_id");
+            if (id.isEmpty()) {
+                Http.error(ex, 400, "channel_id is required");
+                return;
+            }
+            synchronized (recents) {
+                recents.removeIf(r -> id.equals(r.optString("channel_id")));
+                recents.addFirst(recentJson(id, body.optString("name"), body.optString("group")));
+                while (recents.size() > MAX_RECENTS) recents.removeLast();
+            }
+            Http.json(ex, 200, new JSONObject().put("ok", true));
+            return;
+        }
+        List<JSONObject> copy;
+        synchronized (recents) {
+            copy = new ArrayList<>(recents);
+        }
+        Http.json(ex, 200, new JSONObject().put("recent", new JSONArray(copy)));
+    }
+
+    private static JSONObject recentJson(String channelId, String name, String group) {
+        return new JSONObject().put("channel_id", channelId).put("name", name).put("group", group);
+    }
+
+    private void preferences(HttpExchange ex) throws IOException {
+        JSONObject body = Http.readJson(ex);
+        // Ids are 1-based positions in the lists above
+        if (body.has("active_server_id")) {
+            activeServerIndex = Math.max(0, Math.min(1, body.optInt("active_server_id") - 1));
+        }
+        if (body.has("active_credential_id")) {
+            activeCredentialIndex = Math.max(0, Math.min(1, body.optInt("active_credential_id") - 1));
+        }
+        Http.json(ex, 200, new JSONObject().put("ok", true));
+    }
+
+    private void appVersion(HttpExchange ex) throws IOException {
+        String sha256 = staticFiles != null ? staticFiles.apkSha256() : null;
+        String etag = "\"v" + versionCode + (sha256 != null ? "-" + sha256.substring(0, 12) : "") + "\"";
+        ex.getResponseHeaders().set("ETag", etag);
+        if (etag.equals(ex.getRequestHeaders().getFirst("If-None-Match"))) {
+            Http.empty(ex, 304);
+            return;
+        }
+        JSONObject body = new JSONObject()
+                .put("versionCode", versionCode)
+                .put("versionName", "dev-" + versionCode);
+        if (sha256 != null) body.put("sha256", sha256);
+        Http.json(ex, 200, body);
+    }
+}
@@ -0,0 +1,197 @@
+package com.iptv.manager.devserver;
+
+import com.iptv.manager.playback.BufferSizes;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Player recovery benchmark: each scenario starts its own {@link HlsFaultServer}
+ * with a fault script and plays it with a {@link HeadlessPlayer}, then reports
+ * startup, time without picture after the first frame, and time to recover —
+ * from the first visible effect of the fault (picture lost or an error
+ * surfaced) to playing again. Scenarios run side by side, so a full run takes
+ * about one scenario's duration. Everything is on loopback; no network needed.
+ *
+ * <pre>
+ *   ./gradlew :devserver:recoveryBench
+ *   ./gradlew :devserver:recoveryBench -PbenchArgs="--scenario segment_stall,playlist_reset --verbose"
+ *   ./gradlew :devserver:recoveryBench -PbenchArgs="--buffer-profile low"
+ *   ./gradlew :devserver:recoveryBench -PbenchScript="15s+6s 502 segment" -PbenchArgs="--max-black-ms 20000"
+ * </pre>
+ */
+public class RecoveryHarness {
+
+    /** A named fault script; {@code proxy} says whether the session has a proxy fallback. */
+    private static final class Scenario {
+        final String name;
+        final String script;
+        final boolean proxy;
+
+        Scenario(String name, String script, boolean proxy) {
+            this.name = name;
+            this.script = script;
+            this.proxy = proxy;
+        }
+    }
+
+    private static final List<Scenario> SCENARIOS = Arrays.asList(
+            new Scenario("baseline", "", true),
+            new Scenario("segment_503_short", "15s+3s 503 segment", true),
+            new Scenario("segment_503_long", "15s+25s 503 segment", true),
+            new Scenario("segment_404", "15s+10s 404 segment", true),
+            new Scenario("playlist_500", "15s+12s 500 playlist", true),
+            new Scenario("segment_stall", "15s+15s stall segment", true),
+            new Scenario("playlist_stall", "15s+15s stall playlist", true),
+            new Scenario("slow_segments", "15s+20s slow=1000 segment", true),
+            new Scenario("playlist_freeze", "15s+15s freeze", true),
+            new Scenario("playlist_reset", "15s reset", true),
+            new Scenario("behind_live_window", "15s jump=30s", true),
+            new Scenario("direct_blocked_403", "15s+40s 403 direct", true),
+            new Scenario("direct_503_no_proxy", "15s+25s 503", false)
+    );
+
+    public static void main(String[] argv) throws Exception {
+        Args args = new Args(argv);
+        long durationMs = args.getLong("duration-ms", 60_000);
+        long segmentMs = args.getLong("segment-ms", 2000);
+        int window = args.getInt("window", 6);
+        int bitrate = args.getInt("bitrate-kbps", 2000);
+        long seed = args.getLong("seed", 7);
+        boolean verbose = args.getBool("verbose");
+        String profile = args.get("buffer-profile", BufferSizes.STANDARD.name);
+        BufferSizes buffers = BufferSizes.byName(profile);
+        if (buffers == null) throw new IllegalArgumentException("Unknown buffer profile: " + profile);
+
+        List<Scenario> scenarios = new ArrayList<>();
+        if (args.has("script")) {
+            scenarios.add(new Scenario("custom", args.get("script", ""), !args.getBool("no-proxy")));
+        } else if (args.has("scenario")) {
+            for (String name : args.get("scenario", "").split(",")) {
+                Scenario found = null;
+                for (Scenario s : SCENARIOS) {
+                    if (s.name.equals(name.trim())) found = s;
+                }
+                if (found == null) throw new IllegalArgumentException("Unknown scenario: " + name);
+                scenarios.add(found);
+            }
+        } else {
+            scenarios.addAll(SCENARIOS);
+        }
+
+        System.out.println("Running " + scenarios.size() + " scenario(s) for " + durationMs / 1000 + " s, "
+                + segmentMs + " ms segments, window " + window + ", " + bitrate + " kbit/s, "
+                + buffers.name + " buffers");
+        ExecutorService pool = Executors.newFixedThreadPool(args.getBool("sequential") ? 1 : scenarios.size());
+        Map<Scenario, Future<JSONObject>> futures = new LinkedHashMap<>();
+        for (Scenario s : scenarios) {
+            futures.put(s, pool.submit(() -> runScenario(s, durationMs, segmentMs, window, bitrate, buffers, seed)));
+        }
+
+        JSONArray results = new JSONArray();
+        System.out.println();
+        System.out.println(String.format(Locale.US, "%-22s %8s %8s %5s %8s %9s %6s %7s %5s %6s  %s",
+                "scenario", "startup", "black", "outg", "longest", "recover", "errors", "retries", "fallb", "proxy", "end"));
+        long worstBlack = 0;
+        for (Map.Entry<Scenario, Future<JSONObject>> e : futures.entrySet()) {
+            JSONObject r = e.getValue().get();
+            results.put(r);
+            worstBlack = Math.max(worstBlack, r.getLong("blackMs"));
+            long recover = r.getLong("recoverMs");
+            System.out.println(String.format(Locale.US, "%-22s %8d %8d %5d %8d %9s %6d %7d %5d %6d  %s",
+                    r.getString("scenario"), r.getLong("startupMs"), r.getLong("blackMs"), r.getInt("outages"),
+                    r.getLong("longestOutageMs"), recover < 0 ? "never" : String.valueOf(recover),
+                    r.getInt("errors"), r.getInt("retries"), r.getInt("sessionFallbacks"),
+                    r.getInt("proxyRequests"), r.getString("finalState")));
+            if (verbose) {
+                JSONArray events = r.getJSONArray("events");
+                for (int i = 0; i < events.length(); i++) System.out.println("    " + events.getString(i));
+            }
+        }
+        pool.shutdown();
+
+        File out = new File(args.get("out", "build/reports/recovery/results.json"));
+        File dir = out.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.exists()) dir.mkdirs();
+        try (FileWriter w = new FileWriter(out)) {
+            w.write(new JSONObject()
+                    .put("time", System.currentTimeMillis())
+                    .put("durationMs", durationMs)
+                    .put("segmentMs", segmentMs)
+                    .put("window", window)
+                    .put("bitrateKbps", bitrate)
+                    .put("bufferProfile", buffers.name)
+                    .put("scenarios", results)
+                    .toString(2));
+        }
+        System.out.println("Results: " + out.getPath());
+
+        long maxBlack = args.getLong("max-black-ms", -1);
+        if (maxBlack >= 0 && worstBlack > maxBlack) {
+            System.out.println("BUDGET EXCEEDED: " + worstBlack + " ms without picture > " + maxBlack + " ms");
+            System.exit(1);
+        }
+        System.exit(0);   // stalled server threads would otherwise keep the JVM up
+    }
+
+    private static JSONObject runScenario(Scenario s, long durationMs, long segmentMs, int window,
+                                          int bitrate, BufferSizes buffers, long seed) throws Exception {
+        FaultScript script = FaultScript.parse(s.script);
+        HlsFaultServer server = new HlsFaultServer(script, 0, segmentMs, window, bitrate);
+        int port = server.start();
+        try {
+            String host = "127.0.0.1:" + port;
+            String direct = "http://" + host + "/live/dev/dev/100000.m3u8";
+            String proxy = s.proxy ? HeadlessPlayer.proxyUrlFor(host, direct) : null;
+            long faultAt = script.firstFaultMs();
+            HeadlessPlayer.Result r = new HeadlessPlayer(direct, proxy, faultAt, buffers, seed).run(durationMs);
+
+            long recoverMs;
+            if (r.firstImpactMs < 0) {
+                recoverMs = 0;                       // absorbed by the buffer
+            } else if (!"ready".equals(r.finalState) || r.recoveredAtMs < r.firstImpactMs) {
+                recoverMs = -1;                      // never came back
+            } else {
+                recoverMs = r.recoveredAtMs - r.firstImpactMs;
+            }
+            JSONObject requests = new JSONObject();
+            for (Map.Entry<String, AtomicLong> c : server.counts().entrySet()) {
+                requests.put(c.getKey(), c.getValue().get());
+            }
+            return new JSONObject()
+                    .put("scenario", s.name)
+                    .put("script", script.toString())
+                    .put("proxyFallback", s.proxy)
+                    .put("startupMs", r.startupMs)
+                    .put("blackMs", r.blackMs)
+                    .put("outages", r.outages)
+                    .put("longestOutageMs", r.longestOutageMs)
+                    .put("recoverMs", recoverMs)
+                    .put("policyRecoveryMs", r.policyRecoveryMs)
+                    .put("errors", r.errors)
+                    .put("retries", r.retries)
+                    .put("sessionFallbacks", r.sessionFallbacks)
+                    .put("behindLive", r.behindLive)
+                    .put("jumpsToLive", r.jumpsToLive)
+                    .put("proxyRequests", r.proxyRequests)
+                    .put("finalState", r.finalState)
+                    .put("events", new JSONArray(r.events))
+                    .put("serverRequests", requests);
+        } finally {
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.iptv.manager.devserver;
+
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/** Millisecond samples for one measured phase, with nearest-rank percentiles. */
+final class Samples {
+
+    private final List<Long> values = new ArrayList<>();
+
+    synchronized void add(long ms) {
+        values.add(ms);
+    }
+
+    synchronized int count() {
+        return values.size();
+    }
+
+    synchronized long percentile(double p) {
+        if (values.isEmpty()) return 0;
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        int rank = (int) Math.ceil(p / 100.0 * sorted.size());
+        return sorted.get(Math.max(0, Math.min(sorted.size() - 1, rank - 1)));
+    }
+
+    synchronized long max() {
+        return values.isEmpty() ? 0 : Collections.max(values);
+    }
+
+    JSONObject toJson() {
+        return new JSONObject()
+                .put("n", count())
+                .put("p50", percentile(50))
+                .put("p90", percentile(90))
+                .put("p99", percentile(99))
+                .put("max", max());
+    }
+
+    String row(String name) {
+        return String.format(Locale.US, "%-18s %6d %8d %8d %8d %8d",
+                name, count(), percentile(50), percentile(90), percentile(99), max());
+    }
+
+    static String header() {
+        return String.format(Locale.US, "%-18s %6s %8s %8s %8s %8s", "phase (ms)", "n", "p50", "p90", "p99", "max");
+    }
+}
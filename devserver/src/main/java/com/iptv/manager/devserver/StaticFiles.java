@@ -0,0 +1,123 @@
+package com.iptv.manager.devserver;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+
+/**
+ * The panel's {@code /static/} host for a local directory: update APKs and
+ * patches. Sends an ETag and honours single {@code bytes=N-} / {@code bytes=N-M}
+ * ranges (with {@code If-Range}), so the updater's resume path can be
+ * exercised by killing the connection mid-download.
+ */
+final class StaticFiles implements HttpHandler {
+
+    static final String PATH = "/static/";
+    static final String APK = "tv.apk";
+
+    private final File root;
+    private String cachedHashKey;
+    private String cachedHash;
+
+    StaticFiles(File root) {
+        this.root = root;
+    }
+
+    /** SHA-256 of the APK under the root, or null if there is none; recomputed when the file changes. */
+    synchronized String apkSha256() throws IOException {
+        File apk = new File(root, APK);
+        if (!apk.isFile()) return null;
+        String key = apk.length() + "-" + apk.lastModified();
+        if (!key.equals(cachedHashKey)) {
+            cachedHash = sha256(apk);
+            cachedHashKey = key;
+        }
+        return cachedHash;
+    }
+
+    static String sha256(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buf = new byte[64 * 1024];
+            int n;
+            while ((n = in.read(buf)) != -1) digest.update(buf, 0, n);
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest.digest()) sb.append(String.format(Locale.US, "%02x", b));
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public void handle(HttpExchange ex) throws IOException {
+        String name = ex.getRequestURI().getPath().substring(PATH.length());
+        File file = new File(root, name);
+        if (name.isEmpty() || name.contains("..") || !file.isFile()) {
+            Http.error(ex, 404, "Not found");
+            return;
+        }
+        long length = file.length();
+        String etag = "\"" + Long.toHexString(file.lastModified()) + "-" + Long.toHexString(length) + "\"";
+        ex.getResponseHeaders().set("ETag", etag);
+        ex.getResponseHeaders().set("Accept-Ranges", "bytes");
+        ex.getResponseHeaders().set("Content-Type", name.endsWith(".apk")
+                ? "application/vnd.android.package-archive" : "application/octet-stream");
+
+        long start = 0;
+        long end = length - 1;
+        String range = ex.getRequestHeaders().getFirst("Range");
+        String ifRange = ex.getRequestHeaders().getFirst("If-Range");
+        boolean partial = range != null && range.startsWith("bytes=") && !range.contains(",")
+                && (ifRange == null || ifRange.equals(etag));
+        if (partial) {
+            String spec = range.substring("bytes=".length());
+            int dash = spec.indexOf('-');
+            try {
+                start = Long.parseLong(spec.substring(0, dash).trim());
+                if (dash < spec.length() - 1) end = Math.min(end, Long.parseLong(spec.substring(dash + 1).trim()));
+            } catch (RuntimeException e) {
+                partial = false;
+                start = 0;
+            }
+            if (partial && start >= length) {
+                ex.getResponseHeaders().set("Content-Range", "bytes */" + length);
+                Http.empty(ex, 416);
+                return;
+            }
+        }
+        if (partial) {
+            ex.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + length);
+        }
+        long count = end - start + 1;
+        if ("HEAD".equals(ex.getRequestMethod())) {
+            ex.getResponseHeaders().set("Content-Length", String.valueOf(count));
+            Http.empty(ex, partial ? 206 : 200);
+            return;
+        }
+        ex.sendResponseHeaders(partial ? 206 : 200, count == 0 ? -1 : count);
+        try (RandomAccessFile in = new RandomAccessFile(file, "r");
+             OutputStream os = ex.getResponseBody()) {
+            in.seek(start);
+            byte[] buf = new byte[64 * 1024];
+            while (count > 0) {
+                int n = in.read(buf, 0, (int) Math.min(buf.length, count));
+                if (n < 0) break;
+                os.write(buf, 0, n);
+                count -= n;
+            }
+        } catch (IOException e) {
+            // Client dropped the connection; it resumes with a Range request
+            ex.close();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.iptv.manager.devserver;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A generated channel list shaped like a real panel's: group sizes are skewed
+ * (a few large groups, a long tail of small ones), about one channel in twenty
+ * is a favourite, and only part of the catalog has EPG. Everything derives
+ * from the seed, so two runs with the same options serve identical data.
+ *
+ * The /api/channels body is serialised once and rebuilt only after a
+ * favourite changes, so the server's own cost stays out of client timings.
+ */
+final class SyntheticCatalog {
+
+    private static final String[] COUNTRIES = {"UK", "US", "DE", "FR", "ES", "IT", "NL", "PL", "TR", "AR"};
+    private static final String[] GENRES = {
+            "News", "Sport", "Movies", "Kids", "Music", "Docs", "Entertainment", "Series", "Lifestyle", "Local"
+    };
+    private static final String[] WORDS = {
+            "One", "Two", "Prime", "Max", "Plus", "Gold", "Live", "World", "Action", "Family", "Cinema", "Arena"
+    };
+    private static final String[] QUALITIES = {"", "", " HD", " FHD", " 4K"};
+    private static final String[] TITLES = {
+            "Morning Report", "Matchday Live", "The Late Film", "Cartoon Hour", "Top 40", "Planet Deep",
+            "Quiz Night", "Crime Files", "Home & Garden", "Evening Bulletin", "Highlights", "Classic Cinema"
+    };
+    private static final long SLOT_SECONDS = 30 * 60;
+
+    static final class Item {
+        final int id;
+        final String channelId;
+        final String name;
+        final String group;
+        volatile boolean favourite;
+
+        Item(int id, String channelId, String name, String group, boolean favourite) {
+            this.id = id;
+            this.channelId = channelId;
+            this.name = name;
+            this.group = group;
+            this.favourite = favourite;
+        }
+    }
+
+    private final List<Item> items;
+    private final Map<String, Item> byId = new LinkedHashMap<>();
+    private final List<String> groups;
+    private final double epgCoverage;
+    private final long seed;
+    private byte[] channelsBody;
+
+    SyntheticCatalog(int channelCount, int groupCount, double epgCoverage, long seed) {
+        this.epgCoverage = epgCoverage;
+        this.seed = seed;
+        Random random = new Random(seed);
+
+        groups = new ArrayList<>(groupCount);
+        for (int g = 0; g < groupCount; g++) {
+            String name = COUNTRIES[g % COUNTRIES.length] + " | " + GENRES[(g / COUNTRIES.length) % GENRES.length];
+            int round = g / (COUNTRIES.length * GENRES.length);
+            groups.add(round == 0 ? name : name + " " + (round + 1));
+        }
+
+        items = new ArrayList<>(channelCount);
+        for (int i = 0; i < channelCount; i++) {
+            // Squaring a uniform value skews towards low indexes: a few big groups, a long tail
+            double r = random.nextDouble();
+            String group = groups.get((int) (r * r * groupCount));
+            String genre = group.substring(group.indexOf('|') + 2);
+            String name = group.substring(0, 2) + ": " + genre + " "
+                    + WORDS[random.nextInt(WORDS.length)] + QUALITIES[random.nextInt(QUALITIES.length)];
+            Item item = new Item(i + 1, String.valueOf(100000 + i), name, group, random.nextInt(20) == 0);
+            items.add(item);
+            byId.put(item.channelId, item);
+        }
+    }
+
+    int size() {
+        return items.size();
+    }
+
+    List<String> groupNames() {
+        return groups;
+    }
+
+    Item get(String channelId) {
+        return byId.get(channelId);
+    }
+
+    /** The first {@code n} channel ids, for recents and the EPG batch. */
+    List<String> firstIds(int n) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < Math.min(n, items.size()); i++) ids.add(items.get(i).channelId);
+        return ids;
+    }
+
+    // ── Responses ────────────────────────────────────────────
+
+    synchronized byte[] channelsBody() {
+        if (channelsBody == null) {
+            JSONArray arr = new JSONArray();
+            for (Item item : items) {
+                arr.put(new JSONObject()
+                        .put("id", item.id)
+                        .put("channel_id", item.channelId)
+                        .put("name", item.name)
+                        .put("group", item.group)
+                        .put("favourite", item.favourite));
+            }
+            channelsBody = Http.jsonBytes(new JSONObject().put("channels", arr));
+        }
+        return channelsBody;
+    }
+
+    synchronized boolean toggleFavourite(Item item) {
+        item.favourite = !item.favourite;
+        channelsBody = null;
+        return item.favourite;
+    }
+
+    /**
+     * Now/next for the requested ids. Programmes sit on 30-minute slots that
+     * each channel offsets by a few minutes, so entries expire at different
+     * times the way real guides do. Unknown ids and the uncovered part of the
+     * catalog are simply absent from the response.
+     */
+    JSONObject epg(String[] channelIds, long nowSeconds) {
+        JSONObject epg = new JSONObject();
+        for (String id : channelIds) {
+            Item item = byId.get(id);
+            if (item == null || !hasEpg(item)) continue;
+            long offset = (item.id * 7L) % 30 * 60;
+            long slot = (nowSeconds - offset) / SLOT_SECONDS;
+            long start = slot * SLOT_SECONDS + offset;
+            epg.put(id, new JSONObject()
+                    .put("now_title", TITLES[(int) ((slot + item.id) % TITLES.length)])
+                    .put("next_title", TITLES[(int) ((slot + 1 + item.id) % TITLES.length)])
+                    .put("now_start", start)
+                    .put("now_end", start + SLOT_SECONDS));
+        }
+        return new JSONObject().put("epg", epg);
+    }
+
+    private boolean hasEpg(Item item) {
+        // Stable per channel and seed, independent of request order
+        long h = (item.id * 0x9E3779B97F4A7C15L) ^ seed;
+        return ((h >>> 11) % 1000) < epgCoverage * 1000;
+    }
+}